@@ -0,0 +1,217 @@
+package com.spotify.dashboard.config;
+
+import com.spotify.dashboard.standin.SpotifyStandIn;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and tail latency of a request that blocks on one Spotify call, with Tomcat on
+ * platform threads (its default 200) versus virtual threads. Not a JMH benchmark: it starts a
+ * {@link SpotifyStandIn} that answers after an injected delay, a minimal Boot app using the real
+ * {@link AppConfig} clients, and drives it with a fixed number of concurrent callers.
+ *
+ * Virtual threads need Java 21+; on older runtimes that mode is skipped. Arguments, all
+ * optional: {@code concurrency=400 latency-ms=100 jitter-ms=50 warmup-s=5 duration-s=20 modes=platform,virtual}.
+ */
+public class VirtualThreadsBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SpotifyStandIn.parseOptions(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "400"));
+        int latencyMs = Integer.parseInt(options.getOrDefault("latency-ms", "100"));
+        int jitterMs = Integer.parseInt(options.getOrDefault("jitter-ms", "50"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-s", "5")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-s", "20")));
+        List<String> modes = Arrays.asList(options.getOrDefault("modes", "platform,virtual").split(","));
+
+        // only the API latency matters here; the benchmark calls /me and nothing else
+        SpotifyStandIn.Settings settings = SpotifyStandIn.Settings.parse(Map.of(
+            "api-latency", "uniform:" + latencyMs + "-" + (latencyMs + jitterMs)));
+        try (SpotifyStandIn upstream = SpotifyStandIn.start(settings)) {
+            System.out.printf("upstream latency %d ms + up to %d ms jitter, %d concurrent callers, Java %d%n",
+                latencyMs, jitterMs, concurrency, Runtime.version().feature());
+            for (String mode : modes) {
+                boolean virtual = mode.equals("virtual");
+                if (virtual && Runtime.version().feature() < 21) {
+                    System.out.println("virtual: skipped, needs Java 21+");
+                    continue;
+                }
+                try (ConfigurableApplicationContext app = startApp(upstream.apiBaseUrl(), virtual, concurrency)) {
+                    int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+                    Result result = drive(URI.create("http://localhost:" + port + "/bench/me"), upstream, concurrency, warmup, duration);
+                    System.out.printf("%-8s %8.1f req/s   p50 %6.1f ms   p99 %7.1f ms   max %7.1f ms   errors %d%n",
+                        mode, result.throughput(), result.percentileMs(0.50), result.percentileMs(0.99),
+                        result.percentileMs(1.0), result.errors());
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApp(String upstreamUrl, boolean virtual, int concurrency) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.config.name", "virtual-threads-benchmark");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("server.port", 0);
+        properties.put("spring.threads.virtual.enabled", virtual);
+        properties.put("bench.upstream-url", upstreamUrl);
+        // the client pool and governor are sized to the load so only the server's threading differs
+        properties.put("http.clients.spotify-api.max-connections", concurrency);
+        properties.put("http.clients.spotify-api.governor.initial-concurrency", concurrency);
+        properties.put("http.clients.spotify-api.governor.max-concurrency", concurrency);
+        properties.put("http.clients.spotify-api.pool-wait-timeout-ms", 30000);
+        return new SpringApplicationBuilder(BenchApplication.class)
+            .web(WebApplicationType.SERVLET)
+            .properties(properties)
+            .run();
+    }
+
+    private static Result drive(URI uri, SpotifyStandIn upstream, int concurrency, Duration warmup, Duration duration)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newCachedThreadPool())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        // each caller only touches its own slot; they are read once the callers have terminated
+        long[][] samples = new long[concurrency][];
+        int[] counts = new int[concurrency];
+
+        ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+        for (int caller = 0; caller < concurrency; caller++) {
+            int index = caller;
+            samples[index] = new long[1 << 12];
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + upstream.accessToken(caller % upstream.users()))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+            callers.execute(() -> {
+                while (true) {
+                    long sent = System.nanoTime();
+                    if (sent >= stopAt) {
+                        break;
+                    }
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        long done = System.nanoTime();
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else if (sent >= measureFrom && done <= stopAt) {
+                            if (counts[index] == samples[index].length) {
+                                samples[index] = Arrays.copyOf(samples[index], samples[index].length * 2);
+                            }
+                            samples[index][counts[index]++] = done - sent;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        callers.shutdown();
+        callers.awaitTermination(warmup.plus(duration).toSeconds() + 60, TimeUnit.SECONDS);
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int caller = 0; caller < concurrency; caller++) {
+            System.arraycopy(samples[caller], 0, all, offset, counts[caller]);
+            offset += counts[caller];
+        }
+        Arrays.sort(all);
+        return new Result(all, total / (duration.toNanos() / 1e9), errors.get());
+    }
+
+    private record Result(long[] sortedLatencies, double throughput, long errors) {
+
+        double percentileMs(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({
+        ServletWebServerFactoryAutoConfiguration.class,
+        EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        RestTemplateAutoConfiguration.class
+    })
+    @Import({AppConfig.class, WorkerThreads.class, MeController.class})
+    static class BenchApplication {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    /** Stands in for a dashboard endpoint: one blocking, governed call to the Spotify client. */
+    @RestController
+    static class MeController {
+
+        private final RestTemplate restTemplate;
+        private final String upstreamUrl;
+
+        MeController(@Qualifier(AppConfig.SPOTIFY_API) RestTemplate restTemplate,
+                     @Value("${bench.upstream-url}") String upstreamUrl) {
+            this.restTemplate = restTemplate;
+            this.upstreamUrl = upstreamUrl;
+        }
+
+        @GetMapping("/bench/me")
+        String me(HttpServletRequest request) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.AUTHORIZATION, request.getHeader(HttpHeaders.AUTHORIZATION));
+            return restTemplate.exchange(upstreamUrl + "/me", HttpMethod.GET, new HttpEntity<>(headers), String.class)
+                .getBody();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.spotify.dashboard.dto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of recorded-shape Spotify payloads (src/test/resources/fixtures/spotify) into the
+ * typed records versus the generic map tree. Run with {@code -prof gc} to compare bytes per op.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SpotifyDecodingBenchmark {
+
+    private static final TypeReference<SpotifyPage<SpotifyTrack>> TRACK_PAGE = new TypeReference<>() {};
+    private static final TypeReference<SpotifyPage<RecentlyPlayedItem>> RECENTLY_PLAYED_PAGE = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] topTracksJson;
+    private byte[] recentlyPlayedJson;
+    private ReccoBeatsTrack reccoBeatsTrack;
+
+    @Setup
+    public void setUp() throws IOException {
+        topTracksJson = readFixture("top-tracks.json");
+        recentlyPlayedJson = readFixture("recently-played.json");
+        reccoBeatsTrack = new ReccoBeatsTrack("1f5c8a2e-0d1b-4b7e", "https://open.spotify.com/track/4uLU6hMCjMI75M1A2tKUQC");
+    }
+
+    @Benchmark
+    public SpotifyPage<SpotifyTrack> topTracksTyped() throws IOException {
+        return objectMapper.readValue(topTracksJson, TRACK_PAGE);
+    }
+
+    @Benchmark
+    public Map<String, Object> topTracksMap() throws IOException {
+        return objectMapper.readValue(topTracksJson, MAP);
+    }
+
+    @Benchmark
+    public SpotifyPage<RecentlyPlayedItem> recentlyPlayedTyped() throws IOException {
+        return objectMapper.readValue(recentlyPlayedJson, RECENTLY_PLAYED_PAGE);
+    }
+
+    @Benchmark
+    public Map<String, Object> recentlyPlayedMap() throws IOException {
+        return objectMapper.readValue(recentlyPlayedJson, MAP);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String extractSpotifyId() {
+        return reccoBeatsTrack.spotifyId();
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream in = SpotifyDecodingBenchmark.class.getResourceAsStream("/fixtures/spotify/" + name)) {
+            if (in == null) {
+                throw new IOException("missing fixture " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.spotify.dashboard.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.dashboard.BackendApplication;
+import com.spotify.dashboard.standin.SpotifyStandIn;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * End-to-end load test of the backend against {@link SpotifyStandIn}, for capacity runs that never
+ * touch Spotify or ReccoBeats. Starts the stand-in and the real application (Postgres and Redis
+ * come from the usual {@code DB_*} and {@code REDIS_*} settings), signs the synthetic users in
+ * through the auth callback, then drives {@code SpotifyController} with a fixed number of
+ * concurrent callers and a weighted mix of dashboard calls while the history poller and the
+ * enrichment scheduler run. Reports throughput and latency percentiles per endpoint, what the
+ * schedulers got done, and what the stand-in served.
+ *
+ * Arguments are {@code key=value}: {@code concurrency=50 warmup-s=65 duration-s=120} plus any
+ * {@link SpotifyStandIn.Settings#parse stand-in setting} ({@code users}, latencies, throttle
+ * rates), and {@code app.<property>=<value>} to override an application property. The default
+ * warm-up covers the poller's once-a-minute user sync, so signed-in users are being polled by
+ * the time measuring starts.
+ */
+public class LoadTestHarness {
+
+    private static final String API = "/api/v1/spotify";
+    private static final String[] TIME_RANGES = {"short_term", "medium_term", "long_term"};
+
+    /** A dashboard call and how often it is made relative to the others. */
+    private record Call(String name, String method, String path, int weight) {}
+
+    private static final List<Call> MIX = List.of(
+        new Call("me", "GET", "/me", 15),
+        new Call("top tracks", "GET", "/top/tracks?time_range={range}&limit=50", 20),
+        new Call("top artists", "GET", "/top/artists?time_range={range}&limit=50", 15),
+        new Call("genres", "GET", "/analytics/genres?time_range={range}", 10),
+        new Call("genres all", "GET", "/analytics/genres/all", 5),
+        new Call("heatmap", "GET", "/analytics/heatmap", 10),
+        new Call("daily activity", "GET", "/analytics/daily-activity?days=30", 5),
+        new Call("artist plays", "GET", "/analytics/artist-plays?limit=10", 5),
+        new Call("insights", "GET", "/audio-features/insights-from-top?time_range={range}", 10),
+        new Call("generate playlist", "POST", "/playlists/generate", 3),
+        new Call("poll history", "POST", "/listening-history/poll", 2));
+
+    private static final String PLAYLIST_BODY =
+        "{\"time_range\":\"%s\",\"name\":\"Load test\",\"description\":\"Generated by the load test\",\"public_playlist\":false}";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SpotifyStandIn.parseOptions(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "50"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-s", "65")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-s", "120")));
+
+        try (SpotifyStandIn standIn = SpotifyStandIn.start(SpotifyStandIn.Settings.parse(options));
+             ConfigurableApplicationContext app = startApp(standIn, options)) {
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + API;
+            HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newCachedThreadPool())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+            List<String> accessTokens = signIn(client, baseUrl, standIn.users());
+            System.out.printf("%d of %d users signed in; warming up for %d s%n",
+                accessTokens.size(), standIn.users(), warmup.toSeconds());
+            if (accessTokens.isEmpty()) {
+                return;
+            }
+
+            MeterRegistry registry = app.getBean(MeterRegistry.class);
+            JdbcTemplate jdbcTemplate = app.getBean(JdbcTemplate.class);
+            Map<String, Recorder> recorders = new LinkedHashMap<>();
+            MIX.forEach(call -> recorders.put(call.name(), new Recorder()));
+
+            long measureFrom = System.nanoTime() + warmup.toNanos();
+            long stopAt = measureFrom + duration.toNanos();
+            ExecutorService callers = Executors.newFixedThreadPool(concurrency);
+            List<Future<?>> running = new ArrayList<>();
+            for (int caller = 0; caller < concurrency; caller++) {
+                running.add(callers.submit(() -> drive(client, baseUrl, accessTokens, recorders, measureFrom, stopAt)));
+            }
+
+            Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(measureFrom - System.nanoTime())));
+            Snapshot before = Snapshot.take(registry, jdbcTemplate, standIn);
+            for (Future<?> future : running) {
+                future.get();
+            }
+            Snapshot after = Snapshot.take(registry, jdbcTemplate, standIn);
+            callers.shutdown();
+
+            report(recorders, duration, concurrency, before, after, registry);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApp(SpotifyStandIn standIn, Map<String, String> options) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spotify.api.base-url", standIn.apiBaseUrl());
+        properties.put("spotify.accounts.token-url", standIn.tokenUrl());
+        properties.put("reccobeats.base-url", standIn.reccoBeatsBaseUrl());
+        properties.put("spotify.client-id", "load-test");
+        properties.put("spotify.client-secret", "load-test");
+        // poll often enough that the scheduler works during a run of a few minutes
+        properties.put("scheduler.listening-history.tick-ms", "1000");
+        properties.put("scheduler.listening-history.min-interval-minutes", "1");
+        properties.put("scheduler.listening-history.initial-interval-minutes", "1");
+        properties.put("track-features.enrichment.interval-ms", "5000");
+        properties.put("logging.level.com.spotify.dashboard", "WARN");
+        options.forEach((key, value) -> {
+            if (key.startsWith("app.")) {
+                properties.put(key.substring("app.".length()), value);
+            }
+        });
+        // command-line arguments, so they win over application.yml and the environment
+        String[] args = properties.entrySet().stream()
+            .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+            .toArray(String[]::new);
+        return new SpringApplicationBuilder(BackendApplication.class).run(args);
+    }
+
+    private static List<String> signIn(HttpClient client, String baseUrl, int users) throws InterruptedException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ExecutorService signIns = Executors.newFixedThreadPool(16);
+        List<Future<String>> tokens = new ArrayList<>(users);
+        for (int user = 0; user < users; user++) {
+            String code = URLEncoder.encode(SpotifyStandIn.authorizationCode(user), StandardCharsets.UTF_8);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/callback?code=" + code))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofSeconds(30))
+                .build();
+            tokens.add(signIns.submit(() -> {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Sign-in failed with " + response.statusCode() + ": " + response.body());
+                }
+                return (String) objectMapper.readValue(response.body(), Map.class).get("access_token");
+            }));
+        }
+        List<String> accessTokens = new ArrayList<>(users);
+        for (Future<String> token : tokens) {
+            try {
+                accessTokens.add(token.get());
+            } catch (Exception e) {
+                System.out.println("  " + e.getMessage());
+            }
+        }
+        signIns.shutdown();
+        return accessTokens;
+    }
+
+    private static void drive(HttpClient client, String baseUrl, List<String> accessTokens,
+                              Map<String, Recorder> recorders, long measureFrom, long stopAt) {
+        int totalWeight = MIX.stream().mapToInt(Call::weight).sum();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < stopAt) {
+            Call call = pick(random.nextInt(totalWeight));
+            String range = TIME_RANGES[random.nextInt(TIME_RANGES.length)];
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + call.path().replace("{range}", range)))
+                .header("Authorization", "Bearer " + accessTokens.get(random.nextInt(accessTokens.size())))
+                .timeout(Duration.ofSeconds(30));
+            if (call.method().equals("POST")) {
+                request.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(String.format(PLAYLIST_BODY, range)));
+            }
+
+            long sent = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                status = -1;
+            }
+            long done = System.nanoTime();
+            if (sent >= measureFrom && done <= stopAt) {
+                recorders.get(call.name()).record(done - sent, status);
+            }
+        }
+    }
+
+    private static Call pick(int draw) {
+        for (Call call : MIX) {
+            draw -= call.weight();
+            if (draw < 0) {
+                return call;
+            }
+        }
+        return MIX.get(MIX.size() - 1);
+    }
+
+    private static void report(Map<String, Recorder> recorders, Duration duration, int concurrency,
+                               Snapshot before, Snapshot after, MeterRegistry registry) {
+        double seconds = duration.toNanos() / 1e9;
+        long[] all = recorders.values().stream().flatMapToLong(recorder -> Arrays.stream(recorder.sorted())).sorted().toArray();
+        long errors = recorders.values().stream().mapToLong(recorder -> recorder.errors.get()).sum();
+
+        System.out.printf("%nSpotifyController, %d concurrent callers, %d s%n", concurrency, duration.toSeconds());
+        System.out.printf("%-18s %9s %9s %9s %9s %9s %9s %7s%n", "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        recorders.forEach((name, recorder) -> printRow(name, recorder.sorted(), recorder.errors.get(), seconds));
+        printRow("all", all, errors, seconds);
+
+        System.out.printf("%nSchedulers%n");
+        System.out.printf("  history polls: %.1f users/s (%s)%n",
+            (after.polls() - before.polls()) / seconds, after.pollOutcomesSince(before));
+        System.out.printf("  plays stored: %.1f /s, tracks with features added: %d, enrichment queue %d -> %d%n",
+            (after.plays() - before.plays()) / seconds, after.trackFeatures() - before.trackFeatures(),
+            before.queueDepth(), after.queueDepth());
+        Timer pollCycle = registry.find("listening_history.poll.cycle").timer();
+        Timer enrichmentCycle = registry.find("audio_features.fetch.cycle").timer();
+        if (pollCycle != null && enrichmentCycle != null) {
+            System.out.printf("  cycle means: poll %.0f ms, enrichment %.0f ms (whole run)%n",
+                pollCycle.mean(TimeUnit.MILLISECONDS), enrichmentCycle.mean(TimeUnit.MILLISECONDS));
+        }
+
+        System.out.printf("%nStand-in upstream (measured window)%n");
+        after.upstreamRequests().forEach((route, count) -> {
+            long served = count - before.upstreamRequests().getOrDefault(route, 0L);
+            long throttled = after.upstreamThrottled().getOrDefault(route, 0L) - before.upstreamThrottled().getOrDefault(route, 0L);
+            if (served > 0) {
+                System.out.printf("  %-48s %9d %8.1f /s %7d throttled%n", route, served, served / seconds, throttled);
+            }
+        });
+    }
+
+    private static void printRow(String name, long[] sorted, long errors, double seconds) {
+        System.out.printf("%-18s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %7d%n", name, sorted.length, sorted.length / seconds,
+            percentileMs(sorted, 0.50), percentileMs(sorted, 0.90), percentileMs(sorted, 0.99), percentileMs(sorted, 1.0), errors);
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    /** Latencies of successful calls to one endpoint; anything but a 2xx counts as an error. */
+    private static final class Recorder {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1024];
+        private int size;
+
+        void record(long nanos, int status) {
+            if (status < 200 || status >= 300) {
+                errors.incrementAndGet();
+                return;
+            }
+            lock.lock();
+            try {
+                if (size == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, size * 2);
+                }
+                latencies[size++] = nanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long[] sorted() {
+            lock.lock();
+            try {
+                long[] copy = Arrays.copyOf(latencies, size);
+                Arrays.sort(copy);
+                return copy;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private record Snapshot(Map<String, Double> pollOutcomes, long plays, long trackFeatures, long queueDepth,
+                            Map<String, Long> upstreamRequests, Map<String, Long> upstreamThrottled) {
+
+        static Snapshot take(MeterRegistry registry, JdbcTemplate jdbcTemplate, SpotifyStandIn standIn) {
+            Map<String, Double> pollOutcomes = new TreeMap<>();
+            for (Counter counter : registry.find("listening_history.poll.users").counters()) {
+                pollOutcomes.put(counter.getId().getTag("outcome"), counter.count());
+            }
+            Gauge depth = registry.find("track_features.enrichment.queue.depth").gauge();
+            return new Snapshot(pollOutcomes,
+                count(jdbcTemplate, "listening_history"),
+                count(jdbcTemplate, "track_features"),
+                depth != null ? (long) depth.value() : 0,
+                standIn.requestCounts(),
+                standIn.throttledCounts());
+        }
+
+        private static long count(JdbcTemplate jdbcTemplate, String table) {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+            return count != null ? count : 0;
+        }
+
+        long polls() {
+            return Math.round(pollOutcomes.values().stream().mapToDouble(Double::doubleValue).sum());
+        }
+
+        String pollOutcomesSince(Snapshot before) {
+            List<String> parts = new ArrayList<>();
+            pollOutcomes.forEach((outcome, count) ->
+                parts.add(outcome + " " + Math.round(count - before.pollOutcomes.getOrDefault(outcome, 0.0))));
+            return String.join(", ", parts);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.dto.ReccoBeatsAudioFeatures;
+import com.spotify.dashboard.model.ListeningHistory;
+import com.spotify.dashboard.model.TrackFeatures;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Insight aggregation over a user's 50 top tracks against a store holding a realistic
+ * number of tracks, plus the per-track mapping done for every ReccoBeats response.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class AudioFeaturesBenchmark {
+
+    private static final int TOP_TRACKS = 50;
+
+    @Param({"10000", "200000"})
+    private int storedTracks;
+
+    private TrackFeatureStore store;
+    private List<String> topTrackIds;
+    private List<TrackFeatures> topTrackEntities;
+    private double[] valences;
+    private double[] energies;
+    private ReccoBeatsAudioFeatures features;
+    private ListeningHistory history;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        store = new TrackFeatureStore(null, null, null, "target/jmh-track-features.snapshot", 300_000);
+        List<TrackFeatures> all = new ArrayList<>(storedTracks);
+        for (int i = 0; i < storedTracks; i++) {
+            TrackFeatures trackFeatures = new TrackFeatures("track" + i, "Track " + i, "Artist " + (i % 500));
+            trackFeatures.setAcousticness((float) random.nextDouble());
+            trackFeatures.setDanceability((float) random.nextDouble());
+            trackFeatures.setEnergy((float) random.nextDouble());
+            trackFeatures.setValence((float) random.nextDouble());
+            // a few tracks come back from ReccoBeats without a tempo
+            trackFeatures.setTempo(random.nextInt(20) == 0 ? null : (float) (60 + random.nextDouble() * 120));
+            store.put(trackFeatures);
+            all.add(trackFeatures);
+        }
+
+        topTrackIds = new ArrayList<>(TOP_TRACKS);
+        topTrackEntities = new ArrayList<>(TOP_TRACKS);
+        for (int i = 0; i < TOP_TRACKS; i++) {
+            int index = random.nextInt(storedTracks);
+            topTrackIds.add("track" + index);
+            topTrackEntities.add(all.get(index));
+        }
+
+        valences = random.doubles(1024).toArray();
+        energies = random.doubles(1024).toArray();
+        features = new ReccoBeatsAudioFeatures(0.12f, 0.71f, 0.83f, 0.64f, 122.5f);
+        history = new ListeningHistory("user", "track1", "Track 1", "Artist 1", LocalDateTime.now());
+    }
+
+    @Benchmark
+    public TrackFeatureStore.FeatureAverages storeAverages() {
+        return store.averages(topTrackIds);
+    }
+
+    /** The pre-store path: boxed entity getters streamed once per feature. */
+    @Benchmark
+    public double entityAverages(Blackhole blackhole) {
+        List<Function<TrackFeatures, Float>> extractors = List.of(
+            TrackFeatures::getEnergy, TrackFeatures::getValence, TrackFeatures::getDanceability,
+            TrackFeatures::getTempo, TrackFeatures::getAcousticness);
+        double last = 0;
+        for (Function<TrackFeatures, Float> extractor : extractors) {
+            last = topTrackEntities.stream()
+                .mapToDouble(t -> {
+                    Float value = extractor.apply(t);
+                    return value != null ? value : 0.0;
+                })
+                .average()
+                .orElse(0.0);
+            blackhole.consume(last);
+        }
+        return last;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void determineMood(Blackhole blackhole) {
+        for (int i = 0; i < valences.length; i++) {
+            blackhole.consume(AudioFeaturesService.determineMood(valences[i], energies[i]));
+        }
+    }
+
+    @Benchmark
+    public TrackFeatures mapToTrackFeatures() {
+        return AudioFeaturesService.mapToTrackFeatures(features, history, "track1");
+    }
+}
@@ -0,0 +1,53 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.dto.SpotifyArtist;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Genre distributions for all three time ranges from top-artist pages; Spotify returns
+ * 0-6 genres per artist from a long tail, and ranges overlap heavily in artists.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class GenreAnalyticsBenchmark {
+
+    private static final int GENRE_POOL = 400;
+
+    @Param({"50"})
+    private int artistsPerRange;
+
+    private List<List<SpotifyArtist>> artistsByRange;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        List<SpotifyArtist> library = new ArrayList<>();
+        for (int i = 0; i < artistsPerRange * 2; i++) {
+            int genreCount = random.nextInt(7);
+            List<String> genres = new ArrayList<>(genreCount);
+            for (int g = 0; g < genreCount; g++) {
+                // skew towards popular genres the way real libraries are
+                int rank = (int) (GENRE_POOL * Math.pow(random.nextDouble(), 3));
+                genres.add("genre " + rank);
+            }
+            library.add(new SpotifyArtist("artist" + i, "Artist " + i, genres));
+        }
+
+        artistsByRange = new ArrayList<>();
+        for (int range = 0; range < GenreAnalyticsService.TIME_RANGES.size(); range++) {
+            int offset = range * artistsPerRange / 2;
+            artistsByRange.add(library.subList(offset, offset + artistsPerRange));
+        }
+    }
+
+    @Benchmark
+    public Object allRangeDistributions() {
+        return GenreAnalyticsService.computeDistributions(0L, artistsByRange, 10);
+    }
+}
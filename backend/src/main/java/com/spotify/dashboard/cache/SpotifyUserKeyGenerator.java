@@ -0,0 +1,42 @@
+package com.spotify.dashboard.cache;
+
+import com.spotify.dashboard.service.SpotifyUserResolver;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Cache key generator for methods whose first argument is a Spotify access token. The token is
+ * replaced by the Spotify user id it belongs to, so entries survive hourly token rotation and
+ * two users can never share a key.
+ */
+@Component(SpotifyUserKeyGenerator.BEAN_NAME)
+public class SpotifyUserKeyGenerator implements KeyGenerator {
+
+    public static final String BEAN_NAME = "spotifyUserKeyGenerator";
+
+    private final SpotifyUserResolver spotifyUserResolver;
+
+    public SpotifyUserKeyGenerator(SpotifyUserResolver spotifyUserResolver) {
+        this.spotifyUserResolver = spotifyUserResolver;
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        if (params.length == 0 || !(params[0] instanceof String accessToken)) {
+            throw new IllegalArgumentException("First argument of " + method.getName() + " must be an access token");
+        }
+        return key(spotifyUserResolver.resolveUserId(accessToken), Arrays.copyOfRange(params, 1, params.length));
+    }
+
+    /** The key for a user id and the remaining arguments, for callers that read the caches directly. */
+    public static String key(String userId, Object... params) {
+        StringBuilder key = new StringBuilder(userId);
+        for (Object param : params) {
+            key.append('_').append(param);
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,203 @@
+package com.spotify.dashboard.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded in-process cache (L1) in front of a shared cache (L2, Redis in production).
+ * Reads try L1 first and promote L2 hits into L1; writes go to both tiers. L2 failures never
+ * fail the request: the cache keeps serving from L1 and stops calling L2 for a short while.
+ */
+public class TwoTierCache extends AbstractValueAdaptingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoTierCache.class);
+
+    private final String name;
+    private final Cache<Object, Object> l1;
+    private final org.springframework.cache.Cache l2;
+    private final L2Availability l2Availability;
+
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder l2Errors = new LongAdder();
+
+    public TwoTierCache(String name, Cache<Object, Object> l1, org.springframework.cache.Cache l2,
+                        L2Availability l2Availability) {
+        super(false);
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.l2Availability = l2Availability;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = l1.getIfPresent(key);
+        if (value != null) {
+            l1Hits.increment();
+            return value;
+        }
+
+        ValueWrapper shared = l2Get(key);
+        if (shared != null && shared.get() != null) {
+            l2Hits.increment();
+            l1.put(key, shared.get());
+            return shared.get();
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        puts.increment();
+        l1.put(key, value);
+        if (l2 != null && l2Availability.isAvailable()) {
+            try {
+                l2.put(key, value);
+            } catch (RuntimeException e) {
+                onL2Failure("put", e);
+            }
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        l1.invalidate(key);
+        if (l2 != null && l2Availability.isAvailable()) {
+            try {
+                l2.evict(key);
+            } catch (RuntimeException e) {
+                onL2Failure("evict", e);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        l1.invalidateAll();
+        if (l2 != null && l2Availability.isAvailable()) {
+            try {
+                l2.clear();
+            } catch (RuntimeException e) {
+                onL2Failure("clear", e);
+            }
+        }
+    }
+
+    private ValueWrapper l2Get(Object key) {
+        if (l2 == null || !l2Availability.isAvailable()) {
+            return null;
+        }
+        try {
+            return l2.get(key);
+        } catch (RuntimeException e) {
+            onL2Failure("get", e);
+            return null;
+        }
+    }
+
+    private void onL2Failure(String operation, RuntimeException e) {
+        l2Errors.increment();
+        if (l2Availability.suspend()) {
+            logger.warn("Shared cache {} failed for cache '{}', serving from local cache only for {} s: {}",
+                operation, name, l2Availability.getSuspendSeconds(), e.getMessage());
+        }
+    }
+
+    long getL1HitCount() {
+        return l1Hits.sum();
+    }
+
+    long getL2HitCount() {
+        return l2Hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    long getPutCount() {
+        return puts.sum();
+    }
+
+    long getL2ErrorCount() {
+        return l2Errors.sum();
+    }
+
+    long getEvictionCount() {
+        return l1.stats().evictionCount();
+    }
+
+    long getL1Size() {
+        return l1.estimatedSize();
+    }
+
+    /** Shared switch that takes L2 out of the read/write path for a while after it fails. */
+    public static class L2Availability {
+
+        private final long suspendNanos;
+        private final AtomicLong suspendedUntil = new AtomicLong();
+
+        public L2Availability(long suspendSeconds) {
+            this.suspendNanos = suspendSeconds * 1_000_000_000L;
+        }
+
+        boolean isAvailable() {
+            long until = suspendedUntil.get();
+            return until == 0 || System.nanoTime() - until >= 0;
+        }
+
+        /** Returns true for the caller that actually started the suspension window. */
+        boolean suspend() {
+            long current = suspendedUntil.get();
+            if (current != 0 && System.nanoTime() - current < 0) {
+                return false;
+            }
+            return suspendedUntil.compareAndSet(current, System.nanoTime() + suspendNanos);
+        }
+
+        long getSuspendSeconds() {
+            return suspendNanos / 1_000_000_000L;
+        }
+    }
+}
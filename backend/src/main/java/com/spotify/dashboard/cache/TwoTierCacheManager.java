@@ -0,0 +1,55 @@
+package com.spotify.dashboard.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates a {@link TwoTierCache} per cache name: a Caffeine L1 bounded by size and TTL,
+ * backed by the matching cache of the shared (L2) manager when one is configured.
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+    private final CacheManager sharedCacheManager;
+    private final long l1MaxEntries;
+    private final Duration l1Ttl;
+    private final TwoTierCache.L2Availability l2Availability;
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager sharedCacheManager, long l1MaxEntries, Duration l1Ttl,
+                               long l2SuspendSeconds, List<String> cacheNames) {
+        this.sharedCacheManager = sharedCacheManager;
+        this.l1MaxEntries = l1MaxEntries;
+        this.l1Ttl = l1Ttl;
+        this.l2Availability = new TwoTierCache.L2Availability(l2SuspendSeconds);
+        // created up front so the metrics registrar sees every cache at startup
+        cacheNames.forEach(this::getCache);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoTierCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> l1 = Caffeine.newBuilder()
+            .maximumSize(l1MaxEntries)
+            .expireAfterWrite(l1Ttl)
+            .recordStats()
+            .build();
+        Cache l2 = sharedCacheManager != null ? sharedCacheManager.getCache(name) : null;
+        return new TwoTierCache(name, l1, l2, l2Availability);
+    }
+}
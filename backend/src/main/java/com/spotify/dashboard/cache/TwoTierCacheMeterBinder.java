@@ -0,0 +1,67 @@
+package com.spotify.dashboard.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Exposes the standard cache.gets/puts/evictions/size meters (size and evictions are L1's) for a {@link TwoTierCache},
+ * plus a per-tier breakdown of hits and the number of failed shared-cache calls.
+ */
+class TwoTierCacheMeterBinder extends CacheMeterBinder<TwoTierCache> {
+
+    TwoTierCacheMeterBinder(TwoTierCache cache, Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+    }
+
+    @Override
+    protected Long size() {
+        TwoTierCache cache = getCache();
+        return cache != null ? cache.getL1Size() : null;
+    }
+
+    @Override
+    protected long hitCount() {
+        TwoTierCache cache = getCache();
+        return cache != null ? cache.getL1HitCount() + cache.getL2HitCount() : 0;
+    }
+
+    @Override
+    protected Long missCount() {
+        TwoTierCache cache = getCache();
+        return cache != null ? cache.getMissCount() : null;
+    }
+
+    @Override
+    protected Long evictionCount() {
+        TwoTierCache cache = getCache();
+        return cache != null ? cache.getEvictionCount() : null;
+    }
+
+    @Override
+    protected long putCount() {
+        TwoTierCache cache = getCache();
+        return cache != null ? cache.getPutCount() : 0;
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        TwoTierCache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+        FunctionCounter.builder("cache.tier.hits", cache, TwoTierCache::getL1HitCount)
+            .tags(getTagsWithCacheName()).tag("tier", "l1")
+            .description("Hits served from the in-process cache")
+            .register(registry);
+        FunctionCounter.builder("cache.tier.hits", cache, TwoTierCache::getL2HitCount)
+            .tags(getTagsWithCacheName()).tag("tier", "l2")
+            .description("Hits served from the shared cache and promoted into the in-process cache")
+            .register(registry);
+        FunctionCounter.builder("cache.l2.errors", cache, TwoTierCache::getL2ErrorCount)
+            .tags(getTagsWithCacheName())
+            .description("Shared cache operations that failed and fell back to the in-process cache")
+            .register(registry);
+    }
+}
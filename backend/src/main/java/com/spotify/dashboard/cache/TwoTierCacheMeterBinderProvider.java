@@ -0,0 +1,14 @@
+package com.spotify.dashboard.cache;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+
+/** Lets Boot's cache metrics registrar bind every {@link TwoTierCache} at startup. */
+public class TwoTierCacheMeterBinderProvider implements CacheMeterBinderProvider<TwoTierCache> {
+
+    @Override
+    public MeterBinder getMeterBinder(TwoTierCache cache, Iterable<Tag> tags) {
+        return new TwoTierCacheMeterBinder(cache, tags);
+    }
+}
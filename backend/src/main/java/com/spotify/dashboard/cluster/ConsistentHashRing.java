@@ -0,0 +1,54 @@
+package com.spotify.dashboard.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring with virtual nodes. Adding or removing a node only moves the keys in
+ * the ring segments that node covers, about 1/n of them, instead of reshuffling everything.
+ */
+public final class ConsistentHashRing {
+
+    private final TreeMap<Long, String> ring;
+
+    private ConsistentHashRing(TreeMap<Long, String> ring) {
+        this.ring = ring;
+    }
+
+    public static ConsistentHashRing of(Collection<String> nodes, int virtualNodes) {
+        TreeMap<Long, String> ring = new TreeMap<>();
+        // sorted insertion resolves the (unlikely) position collisions the same way on every node
+        nodes.stream().sorted().forEach(node -> {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        });
+        return new ConsistentHashRing(ring);
+    }
+
+    /** The node owning {@code key}, or null when the ring is empty. */
+    public String nodeFor(long key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(key);
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /** 64-bit FNV-1a over UTF-8 followed by the murmur3 finaliser; stable across JVMs and restarts. */
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,89 @@
+package com.spotify.dashboard.cluster;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Leases in Postgres (scheduler_node and scheduler_shard_lease). Every expiry is computed from
+ * the database clock, and a lease only changes hands through the conditional upsert, whose row
+ * lock makes concurrent claims on the same shard resolve to a single winner.
+ */
+@Component
+public class JdbcShardLeaseStore implements ShardLeaseStore {
+
+    private static final String HEARTBEAT_SQL =
+        "INSERT INTO scheduler_node (node_id, expires_at) " +
+        "VALUES (?, clock_timestamp() + ? * INTERVAL '1 millisecond') " +
+        "ON CONFLICT (node_id) DO UPDATE SET expires_at = EXCLUDED.expires_at";
+
+    private static final String ACQUIRE_SQL =
+        "INSERT INTO scheduler_shard_lease (shard, owner, expires_at) " +
+        "SELECT shard, ?, clock_timestamp() + ? * INTERVAL '1 millisecond' FROM unnest(CAST(? AS integer[])) AS shard " +
+        "ON CONFLICT (shard) DO UPDATE SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at " +
+        "WHERE scheduler_shard_lease.owner = EXCLUDED.owner OR scheduler_shard_lease.expires_at <= clock_timestamp() " +
+        "RETURNING shard";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcShardLeaseStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public List<String> heartbeat(String nodeId, Duration ttl) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update(HEARTBEAT_SQL, nodeId, ttl.toMillis());
+            // forget nodes that went away without leaving
+            jdbcTemplate.update("DELETE FROM scheduler_node WHERE expires_at < clock_timestamp() - INTERVAL '1 day'");
+            return jdbcTemplate.queryForList(
+                "SELECT node_id FROM scheduler_node WHERE expires_at > clock_timestamp() ORDER BY node_id", String.class);
+        });
+    }
+
+    @Override
+    public Set<Integer> acquire(String nodeId, Collection<Integer> shards, Duration ttl) {
+        if (shards.isEmpty()) {
+            return Set.of();
+        }
+        return transactionTemplate.execute(status -> new HashSet<>(jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ACQUIRE_SQL);
+            statement.setString(1, nodeId);
+            statement.setLong(2, ttl.toMillis());
+            statement.setArray(3, connection.createArrayOf("integer", shards.toArray()));
+            return statement;
+        }, (rs, rowNum) -> rs.getInt(1))));
+    }
+
+    @Override
+    public void release(String nodeId, Collection<Integer> shards) {
+        if (shards.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM scheduler_shard_lease WHERE owner = ? AND shard = ANY (CAST(? AS integer[]))");
+            statement.setString(1, nodeId);
+            statement.setArray(2, connection.createArrayOf("integer", shards.toArray()));
+            return statement;
+        }));
+    }
+
+    @Override
+    public void leave(String nodeId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM scheduler_shard_lease WHERE owner = ?", nodeId);
+            jdbcTemplate.update("DELETE FROM scheduler_node WHERE node_id = ?", nodeId);
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package com.spotify.dashboard.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Splits per-user scheduled work across backend replicas so each user is handled by one node.
+ *
+ * Users hash onto a fixed number of shards and shards are spread over the live nodes with a
+ * consistent hash ring, so a node joining or leaving only moves its share. A node works on a
+ * shard only while it holds that shard's lease in the {@link ShardLeaseStore}: shards it no
+ * longer wants are dropped locally before they are released, and a node that stops
+ * heartbeating stops trusting its leases before the store lets anyone else take them.
+ */
+public class ShardCoordinator implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    private final ShardLeaseStore store;
+    private final String nodeId;
+    private final int shardCount;
+    private final int virtualNodes;
+    private final Duration leaseTtl;
+    private final long validityNanos;
+    private final LongSupplier nanoTime;
+    private final long[] shardPositions;
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+
+    private volatile Assignment assignment;
+
+    private record Assignment(Set<Integer> shards, int liveNodes, long validUntilNanos) {}
+
+    public ShardCoordinator(ShardLeaseStore store, String nodeId, int shardCount, int virtualNodes,
+                            Duration leaseTtl, LongSupplier nanoTime) {
+        this.store = store;
+        this.nodeId = nodeId;
+        this.shardCount = shardCount;
+        this.virtualNodes = virtualNodes;
+        this.leaseTtl = leaseTtl;
+        // leave a fifth of the lease as margin for clock rate differences and slow round trips
+        this.validityNanos = leaseTtl.toNanos() * 4 / 5;
+        this.nanoTime = nanoTime;
+        this.shardPositions = new long[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            shardPositions[shard] = ConsistentHashRing.hash("shard:" + shard);
+        }
+        this.assignment = new Assignment(Set.of(), 0, nanoTime.getAsLong());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean ownsUser(String userId) {
+        Assignment current = assignment;
+        return isValid(current) && current.shards().contains(shardOf(userId));
+    }
+
+    public int shardOf(String userId) {
+        return Math.floorMod(ConsistentHashRing.hash(userId), shardCount);
+    }
+
+    public int ownedShardCount() {
+        Assignment current = assignment;
+        return isValid(current) ? current.shards().size() : 0;
+    }
+
+    public int liveNodeCount() {
+        return assignment.liveNodes();
+    }
+
+    /** Rebalances right away unless the current leases are still good, e.g. before a cycle right after startup. */
+    public void refreshIfStale() {
+        if (!isValid(assignment)) {
+            rebalance();
+        }
+    }
+
+    /**
+     * Heartbeats, recomputes this node's share from the live nodes, hands back shards that now
+     * belong elsewhere and takes or renews leases on the rest. Shards another node has not
+     * released yet are picked up on a later call.
+     */
+    public void rebalance() {
+        rebalanceLock.lock();
+        try {
+            long startNanos = nanoTime.getAsLong();
+            List<String> nodes = new ArrayList<>(store.heartbeat(nodeId, leaseTtl));
+            if (!nodes.contains(nodeId)) {
+                nodes.add(nodeId);
+            }
+            ConsistentHashRing ring = ConsistentHashRing.of(nodes, virtualNodes);
+            Set<Integer> wanted = new HashSet<>();
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (nodeId.equals(ring.nodeFor(shardPositions[shard]))) {
+                    wanted.add(shard);
+                }
+            }
+
+            Assignment previous = assignment;
+            Set<Integer> released = new HashSet<>(previous.shards());
+            released.removeAll(wanted);
+            if (!released.isEmpty()) {
+                // stop working on them before another node is allowed to start
+                Set<Integer> kept = new HashSet<>(previous.shards());
+                kept.retainAll(wanted);
+                assignment = new Assignment(Set.copyOf(kept), previous.liveNodes(), previous.validUntilNanos());
+                store.release(nodeId, released);
+            }
+
+            Set<Integer> held = store.acquire(nodeId, wanted, leaseTtl);
+            assignment = new Assignment(Set.copyOf(held), nodes.size(), startNanos + validityNanos);
+            if (!held.equals(previous.shards()) || nodes.size() != previous.liveNodes()) {
+                logger.info("Node {} holds {} of {} shards across {} live nodes ({} released, {} awaiting release elsewhere)",
+                    nodeId, held.size(), shardCount, nodes.size(), released.size(), wanted.size() - held.size());
+            }
+        } catch (RuntimeException e) {
+            // keep the current leases until they lapse locally; the next heartbeat retries
+            logger.warn("Shard rebalance failed on node {}: {}", nodeId, e.getMessage());
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        rebalanceLock.lock();
+        try {
+            assignment = new Assignment(Set.of(), 0, nanoTime.getAsLong());
+            store.leave(nodeId);
+            logger.info("Node {} left scheduler sharding", nodeId);
+        } catch (RuntimeException e) {
+            logger.warn("Node {} could not release its shards, they will expire: {}", nodeId, e.getMessage());
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    private boolean isValid(Assignment current) {
+        return nanoTime.getAsLong() - current.validUntilNanos() < 0;
+    }
+}
@@ -0,0 +1,27 @@
+package com.spotify.dashboard.cluster;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shared state behind {@link ShardCoordinator}: which nodes are alive and which node holds each
+ * shard. Expiry is judged by the store's own clock so nodes never compare their local clocks.
+ */
+public interface ShardLeaseStore {
+
+    /** Marks the node alive for {@code ttl} and returns every live node, including this one. */
+    List<String> heartbeat(String nodeId, Duration ttl);
+
+    /**
+     * Takes or renews the lease on each requested shard that is free, expired or already held by
+     * this node, and returns the shards the node holds afterwards.
+     */
+    Set<Integer> acquire(String nodeId, Collection<Integer> shards, Duration ttl);
+
+    void release(String nodeId, Collection<Integer> shards);
+
+    /** Removes the node and all of its leases so the remaining nodes can take over at once. */
+    void leave(String nodeId);
+}
@@ -1,14 +1,213 @@
 package com.spotify.dashboard.config;
 
-import org.springframework.context.annotation.Bean; 
+import com.spotify.dashboard.util.OutboundGovernor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/**
+ * Outbound HTTP clients. Each upstream gets its own connection pool and timeouts so a slow
+ * ReccoBeats or accounts endpoint cannot starve calls to the Spotify Web API, and vice versa.
+ * Settings live under {@code http.clients.<name>} in application.yml.
+ *
+ * Both Spotify clients also go through an {@link OutboundGovernor} (settings under
+ * {@code http.clients.<name>.governor}): the Web API and the accounts service throttle
+ * separately, so each gets its own. The Web API's non-blocking client shares the Web API governor.
+ */
 @Configuration
 public class AppConfig {
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public static final String SPOTIFY_API = "spotifyApiRestTemplate";
+    public static final String SPOTIFY_ACCOUNTS = "spotifyAccountsRestTemplate";
+    public static final String RECCOBEATS = "reccoBeatsRestTemplate";
+    public static final String SPOTIFY_API_ASYNC = "spotifyApiAsyncClient";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final RestTemplateBuilder restTemplateBuilder;
+    private final WorkerThreads workerThreads;
+    private final Map<String, OutboundGovernor> governors = new ConcurrentHashMap<>();
+    // the RestTemplates do not own their clients, so their pools and evictor threads are closed here
+    private final List<CloseableHttpClient> blockingClients = new CopyOnWriteArrayList<>();
+
+    public AppConfig(Environment environment, MeterRegistry meterRegistry, RestTemplateBuilder restTemplateBuilder,
+                     WorkerThreads workerThreads) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.restTemplateBuilder = restTemplateBuilder;
+        this.workerThreads = workerThreads;
+    }
+
+    @Bean(SPOTIFY_API)
+    public RestTemplate spotifyApiRestTemplate() {
+        return pooledRestTemplate("spotify-api", true);
+    }
+
+    @Bean(SPOTIFY_ACCOUNTS)
+    public RestTemplate spotifyAccountsRestTemplate() {
+        return pooledRestTemplate("spotify-accounts", true);
+    }
+
+    @Bean(RECCOBEATS)
+    public RestTemplate reccoBeatsRestTemplate() {
+        return pooledRestTemplate("reccobeats", false);
+    }
+
+    @Bean(SPOTIFY_API_ASYNC)
+    public GovernedAsyncClient spotifyApiAsyncClient() {
+        return pooledAsyncClient("spotify-api");
+    }
+
+    private RestTemplate pooledRestTemplate(String name, boolean governed) {
+        int maxConnections = clientProperty(name, "max-connections", 20);
+        Timeout connectTimeout = Timeout.ofMilliseconds(clientProperty(name, "connect-timeout-ms", 2000));
+        Timeout readTimeout = Timeout.ofMilliseconds(clientProperty(name, "read-timeout-ms", 10000));
+        Timeout poolWaitTimeout = Timeout.ofMilliseconds(clientProperty(name, "pool-wait-timeout-ms", 2000));
+        TimeValue keepAlive = TimeValue.ofMilliseconds(clientProperty(name, "keep-alive-ms", 30000));
+
+        MeteredConnectionManager connectionManager = new MeteredConnectionManager(name, meterRegistry);
+        // every pool talks to a single host, so the per-route limit is the pool limit
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(connectTimeout)
+            .setSocketTimeout(readTimeout)
+            .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+            .build());
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name).bindTo(meterRegistry);
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(poolWaitTimeout)
+                .setResponseTimeout(readTimeout)
+                .build())
+            // cap server-advertised keep-alive so idle sockets are recycled before upstream LBs drop them
+            .setKeepAliveStrategy((response, context) -> keepAlive)
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAlive)
+            .build();
+        blockingClients.add(httpClient);
+
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+        interceptors.add(new OutboundRequestMetrics(name, meterRegistry));
+        if (governed) {
+            // last in the chain, so its retries after a 429 go straight to the wire
+            interceptors.add(governor(name));
+        }
+        return restTemplateBuilder
+            .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+            .additionalInterceptors(interceptors)
+            .build();
+    }
+
+    /**
+     * Runs after the RestTemplate beans, and everything using them, have been destroyed. The async
+     * client is closed by its own bean.
+     */
+    @PreDestroy
+    public void closeBlockingClients() {
+        for (CloseableHttpClient httpClient : blockingClients) {
+            httpClient.close(CloseMode.GRACEFUL);
+        }
+    }
+
+    /**
+     * Same pool and timeout settings as the blocking client, but a separate pool: its connections
+     * are driven by a couple of I/O threads, and results are handed to a small callback pool.
+     */
+    private GovernedAsyncClient pooledAsyncClient(String name) {
+        int maxConnections = clientProperty(name, "max-connections", 20);
+        Timeout connectTimeout = Timeout.ofMilliseconds(clientProperty(name, "connect-timeout-ms", 2000));
+        Timeout readTimeout = Timeout.ofMilliseconds(clientProperty(name, "read-timeout-ms", 10000));
+        Timeout poolWaitTimeout = Timeout.ofMilliseconds(clientProperty(name, "pool-wait-timeout-ms", 2000));
+        TimeValue keepAlive = TimeValue.ofMilliseconds(clientProperty(name, "keep-alive-ms", 30000));
+
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                .build())
+            .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, name + "-async").bindTo(meterRegistry);
+
+        CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+            .setConnectionManager(connectionManager)
+            .setIOReactorConfig(IOReactorConfig.custom()
+                .setIoThreadCount(clientProperty(name, "async.io-threads", 2))
+                .build())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(poolWaitTimeout)
+                .setResponseTimeout(readTimeout)
+                .build())
+            .setKeepAliveStrategy((response, context) -> keepAlive)
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAlive)
+            // the client's own retries would sit out a 429's Retry-After behind the governor's back
+            .disableAutomaticRetries()
+            .build();
+        httpClient.start();
+
+        return new GovernedAsyncClient(name, httpClient,
+            Executors.newFixedThreadPool(clientProperty(name, "async.callback-threads", 4),
+                workerThreads.newFactory(name + "-async-")),
+            outboundGovernor(name),
+            Duration.ofMillis(clientProperty(name, "governor.max-wait-ms", 10000)),
+            Duration.ofMillis(clientProperty(name, "governor.max-retry-after-ms", 5000)),
+            clientProperty(name, "governor.max-retries", 2),
+            meterRegistry);
+    }
+
+    private GovernedRequestInterceptor governor(String name) {
+        return new GovernedRequestInterceptor(name, outboundGovernor(name),
+            Duration.ofMillis(clientProperty(name, "governor.max-wait-ms", 10000)),
+            Duration.ofMillis(clientProperty(name, "governor.max-retry-after-ms", 5000)),
+            clientProperty(name, "governor.max-retries", 2),
+            meterRegistry);
+    }
+
+    // one per upstream, whichever clients call it
+    private OutboundGovernor outboundGovernor(String name) {
+        return governors.computeIfAbsent(name, key -> {
+            int maxConcurrency = clientProperty(key, "governor.max-concurrency", clientProperty(key, "max-connections", 20));
+            return new OutboundGovernor(
+                clientProperty(key, "governor.min-concurrency", 1),
+                maxConcurrency,
+                clientProperty(key, "governor.initial-concurrency", maxConcurrency / 2));
+        });
+    }
+
+    private int clientProperty(String name, String key, int defaultValue) {
+        return environment.getProperty("http.clients." + name + "." + key, Integer.class, defaultValue);
     }
-}
\ No newline at end of file
+}
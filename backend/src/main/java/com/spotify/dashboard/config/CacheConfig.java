@@ -0,0 +1,51 @@
+package com.spotify.dashboard.config;
+
+import com.spotify.dashboard.cache.TwoTierCacheManager;
+import com.spotify.dashboard.cache.TwoTierCacheMeterBinderProvider;
+import com.spotify.dashboard.service.SpotifyApiService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+
+/**
+ * Spotify response caches: a bounded Caffeine L1 per node in front of Redis as the shared L2.
+ * Settings live under {@code cache.spotify} in application.yml.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                     @Value("${cache.spotify.l1.max-entries:10000}") long l1MaxEntries,
+                                     @Value("${cache.spotify.l1.ttl-seconds:300}") long l1TtlSeconds,
+                                     @Value("${cache.spotify.l2.enabled:true}") boolean l2Enabled,
+                                     @Value("${cache.spotify.l2.ttl-seconds:3600}") long l2TtlSeconds,
+                                     @Value("${cache.spotify.l2.suspend-seconds-after-failure:30}") long l2SuspendSeconds) {
+        CacheManager shared = null;
+        RedisConnectionFactory connectionFactory = redisConnectionFactory.getIfAvailable();
+        if (l2Enabled && connectionFactory != null) {
+            RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                    .entryTtl(Duration.ofSeconds(l2TtlSeconds))
+                    .prefixCacheNameWith("spotify-dashboard:")
+                    .disableCachingNullValues())
+                .build();
+            redisCacheManager.initializeCaches();
+            shared = redisCacheManager;
+        }
+        return new TwoTierCacheManager(shared, l1MaxEntries, Duration.ofSeconds(l1TtlSeconds),
+            l2SuspendSeconds, SpotifyApiService.CACHE_NAMES);
+    }
+
+    @Bean
+    public TwoTierCacheMeterBinderProvider twoTierCacheMeterBinderProvider() {
+        return new TwoTierCacheMeterBinderProvider();
+    }
+}
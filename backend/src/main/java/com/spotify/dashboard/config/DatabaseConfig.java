@@ -0,0 +1,19 @@
+package com.spotify.dashboard.config;
+
+import com.spotify.dashboard.service.ListeningHistoryPartitionService;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DatabaseConfig {
+
+    /**
+     * Hibernate's ddl-auto cannot create partitioned tables, so the partitioned listening_history
+     * table has to be in place before the entity manager factory updates the schema.
+     */
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor listeningHistoryPartitionsBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor(ListeningHistoryPartitionService.class);
+    }
+}
@@ -0,0 +1,240 @@
+package com.spotify.dashboard.config;
+
+import com.spotify.dashboard.exception.UpstreamThrottledException;
+import com.spotify.dashboard.util.OutboundGovernor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.io.CloseMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of a governed RestTemplate, on Apache HttpClient's async client: a
+ * call waiting for admission or for its response holds a socket at most, never a thread.
+ *
+ * It shares the RestTemplate's {@link OutboundGovernor}, so both count against one concurrency
+ * limit and one Retry-After pause, and behaves like {@link GovernedRequestInterceptor} and
+ * {@link OutboundRequestMetrics} combined. Failures are the exceptions RestTemplate throws
+ * ({@link HttpClientErrorException}, {@link HttpServerErrorException},
+ * {@link ResourceAccessException}) or {@link UpstreamThrottledException}, so the existing error
+ * handling applies unchanged. Futures complete on a small callback pool rather than the I/O
+ * threads, so callers' continuations cannot stall the event loop.
+ */
+public class GovernedAsyncClient implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GovernedAsyncClient.class);
+
+    private final String client;
+    private final CloseableHttpAsyncClient httpClient;
+    private final ExecutorService callbackExecutor;
+    private final OutboundGovernor governor;
+    private final long maxWaitNanos;
+    private final Duration maxRetryAfter;
+    private final int maxRetries;
+    private final MeterRegistry meterRegistry;
+    private final Counter throttledCounter;
+    private final Counter rejectedCounter;
+    private final Timer interactiveWait;
+    private final Timer backgroundWait;
+
+    GovernedAsyncClient(String client, CloseableHttpAsyncClient httpClient, ExecutorService callbackExecutor,
+                        OutboundGovernor governor, Duration maxWait, Duration maxRetryAfter, int maxRetries,
+                        MeterRegistry meterRegistry) {
+        this.client = client;
+        this.httpClient = httpClient;
+        this.callbackExecutor = callbackExecutor;
+        this.governor = governor;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxRetryAfter = maxRetryAfter;
+        this.maxRetries = maxRetries;
+        this.meterRegistry = meterRegistry;
+        // the same meters as the RestTemplate's interceptor, which also registers the governor gauges
+        this.throttledCounter = Counter.builder("outbound.governor.throttled")
+            .description("429 responses; each one pauses the client for its Retry-After")
+            .tag("client", client)
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("outbound.governor.rejected")
+            .description("Calls given up on because the governor could not admit them in time")
+            .tag("client", client)
+            .register(meterRegistry);
+        this.interactiveWait = waitTimer(OutboundGovernor.Priority.INTERACTIVE);
+        this.backgroundWait = waitTimer(OutboundGovernor.Priority.BACKGROUND);
+    }
+
+    private Timer waitTimer(OutboundGovernor.Priority priority) {
+        return Timer.builder("outbound.governor.wait")
+            .description("Time calls spent queued in the governor")
+            .tag("client", client)
+            .tag("priority", priority.name().toLowerCase())
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    /**
+     * Sends {@code request} once the governor admits it, retrying after a 429 like the blocking
+     * client does. The priority is explicit because continuations run off the request thread,
+     * where the interceptor's request-context check would always see background work.
+     */
+    public CompletableFuture<SimpleHttpResponse> execute(SimpleHttpRequest request, OutboundGovernor.Priority priority) {
+        URI uri;
+        try {
+            uri = request.getUri();
+        } catch (URISyntaxException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid request URI", e));
+        }
+        Header authorization = request.getFirstHeader(HttpHeaders.AUTHORIZATION);
+        String key = GovernedRequestInterceptor.fairnessKey(authorization != null ? authorization.getValue() : null);
+
+        long startNanos = System.nanoTime();
+        return exchange(request, uri, key, priority, 0)
+            .whenComplete((response, error) -> record(request, uri, response, System.nanoTime() - startNanos))
+            .thenApply(GovernedAsyncClient::checkStatus);
+    }
+
+    private CompletableFuture<SimpleHttpResponse> exchange(SimpleHttpRequest request, URI uri, String key,
+                                                           OutboundGovernor.Priority priority, int attempt) {
+        long waitStartNanos = System.nanoTime();
+        return governor.acquireAsync(key, priority, maxWaitNanos).thenCompose(permit -> {
+            (priority == OutboundGovernor.Priority.INTERACTIVE ? interactiveWait : backgroundWait)
+                .record(System.nanoTime() - waitStartNanos, TimeUnit.NANOSECONDS);
+            if (permit == null) {
+                rejectedCounter.increment();
+                long pauseNanos = governor.pauseRemainingNanos();
+                return CompletableFuture.failedFuture(new UpstreamThrottledException(client + " is saturated, call not admitted",
+                    pauseNanos > 0 ? Duration.ofNanos(pauseNanos) : GovernedRequestInterceptor.DEFAULT_RETRY_AFTER));
+            }
+
+            return send(request, uri).handle((response, error) -> {
+                if (error != null) {
+                    permit.release(OutboundGovernor.Outcome.OVERLOADED);
+                    return CompletableFuture.<SimpleHttpResponse>failedFuture(error);
+                }
+
+                int status = response.getCode();
+                if (status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                    permit.release(status >= 500 ? OutboundGovernor.Outcome.OVERLOADED
+                        : status >= 400 ? OutboundGovernor.Outcome.IGNORED
+                        : OutboundGovernor.Outcome.SUCCESS);
+                    return CompletableFuture.completedFuture(response);
+                }
+
+                Header retryAfterHeader = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+                Duration retryAfter = GovernedRequestInterceptor.retryAfter(
+                    retryAfterHeader != null ? retryAfterHeader.getValue() : null);
+                permit.throttled(retryAfter.toNanos());
+                throttledCounter.increment();
+                if (attempt >= maxRetries || retryAfter.compareTo(maxRetryAfter) > 0) {
+                    logger.warn("{} throttled {} {}, Retry-After {}s", client, request.getMethod(),
+                        uri.getPath(), retryAfter.toSeconds());
+                    rejectedCounter.increment();
+                    return CompletableFuture.<SimpleHttpResponse>failedFuture(
+                        new UpstreamThrottledException(client + " is rate limiting requests", retryAfter));
+                }
+                logger.debug("{} throttled {} {}, retrying after {} ms", client, request.getMethod(),
+                    uri.getPath(), retryAfter.toMillis());
+                // the governor holds the retry back until the pause is over
+                return exchange(request, uri, key, priority, attempt + 1);
+            }).thenCompose(Function.identity());
+        });
+    }
+
+    private CompletableFuture<SimpleHttpResponse> send(SimpleHttpRequest request, URI uri) {
+        CompletableFuture<SimpleHttpResponse> future = new CompletableFuture<>();
+        try {
+            httpClient.execute(request, new FutureCallback<>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    handOver(() -> future.complete(response));
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    IOException cause = e instanceof IOException io ? io : new IOException(e);
+                    handOver(() -> future.completeExceptionally(new ResourceAccessException(
+                        "I/O error on " + request.getMethod() + " request for \"" + uri + "\": " + e.getMessage(), cause)));
+                }
+
+                @Override
+                public void cancelled() {
+                    handOver(() -> future.cancel(false));
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. the client is already shut down
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void handOver(Runnable completion) {
+        try {
+            callbackExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            // shutting down, nobody is left to wait on the I/O thread
+            completion.run();
+        }
+    }
+
+    private void record(SimpleHttpRequest request, URI uri, SimpleHttpResponse response, long elapsedNanos) {
+        String status = "IO_ERROR";
+        String outcome = "UNKNOWN";
+        if (response != null) {
+            status = Integer.toString(response.getCode());
+            HttpStatus.Series series = HttpStatus.Series.resolve(response.getCode());
+            outcome = series != null ? series.name() : "UNKNOWN";
+        }
+        OutboundRequestMetrics.record(meterRegistry, client, request.getMethod(), uri, status, outcome, elapsedNanos);
+    }
+
+    // what RestTemplate's default error handler would throw for the same response
+    private static SimpleHttpResponse checkStatus(SimpleHttpResponse response) {
+        int code = response.getCode();
+        if (code < 400) {
+            return response;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        for (Header header : response.getHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+        byte[] body = response.getBodyBytes() != null ? response.getBodyBytes() : new byte[0];
+        String statusText = response.getReasonPhrase() != null ? response.getReasonPhrase() : "";
+        HttpStatusCode statusCode = HttpStatusCode.valueOf(code);
+        if (statusCode.is4xxClientError()) {
+            throw HttpClientErrorException.create(statusCode, statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        if (statusCode.is5xxServerError()) {
+            throw HttpServerErrorException.create(statusCode, statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        throw new UnknownHttpStatusCodeException(code, statusText, headers, body, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+        callbackExecutor.shutdown();
+    }
+}
@@ -0,0 +1,188 @@
+package com.spotify.dashboard.config;
+
+import com.spotify.dashboard.exception.UpstreamThrottledException;
+import com.spotify.dashboard.util.OutboundGovernor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends every call of one Spotify client through its {@link OutboundGovernor}.
+ *
+ * Calls made while serving a dashboard request are interactive, everything else (schedulers,
+ * async jobs) is background. Calls queue per access token, i.e. per user. A 429 pauses the whole
+ * client for its Retry-After; the call is retried once the pause is over if that is soon enough,
+ * otherwise the caller gets an {@link UpstreamThrottledException} instead of waiting.
+ */
+class GovernedRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GovernedRequestInterceptor.class);
+
+    // Spotify always sends Retry-After, this only covers a proxy answering for it
+    static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final String client;
+    private final OutboundGovernor governor;
+    private final long maxWaitNanos;
+    private final Duration maxRetryAfter;
+    private final int maxRetries;
+    private final Counter throttledCounter;
+    private final Counter rejectedCounter;
+    private final Timer interactiveWait;
+    private final Timer backgroundWait;
+
+    GovernedRequestInterceptor(String client, OutboundGovernor governor, Duration maxWait,
+                               Duration maxRetryAfter, int maxRetries, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.governor = governor;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxRetryAfter = maxRetryAfter;
+        this.maxRetries = maxRetries;
+        this.throttledCounter = Counter.builder("outbound.governor.throttled")
+            .description("429 responses; each one pauses the client for its Retry-After")
+            .tag("client", client)
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("outbound.governor.rejected")
+            .description("Calls given up on because the governor could not admit them in time")
+            .tag("client", client)
+            .register(meterRegistry);
+        this.interactiveWait = waitTimer(OutboundGovernor.Priority.INTERACTIVE, meterRegistry);
+        this.backgroundWait = waitTimer(OutboundGovernor.Priority.BACKGROUND, meterRegistry);
+        Gauge.builder("outbound.governor.limit", governor, OutboundGovernor::currentLimit)
+            .description("Current adaptive concurrency limit")
+            .tag("client", client)
+            .register(meterRegistry);
+        Gauge.builder("outbound.governor.in_flight", governor, OutboundGovernor::inFlight)
+            .tag("client", client)
+            .register(meterRegistry);
+        for (OutboundGovernor.Priority priority : OutboundGovernor.Priority.values()) {
+            Gauge.builder("outbound.governor.queued", governor, g -> g.queued(priority))
+                .tag("client", client)
+                .tag("priority", priority.name().toLowerCase())
+                .register(meterRegistry);
+        }
+        Gauge.builder("outbound.governor.paused.seconds", governor, g -> g.pauseRemainingNanos() / 1e9)
+            .description("Time left before a Retry-After pause ends")
+            .tag("client", client)
+            .register(meterRegistry);
+    }
+
+    private Timer waitTimer(OutboundGovernor.Priority priority, MeterRegistry meterRegistry) {
+        return Timer.builder("outbound.governor.wait")
+            .description("Time calls spent queued in the governor")
+            .tag("client", client)
+            .tag("priority", priority.name().toLowerCase())
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String key = fairnessKey(request);
+        OutboundGovernor.Priority priority = RequestContextHolder.getRequestAttributes() != null
+            ? OutboundGovernor.Priority.INTERACTIVE
+            : OutboundGovernor.Priority.BACKGROUND;
+
+        for (int attempt = 0; ; attempt++) {
+            OutboundGovernor.Permit permit = acquire(key, priority);
+            ClientHttpResponse response;
+            try {
+                response = execution.execute(request, body);
+            } catch (IOException | RuntimeException e) {
+                permit.release(OutboundGovernor.Outcome.OVERLOADED);
+                throw e;
+            }
+
+            int status = response.getStatusCode().value();
+            if (status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                permit.release(status >= 500 ? OutboundGovernor.Outcome.OVERLOADED
+                    : status >= 400 ? OutboundGovernor.Outcome.IGNORED
+                    : OutboundGovernor.Outcome.SUCCESS);
+                return response;
+            }
+
+            Duration retryAfter = retryAfter(response.getHeaders());
+            permit.throttled(retryAfter.toNanos());
+            throttledCounter.increment();
+            response.close();
+            if (attempt >= maxRetries || retryAfter.compareTo(maxRetryAfter) > 0) {
+                logger.warn("{} throttled {} {}, Retry-After {}s", client, request.getMethod(),
+                    request.getURI().getPath(), retryAfter.toSeconds());
+                rejectedCounter.increment();
+                throw new UpstreamThrottledException(client + " is rate limiting requests", retryAfter);
+            }
+            logger.debug("{} throttled {} {}, retrying after {} ms", client, request.getMethod(),
+                request.getURI().getPath(), retryAfter.toMillis());
+        }
+    }
+
+    private OutboundGovernor.Permit acquire(String key, OutboundGovernor.Priority priority) throws IOException {
+        long startNanos = System.nanoTime();
+        OutboundGovernor.Permit permit;
+        try {
+            permit = governor.acquire(key, priority, maxWaitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to call " + client);
+        }
+        (priority == OutboundGovernor.Priority.INTERACTIVE ? interactiveWait : backgroundWait)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (permit == null) {
+            rejectedCounter.increment();
+            long pauseNanos = governor.pauseRemainingNanos();
+            throw new UpstreamThrottledException(client + " is saturated, call not admitted",
+                pauseNanos > 0 ? Duration.ofNanos(pauseNanos) : DEFAULT_RETRY_AFTER);
+        }
+        return permit;
+    }
+
+    // one queue per access token, which is one per user; the token itself is never kept
+    static String fairnessKey(HttpRequest request) {
+        return fairnessKey(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    static String fairnessKey(String authorization) {
+        return authorization != null ? Integer.toHexString(authorization.hashCode()) : "anonymous";
+    }
+
+    static Duration retryAfter(HttpHeaders headers) {
+        return retryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    static Duration retryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT_RETRY_AFTER;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            // the HTTP-date form
+            try {
+                Duration untilDate = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return untilDate.isNegative() ? Duration.ZERO : untilDate;
+            } catch (DateTimeParseException ignored) {
+                return DEFAULT_RETRY_AFTER;
+            }
+        }
+    }
+}
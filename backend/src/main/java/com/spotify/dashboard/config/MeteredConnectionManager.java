@@ -0,0 +1,62 @@
+package com.spotify.dashboard.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.Timeout;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Connection manager that records how long callers wait to lease a pooled connection.
+ * Pool sizes and utilisation are exported separately by Micrometer's connection manager binder.
+ */
+class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final Timer leaseTimer;
+    private final Timer leaseTimeoutTimer;
+
+    MeteredConnectionManager(String name, MeterRegistry meterRegistry) {
+        this.leaseTimer = leaseTimer(name, "acquired", meterRegistry);
+        this.leaseTimeoutTimer = leaseTimer(name, "timeout", meterRegistry);
+    }
+
+    private static Timer leaseTimer(String name, String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("httpcomponents.httpclient.pool.lease")
+            .description("Time spent waiting for a connection from the pool")
+            .tag("httpclient", name)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        LeaseRequest delegate = super.lease(id, route, requestTimeout, state);
+        return new LeaseRequest() {
+
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                long start = System.nanoTime();
+                try {
+                    ConnectionEndpoint endpoint = delegate.get(timeout);
+                    leaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    return endpoint;
+                } catch (TimeoutException e) {
+                    leaseTimeoutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    throw e;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return delegate.cancel();
+            }
+        };
+    }
+}
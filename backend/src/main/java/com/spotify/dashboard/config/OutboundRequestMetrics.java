@@ -0,0 +1,87 @@
+package com.spotify.dashboard.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call made through one of the outbound RestTemplates as {@code outbound.requests},
+ * tagged by client, endpoint and response status. URLs are collapsed to a path template: query
+ * strings go and ids become {@code {id}}, so the tag stays bounded however many tracks, users
+ * and playlists pass through.
+ */
+class OutboundRequestMetrics implements ClientHttpRequestInterceptor {
+
+    // path segments that are followed by an id
+    private static final Set<String> ID_COLLECTIONS = Set.of("users", "playlists", "track", "tracks", "artists", "albums");
+
+    private final String client;
+    private final MeterRegistry meterRegistry;
+
+    OutboundRequestMetrics(String client, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        long startNanos = System.nanoTime();
+        String status = "IO_ERROR";
+        String outcome = "UNKNOWN";
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            int code = response.getStatusCode().value();
+            status = Integer.toString(code);
+            HttpStatus.Series series = HttpStatus.Series.resolve(code);
+            outcome = series != null ? series.name() : "UNKNOWN";
+            return response;
+        } finally {
+            record(meterRegistry, client, request.getMethod().name(), request.getURI(), status, outcome,
+                System.nanoTime() - startNanos);
+        }
+    }
+
+    /** Records one call; also used by {@link GovernedAsyncClient}, which has no interceptor chain. */
+    static void record(MeterRegistry meterRegistry, String client, String method, URI uri,
+                       String status, String outcome, long elapsedNanos) {
+        Timer.builder("outbound.requests")
+            .description("Outbound HTTP calls to Spotify and ReccoBeats")
+            .tag("client", client)
+            .tag("method", method)
+            .tag("endpoint", endpoint(uri))
+            .tag("status", status)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    static String endpoint(URI uri) {
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder endpoint = new StringBuilder();
+        boolean idExpected = false;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            boolean version = segment.matches("v\\d+");
+            boolean id = idExpected || (!version && segment.chars().anyMatch(Character::isDigit));
+            endpoint.append('/').append(id ? "{id}" : segment);
+            idExpected = !id && ID_COLLECTIONS.contains(segment);
+        }
+        return endpoint.length() > 0 ? endpoint.toString() : "/";
+    }
+}
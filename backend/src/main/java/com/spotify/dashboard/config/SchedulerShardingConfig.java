@@ -0,0 +1,53 @@
+package com.spotify.dashboard.config;
+
+import com.spotify.dashboard.cluster.ShardCoordinator;
+import com.spotify.dashboard.cluster.ShardLeaseStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Scheduler sharding across replicas. Settings live under {@code scheduler.sharding} in
+ * application.yml; the lease ttl must comfortably exceed the heartbeat interval.
+ */
+@Configuration
+public class SchedulerShardingConfig {
+
+    @Bean
+    public ShardCoordinator shardCoordinator(ShardLeaseStore shardLeaseStore,
+                                             @Value("${scheduler.sharding.node-id:}") String nodeId,
+                                             @Value("${scheduler.sharding.shards:1024}") int shards,
+                                             @Value("${scheduler.sharding.virtual-nodes:128}") int virtualNodes,
+                                             @Value("${scheduler.sharding.lease-ttl-ms:30000}") long leaseTtlMs,
+                                             MeterRegistry meterRegistry) {
+        ShardCoordinator coordinator = new ShardCoordinator(shardLeaseStore,
+            nodeId.isBlank() ? defaultNodeId() : nodeId, shards, virtualNodes,
+            Duration.ofMillis(leaseTtlMs), System::nanoTime);
+
+        Gauge.builder("scheduler.sharding.shards.owned", coordinator, ShardCoordinator::ownedShardCount)
+            .description("User shards this node currently holds leases for")
+            .register(meterRegistry);
+        Gauge.builder("scheduler.sharding.nodes.live", coordinator, ShardCoordinator::liveNodeCount)
+            .description("Backend nodes taking part in scheduler sharding")
+            .register(meterRegistry);
+        return coordinator;
+    }
+
+    // the pod or container hostname plus a random suffix, so a restarted node never reuses a stale lease
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "backend";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
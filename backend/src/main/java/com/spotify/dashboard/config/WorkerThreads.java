@@ -0,0 +1,47 @@
+package com.spotify.dashboard.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories for the executors components own, following {@code spring.threads.virtual.enabled}.
+ *
+ * With virtual threads on (Java 21+), Spring Boot already runs Tomcat requests and
+ * {@code @Scheduled} jobs on virtual threads; this makes the poll and ReccoBeats workers virtual
+ * too, so a worker blocked on Spotify, ReccoBeats or the database no longer holds a platform
+ * thread. Their pools keep a fixed size, which is what bounds concurrency against each upstream.
+ */
+@Component
+public class WorkerThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerThreads.class);
+
+    private final boolean virtual;
+
+    public WorkerThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+        if (virtual) {
+            logger.info("Virtual threads enabled for requests, scheduled jobs and workers");
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; using platform threads",
+                Runtime.version().feature());
+        }
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public ThreadFactory newFactory(String threadNamePrefix) {
+        return virtual
+            ? new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory()
+            : new CustomizableThreadFactory(threadNamePrefix);
+    }
+}
@@ -1,13 +1,17 @@
 package com.spotify.dashboard.controller;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -16,6 +20,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.view.RedirectView;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
@@ -23,9 +28,16 @@ import org.springframework.web.client.RestTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.dto.SpotifyPage;
+import com.spotify.dashboard.dto.SpotifyTrack;
+import com.spotify.dashboard.service.AsyncSpotifyApiService;
 import com.spotify.dashboard.service.SpotifyApiService;
 import com.spotify.dashboard.service.UserService;
 import com.spotify.dashboard.service.AudioFeaturesService;
+import com.spotify.dashboard.service.GenreAnalyticsService;
+import com.spotify.dashboard.service.ListeningHistoryExportService;
+import com.spotify.dashboard.service.ListeningRollupService;
 import com.spotify.dashboard.util.TokenUtil;
 import com.spotify.dashboard.util.SpotifyAuthUtil;
 
@@ -60,23 +72,35 @@ public class SpotifyController {
     private String frontendUrl;
 
     private final SpotifyApiService spotifyApiService;
+    private final AsyncSpotifyApiService asyncSpotifyApiService;
     private final UserService userService;
     private final com.spotify.dashboard.service.ListeningHistoryService listeningHistoryService;
     private final AudioFeaturesService audioFeaturesService;
+    private final ListeningRollupService listeningRollupService;
+    private final GenreAnalyticsService genreAnalyticsService;
+    private final ListeningHistoryExportService listeningHistoryExportService;
     private final TokenUtil tokenUtil;
     private final SpotifyAuthUtil spotifyAuthUtil;
 
     public SpotifyController(SpotifyApiService spotifyApiService, 
+                           AsyncSpotifyApiService asyncSpotifyApiService,
                            UserService userService,
                            com.spotify.dashboard.service.ListeningHistoryService listeningHistoryService,
                            AudioFeaturesService audioFeaturesService,
-                           RestTemplate restTemplate,
+                           ListeningRollupService listeningRollupService,
+                           GenreAnalyticsService genreAnalyticsService,
+                           ListeningHistoryExportService listeningHistoryExportService,
+                           @Qualifier(AppConfig.SPOTIFY_ACCOUNTS) RestTemplate restTemplate,
                            TokenUtil tokenUtil,
                            SpotifyAuthUtil spotifyAuthUtil) {
         this.spotifyApiService = spotifyApiService;
+        this.asyncSpotifyApiService = asyncSpotifyApiService;
         this.userService = userService;
         this.listeningHistoryService = listeningHistoryService;
         this.audioFeaturesService = audioFeaturesService;
+        this.listeningRollupService = listeningRollupService;
+        this.genreAnalyticsService = genreAnalyticsService;
+        this.listeningHistoryExportService = listeningHistoryExportService;
         this.restTemplate = restTemplate;
         this.tokenUtil = tokenUtil;
         this.spotifyAuthUtil = spotifyAuthUtil;
@@ -120,47 +144,50 @@ public class SpotifyController {
         return ResponseEntity.ok(result);
     }
 
+    // four dependent Spotify calls: composed on the non-blocking client so the request thread is
+    // released straight away, with the user id and top tracks fetched side by side
     @PostMapping("/playlists/generate")
-    public ResponseEntity<Map<String, Object>> generatePlaylist( 
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> generatePlaylist( 
         @RequestHeader("Authorization") String authHeader,
         @Valid @RequestBody PlaylistGenerationRequest request) {
         String accessToken = tokenUtil.extractAccessToken(authHeader);
-        String userId = spotifyApiService.getUserId(accessToken);
-
-        Map<String, Object> tracksResponse = spotifyApiService.getTopTracks(accessToken, request.time_range, DEFAULT_TOP_ITEMS_LIMIT);
-        @SuppressWarnings("unchecked")
-        var tracks = (List<Map<String, Object>>) tracksResponse.get("items");
-
-        if (tracks == null || tracks.isEmpty()) {
-            return ResponseEntity.ok(Map.of(
-                "message", "No tracks found for the selected time period",
-                "name", request.name
-            ));
-        }
-
-        Map<String, Object> playlistData = Map.of(
-            "name", request.name, 
-            "description", request.description, 
-            "public", request.public_playlist 
-        );
-
-        Map<String, Object> playlist = spotifyApiService.createPlaylist(accessToken, userId, playlistData);
-        String playlistId = (String) playlist.get("id");
-
-        var tracksUri = tracks.stream()
-            .map(track -> (String) track.get("uri"))
-            .toList();
-
-        Map<String, Object> tracksData = Map.of("uris", tracksUri);
-        spotifyApiService.addTracksToPlaylist(accessToken, playlistId, tracksData);
+        CompletableFuture<String> userId = asyncSpotifyApiService.getUserId(accessToken);
+        CompletableFuture<List<SpotifyTrack>> topTracks = asyncSpotifyApiService
+            .getTopTrackPage(accessToken, request.time_range, DEFAULT_TOP_ITEMS_LIMIT)
+            .thenApply(SpotifyPage::items);
+
+        return userId.thenCombine(topTracks, (id, tracks) -> Map.entry(id, tracks)).thenCompose(inputs -> {
+            List<SpotifyTrack> tracks = inputs.getValue();
+            if (tracks.isEmpty()) {
+                return CompletableFuture.completedFuture(ResponseEntity.ok(Map.<String, Object>of(
+                    "message", "No tracks found for the selected time period",
+                    "name", request.name
+                )));
+            }
 
-        return ResponseEntity.ok(Map.of( 
-            "id", playlistId, 
-            "name", playlist.get("name"), 
-            "description", playlist.get("description"), 
-            "tracks_added", tracksUri.size(), 
-            "external_urls", playlist.get("external_urls")
-        ));
+            Map<String, Object> playlistData = Map.of(
+                "name", request.name, 
+                "description", request.description, 
+                "public", request.public_playlist 
+            );
+
+            var tracksUri = tracks.stream()
+                .map(SpotifyTrack::uri)
+                .toList();
+
+            return asyncSpotifyApiService.createPlaylist(accessToken, inputs.getKey(), playlistData).thenCompose(playlist -> {
+                String playlistId = (String) playlist.get("id");
+                Map<String, Object> tracksData = Map.of("uris", tracksUri);
+                return asyncSpotifyApiService.addTracksToPlaylist(accessToken, playlistId, tracksData)
+                    .thenApply(added -> ResponseEntity.ok(Map.<String, Object>of( 
+                        "id", playlistId, 
+                        "name", playlist.get("name"), 
+                        "description", playlist.get("description"), 
+                        "tracks_added", tracksUri.size(), 
+                        "external_urls", playlist.get("external_urls")
+                    )));
+            });
+        });
     }
 
     @GetMapping("/analytics/genres")
@@ -171,47 +198,90 @@ public class SpotifyController {
         String time_range) {
         String accessToken = tokenUtil.extractAccessToken(authHeader);
 
-        Map<String, Object> artistsResponse = spotifyApiService.getTopArtists(accessToken, time_range, DEFAULT_TOP_ITEMS_LIMIT);
-        @SuppressWarnings("unchecked")
-        var artists = (List<Map<String, Object>>) artistsResponse.get("items");
+        return ResponseEntity.ok(Map.of("items", genreAnalyticsService.getGenreDistribution(accessToken, time_range)));
+    }
 
-        if (artists == null || artists.isEmpty()) {
-            return ResponseEntity.ok(Map.of("items", List.of()));
+    @GetMapping("/analytics/genres/all")
+    public ResponseEntity<Map<String, Object>> getGenreAnalyticsForAllRanges(
+        @RequestHeader("Authorization") String authHeader) {
+        String accessToken = tokenUtil.extractAccessToken(authHeader);
+        return ResponseEntity.ok(genreAnalyticsService.getAllRanges(accessToken));
+    }
+
+    @PostMapping("/listening-history/poll")
+    public ResponseEntity<Map<String, Object>> pollListeningHistory(
+            @RequestHeader("Authorization") String authHeader) {
+        String accessToken = tokenUtil.extractAccessToken(authHeader);
+        String userId = spotifyApiService.getUserId(accessToken);
+        int newPlays = listeningHistoryService.pollRecentlyPlayed(userId, accessToken).newPlays();
+        return ResponseEntity.ok(Map.of("message", "Listening history updated", "newPlays", newPlays));
+    }
+
+    @GetMapping("/listening-history/export")
+    public ResponseEntity<StreamingResponseBody> exportListeningHistory(
+            @RequestHeader("Authorization") String authHeader,
+            @RequestParam(defaultValue = "ndjson")
+            @Pattern(regexp = "^(ndjson|csv)$", message = "Invalid export format")
+            String format) {
+        String accessToken = tokenUtil.extractAccessToken(authHeader);
+        String userId = spotifyApiService.getUserId(accessToken);
+        ListeningHistoryExportService.Format exportFormat =
+            ListeningHistoryExportService.Format.valueOf(format.toUpperCase());
+
+        // claimed here so a refusal is still an ordinary 429 rather than a broken download
+        ListeningHistoryExportService.Export export = listeningHistoryExportService.reserve(userId, exportFormat);
+        StreamingResponseBody body = export::writeTo;
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"listening-history." + exportFormat.getFileExtension() + "\"")
+            .body(body);
+    }
+
+    @GetMapping("/analytics/heatmap")
+    public ResponseEntity<Map<String, Object>> getListeningHeatmap(
+        @RequestHeader("Authorization") String authHeader) {
+        String accessToken = tokenUtil.extractAccessToken(authHeader);
+        String userId = spotifyApiService.getUserId(accessToken);
+
+        long[] hourlyCounts = listeningRollupService.getHourlyPlayCounts(userId);
+        var hours = new ArrayList<Map<String, Object>>(hourlyCounts.length);
+        for (int hour = 0; hour < hourlyCounts.length; hour++) {
+            hours.add(Map.<String, Object>of("hour", hour, "count", hourlyCounts[hour]));
         }
+        return ResponseEntity.ok(Map.of("timezone", "UTC", "items", hours));
+    }
 
-        var genreCount = new HashMap<String, Integer>();
-        artists.forEach(artist -> {
-            @SuppressWarnings("unchecked")
-            var genres = (List<String>) artist.get("genres");
-            if (genres != null) {
-                genres.forEach(genre -> genreCount.merge(genre, 1, Integer::sum));
-            }
-        });
+    @GetMapping("/analytics/daily-activity")
+    public ResponseEntity<Map<String, Object>> getDailyActivity(
+        @RequestHeader("Authorization") String authHeader,
+        @RequestParam(defaultValue = "30")
+        @Min(value = 1, message = "Days must be at least 1")
+        @Max(value = 365, message = "Days can't exceed 365")
+        int days) {
+        String accessToken = tokenUtil.extractAccessToken(authHeader);
+        String userId = spotifyApiService.getUserId(accessToken);
 
-        var genreList = genreCount.entrySet().stream()
-            .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
-            .limit(10)
-            .map(entry -> {
-                int count = entry.getValue();
-                double percentage = (count * 100.0) / artists.size();
-                return Map.of(
-                    "name", entry.getKey(), 
-                    "count", count, 
-                    "percentage", Math.round(percentage * 100.0) / 100.0
-                );
-            }) 
+        var items = listeningRollupService.getDailyPlayCounts(userId, days).entrySet().stream()
+            .map(entry -> Map.<String, Object>of("date", entry.getKey().toString(), "count", entry.getValue()))
             .toList();
-
-        return ResponseEntity.ok(Map.of("items", genreList));
+        return ResponseEntity.ok(Map.of("timezone", "UTC", "items", items));
     }
 
-    @PostMapping("/listening-history/poll")
-    public ResponseEntity<Map<String, Object>> pollListeningHistory(
-            @RequestHeader("Authorization") String authHeader) {
+    @GetMapping("/analytics/artist-plays")
+    public ResponseEntity<Map<String, Object>> getArtistPlays(
+        @RequestHeader("Authorization") String authHeader,
+        @RequestParam(defaultValue = "10")
+        @Min(value = 1, message = "Limit must be at least 1")
+        @Max(value = 50, message = "Limit can't exceed 50")
+        int limit) {
         String accessToken = tokenUtil.extractAccessToken(authHeader);
         String userId = spotifyApiService.getUserId(accessToken);
-        listeningHistoryService.pollRecentlyPlayed(userId, accessToken);
-        return ResponseEntity.ok(Map.of("message", "Listening history updated"));
+
+        var items = listeningRollupService.getTopArtistsByPlays(userId, limit).stream()
+            .map(row -> Map.<String, Object>of("name", row.getArtistName(), "count", row.getPlayCount()))
+            .toList();
+        return ResponseEntity.ok(Map.of("items", items));
     }
 
     @GetMapping("/auth/callback")
@@ -315,7 +385,7 @@ public class SpotifyController {
 
         @SuppressWarnings("unchecked")
         ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-            SpotifyAuthUtil.SPOTIFY_TOKEN_URL, 
+            spotifyAuthUtil.getTokenUrl(), 
             HttpMethod.POST,
             entity,
             (Class<Map<String, Object>>) (Class<?>) Map.class
@@ -362,14 +432,7 @@ public class SpotifyController {
         @Pattern(regexp = TIME_RANGE_PATTERN, message = TIME_RANGE_ERROR)
         String timeRange) {
         String accessToken = tokenUtil.extractAccessToken(authHeader);
-
-        long startTime = System.currentTimeMillis();
         Map<String, Object> insights = audioFeaturesService.getAudioInsightsFromTopTracks(accessToken, timeRange);
-        long durationMs = System.currentTimeMillis() - startTime;
-
-        logger.info("Computed audio insights from top tracks in {} ms (timeRange={}, tokenHash={})",
-            durationMs, timeRange, accessToken.hashCode());
-
         return ResponseEntity.ok(insights);
     }
     
@@ -0,0 +1,9 @@
+package com.spotify.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/** The audio features we keep from a ReccoBeats response; missing values stay null. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ReccoBeatsAudioFeatures(Float acousticness, Float danceability, Float energy,
+                                      Float valence, Float tempo) {
+}
@@ -0,0 +1,28 @@
+package com.spotify.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/** A ReccoBeats track; {@code href} is the Spotify URL the track was resolved from. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ReccoBeatsTrack(String id, String href) {
+
+    private static final String SPOTIFY_TRACK_PATH = "/track/";
+
+    /** Extracts the Spotify track id from {@code href}, or null when it is not a track URL. */
+    public String spotifyId() {
+        if (href != null && href.contains(SPOTIFY_TRACK_PATH)) {
+            return href.substring(href.lastIndexOf('/') + 1);
+        }
+        return null;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Page(List<ReccoBeatsTrack> content) {
+
+        public List<ReccoBeatsTrack> content() {
+            return content != null ? content : List.of();
+        }
+    }
+}
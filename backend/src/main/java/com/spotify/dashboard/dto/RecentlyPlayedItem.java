@@ -0,0 +1,9 @@
+package com.spotify.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** One entry of {@code /me/player/recently-played}; the playback context is skipped. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record RecentlyPlayedItem(@JsonProperty("played_at") String playedAt, SpotifyTrack track) {
+}
@@ -0,0 +1,15 @@
+package com.spotify.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+import java.util.List;
+
+/** A Spotify artist; {@code genres} is only present on full artist objects such as top artists. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SpotifyArtist(String id, String name, List<String> genres) implements Serializable {
+
+    public List<String> genres() {
+        return genres != null ? genres : List.of();
+    }
+}
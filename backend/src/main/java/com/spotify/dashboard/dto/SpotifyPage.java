@@ -0,0 +1,18 @@
+package com.spotify.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The {@code items} array of a Spotify paging object. Paging metadata is skipped while parsing;
+ * Jackson skips unknown properties token by token, so unused subtrees are never materialised.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SpotifyPage<T>(List<T> items) implements Serializable {
+
+    public List<T> items() {
+        return items != null ? items : List.of();
+    }
+}
@@ -0,0 +1,15 @@
+package com.spotify.dashboard.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.io.Serializable;
+import java.util.List;
+
+/** The fields of a Spotify track object we read; album, markets and images are skipped. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SpotifyTrack(String id, String name, String uri, List<SpotifyArtist> artists) implements Serializable {
+
+    public String primaryArtistName() {
+        return artists == null || artists.isEmpty() ? "Unknown" : artists.get(0).name();
+    }
+}
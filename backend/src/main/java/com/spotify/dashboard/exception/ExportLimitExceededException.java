@@ -0,0 +1,12 @@
+package com.spotify.dashboard.exception;
+
+/**
+ * Every listening history export slot is taken. Each export holds a database connection for the
+ * whole download, so further exports are turned away instead of queued.
+ */
+public class ExportLimitExceededException extends RuntimeException {
+
+    public ExportLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,7 @@ package com.spotify.dashboard.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -61,6 +62,32 @@ public class GlobalExceptionHandler {
             : "External API error";
     }
 
+    @ExceptionHandler(UpstreamThrottledException.class)
+    public ResponseEntity<ErrorResponse> handleUpstreamThrottled(UpstreamThrottledException e) {
+        logger.warn("Upstream throttled: {}", e.getMessage());
+        // round up so clients never come back before the upstream is ready
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+            .body(new ErrorResponse("RATE_LIMITED", "Spotify is rate limiting requests, try again in " + retryAfterSeconds + "s"));
+    }
+
+    @ExceptionHandler(ExportLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleExportLimitExceeded(ExportLimitExceededException e) {
+        logger.warn("Export refused: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .body(new ErrorResponse("TOO_MANY_EXPORTS", "Too many exports are running, try again shortly"));
+    }
+
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleUpstreamUnavailable(UpstreamUnavailableException e) {
+        logger.warn("Upstream unavailable: {}", e.getMessage());
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+            .body(new ErrorResponse("SERVICE_UNAVAILABLE", e.getMessage()));
+    }
+
     @ExceptionHandler(RestClientException.class)
     public ResponseEntity<ErrorResponse> handleRestClientError(RestClientException e) {
         logger.error("Rest client error: {}", e.getMessage(), e);
@@ -0,0 +1,21 @@
+package com.spotify.dashboard.exception;
+
+import java.time.Duration;
+
+/**
+ * An upstream is rate limiting us and the call was not made, or was given up on, because the
+ * wait would have been too long. {@code retryAfter} is when it is worth trying again.
+ */
+public class UpstreamThrottledException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public UpstreamThrottledException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
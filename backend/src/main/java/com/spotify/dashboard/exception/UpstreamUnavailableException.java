@@ -0,0 +1,22 @@
+package com.spotify.dashboard.exception;
+
+import java.time.Duration;
+
+/**
+ * A call to an upstream was refused without being made, because its circuit breaker is open
+ * or too many calls to it are already waiting. {@code retryAfter} is when it may be worth trying
+ * again.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public UpstreamUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,54 @@
+package com.spotify.dashboard.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+@Entity
+@Table(name = "listening_artist_rollup", indexes = {
+    @Index(name = "idx_artist_rollup_user_count", columnList = "user_id,play_count")
+})
+@IdClass(ArtistListeningRollup.Key.class)
+public class ArtistListeningRollup {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Id
+    @Column(name = "artist_name", nullable = false)
+    private String artistName;
+
+    @Column(name = "play_count", nullable = false)
+    private long playCount;
+
+    public ArtistListeningRollup() {}
+
+    public String getUserId() { return userId; }
+    public String getArtistName() { return artistName; }
+    public long getPlayCount() { return playCount; }
+
+    public static class Key implements Serializable {
+        private String userId;
+        private String artistName;
+
+        public Key() {}
+
+        public Key(String userId, String artistName) {
+            this.userId = userId;
+            this.artistName = artistName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(userId, key.userId) && Objects.equals(artistName, key.artistName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, artistName);
+        }
+    }
+}
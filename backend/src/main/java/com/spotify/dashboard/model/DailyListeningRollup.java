@@ -0,0 +1,54 @@
+package com.spotify.dashboard.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Entity
+@Table(name = "listening_daily_rollup")
+@IdClass(DailyListeningRollup.Key.class)
+public class DailyListeningRollup {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    // UTC calendar day the plays started on
+    @Id
+    @Column(name = "play_date", nullable = false)
+    private LocalDate playDate;
+
+    @Column(name = "play_count", nullable = false)
+    private long playCount;
+
+    public DailyListeningRollup() {}
+
+    public String getUserId() { return userId; }
+    public LocalDate getPlayDate() { return playDate; }
+    public long getPlayCount() { return playCount; }
+
+    public static class Key implements Serializable {
+        private String userId;
+        private LocalDate playDate;
+
+        public Key() {}
+
+        public Key(String userId, LocalDate playDate) {
+            this.userId = userId;
+            this.playDate = playDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(userId, key.userId) && Objects.equals(playDate, key.playDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, playDate);
+        }
+    }
+}
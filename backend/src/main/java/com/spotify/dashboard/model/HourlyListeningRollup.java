@@ -0,0 +1,53 @@
+package com.spotify.dashboard.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+@Entity
+@Table(name = "listening_hourly_rollup")
+@IdClass(HourlyListeningRollup.Key.class)
+public class HourlyListeningRollup {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    // hour of day (0-23, UTC) the plays started in
+    @Id
+    @Column(name = "hour_of_day", nullable = false)
+    private int hourOfDay;
+
+    @Column(name = "play_count", nullable = false)
+    private long playCount;
+
+    public HourlyListeningRollup() {}
+
+    public String getUserId() { return userId; }
+    public int getHourOfDay() { return hourOfDay; }
+    public long getPlayCount() { return playCount; }
+
+    public static class Key implements Serializable {
+        private String userId;
+        private int hourOfDay;
+
+        public Key() {}
+
+        public Key(String userId, int hourOfDay) {
+            this.userId = userId;
+            this.hourOfDay = hourOfDay;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return hourOfDay == key.hourOfDay && Objects.equals(userId, key.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, hourOfDay);
+        }
+    }
+}
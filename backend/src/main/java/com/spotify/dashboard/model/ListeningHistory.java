@@ -4,8 +4,8 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "listening_history", indexes = {
-    @Index(name = "idx_user_played_at", columnList = "user_id,played_at")
+@Table(name = "listening_history", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_listening_history_play", columnNames = {"user_id", "played_at", "track_id"})
 })
 public class ListeningHistory {
 
@@ -0,0 +1,22 @@
+package com.spotify.dashboard.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// a requested full rollup rebuild that has run; see ListeningRollupService
+@Entity
+@Table(name = "listening_rollup_rebuild")
+public class ListeningRollupRebuild {
+
+    @Id
+    @Column(name = "rebuild_id", nullable = false)
+    private String rebuildId;
+
+    @Column(name = "rebuilt_at", nullable = false)
+    private LocalDateTime rebuiltAt;
+
+    public ListeningRollupRebuild() {}
+
+    public String getRebuildId() { return rebuildId; }
+    public LocalDateTime getRebuiltAt() { return rebuiltAt; }
+}
@@ -0,0 +1,22 @@
+package com.spotify.dashboard.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// a backend replica taking part in scheduler sharding; live while expires_at is in the future
+@Entity
+@Table(name = "scheduler_node")
+public class SchedulerNode {
+
+    @Id
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public SchedulerNode() {}
+
+    public String getNodeId() { return nodeId; }
+    public Instant getExpiresAt() { return expiresAt; }
+}
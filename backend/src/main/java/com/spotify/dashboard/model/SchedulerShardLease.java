@@ -0,0 +1,26 @@
+package com.spotify.dashboard.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+// the node allowed to run scheduled work for one user shard until expires_at
+@Entity
+@Table(name = "scheduler_shard_lease")
+public class SchedulerShardLease {
+
+    @Id
+    @Column(name = "shard", nullable = false)
+    private int shard;
+
+    @Column(name = "owner", nullable = false)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public SchedulerShardLease() {}
+
+    public int getShard() { return shard; }
+    public String getOwner() { return owner; }
+    public Instant getExpiresAt() { return expiresAt; }
+}
@@ -0,0 +1,54 @@
+package com.spotify.dashboard.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// a track waiting for audio features; see TrackEnrichmentQueue
+@Entity
+@Table(name = "track_enrichment_queue", indexes = {
+    @Index(name = "idx_track_enrichment_available", columnList = "available_at"),
+    @Index(name = "idx_track_enrichment_play_count", columnList = "play_count")
+})
+public class TrackEnrichmentTask {
+
+    @Id
+    @Column(name = "track_id", nullable = false)
+    private String trackId;
+
+    @Column(name = "track_name")
+    private String trackName;
+
+    @Column(name = "artist_name")
+    private String artistName;
+
+    // plays across all users since the track was queued
+    @Column(name = "play_count", nullable = false)
+    private long playCount;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "enqueued_at", nullable = false)
+    private LocalDateTime enqueuedAt;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    public TrackEnrichmentTask() {}
+
+    public String getTrackId() { return trackId; }
+    public String getTrackName() { return trackName; }
+    public String getArtistName() { return artistName; }
+    public long getPlayCount() { return playCount; }
+    public int getAttempts() { return attempts; }
+    public LocalDateTime getEnqueuedAt() { return enqueuedAt; }
+    public LocalDateTime getAvailableAt() { return availableAt; }
+    public String getClaimedBy() { return claimedBy; }
+    public LocalDateTime getClaimedUntil() { return claimedUntil; }
+}
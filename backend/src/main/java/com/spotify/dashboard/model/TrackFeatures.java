@@ -1,9 +1,11 @@
 package com.spotify.dashboard.model;
 
+import com.spotify.dashboard.service.TrackFeatureStoreListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(TrackFeatureStoreListener.class)
 @Table(name = "track_features", indexes = {
     @Index(name = "idx_track_id", columnList = "track_id"),
     @Index(name = "idx_fetched_at", columnList = "fetched_at")
@@ -0,0 +1,48 @@
+package com.spotify.dashboard.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// a track ReccoBeats could not give features for; left out of fetches until next_attempt_at
+@Entity
+@Table(name = "unresolved_track", indexes = {
+    @Index(name = "idx_unresolved_track_next_attempt", columnList = "next_attempt_at")
+})
+public class UnresolvedTrack {
+
+    public enum Reason {
+        /** ReccoBeats does not know the Spotify id. */
+        NOT_IN_RECCOBEATS,
+        /** ReccoBeats knows the track but has no audio features for it. */
+        NO_AUDIO_FEATURES
+    }
+
+    @Id
+    @Column(name = "track_id", nullable = false)
+    private String trackId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reason", nullable = false, length = 32)
+    private Reason reason;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "first_attempt_at", nullable = false)
+    private LocalDateTime firstAttemptAt;
+
+    @Column(name = "last_attempt_at", nullable = false)
+    private LocalDateTime lastAttemptAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    public UnresolvedTrack() {}
+
+    public String getTrackId() { return trackId; }
+    public Reason getReason() { return reason; }
+    public int getAttempts() { return attempts; }
+    public LocalDateTime getFirstAttemptAt() { return firstAttemptAt; }
+    public LocalDateTime getLastAttemptAt() { return lastAttemptAt; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+}
@@ -0,0 +1,14 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.ArtistListeningRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArtistListeningRollupRepository extends JpaRepository<ArtistListeningRollup, ArtistListeningRollup.Key> {
+
+    List<ArtistListeningRollup> findByUserIdOrderByPlayCountDesc(String userId, Pageable pageable);
+}
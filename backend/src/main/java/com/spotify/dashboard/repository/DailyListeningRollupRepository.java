@@ -0,0 +1,14 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.DailyListeningRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyListeningRollupRepository extends JpaRepository<DailyListeningRollup, DailyListeningRollup.Key> {
+
+    List<DailyListeningRollup> findByUserIdAndPlayDateBetweenOrderByPlayDate(String userId, LocalDate startDate, LocalDate endDate);
+}
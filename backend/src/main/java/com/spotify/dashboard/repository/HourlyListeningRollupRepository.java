@@ -0,0 +1,13 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.HourlyListeningRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface HourlyListeningRollupRepository extends JpaRepository<HourlyListeningRollup, HourlyListeningRollup.Key> {
+
+    List<HourlyListeningRollup> findByUserId(String userId);
+}
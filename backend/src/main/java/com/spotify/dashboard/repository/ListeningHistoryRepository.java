@@ -1,21 +1,30 @@
 package com.spotify.dashboard.repository;
 
 import com.spotify.dashboard.model.ListeningHistory;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+// listening_history is partitioned by month on played_at: bound queries by played_at so the
+// planner only visits the partitions covering the requested window
 @Repository
-public interface ListeningHistoryRepository extends JpaRepository<ListeningHistory, Long> {
+public interface ListeningHistoryRepository extends JpaRepository<ListeningHistory, Long>, ListeningHistoryRepositoryCustom {
 
+    // unbounded: visits every partition, so only a fallback for users with no recent plays
     @Query("SELECT MAX(l.playedAt) FROM ListeningHistory l WHERE l.userId = :userId")
     Optional<LocalDateTime> findLatestPlayedAtByUserId(@Param("userId") String userId);
 
+    @Query("SELECT MAX(l.playedAt) FROM ListeningHistory l WHERE l.userId = :userId AND l.playedAt >= :since")
+    Optional<LocalDateTime> findLatestPlayedAtByUserIdSince(@Param("userId") String userId,
+                                                            @Param("since") LocalDateTime since);
+
     @Query("SELECT l FROM ListeningHistory l " +
            "WHERE l.userId = :userId AND l.playedAt BETWEEN :startDate AND :endDate " +
            "ORDER BY l.playedAt DESC")
@@ -23,5 +32,22 @@ public interface ListeningHistoryRepository extends JpaRepository<ListeningHisto
                                                     @Param("startDate") LocalDateTime startDate,
                                                     @Param("endDate") LocalDateTime endDate);
 
-    boolean existsByUserIdAndTrackIdAndPlayedAt(String userId, String trackId, LocalDateTime playedAt);
+    // anti-join: distinct tracks the user played in the window that have no track_features row yet
+    // and are not tombstoned as unresolvable until after :now
+    @Query("SELECT DISTINCT l.trackId FROM ListeningHistory l " +
+           "WHERE l.userId = :userId AND l.playedAt BETWEEN :startDate AND :endDate " +
+           "AND NOT EXISTS (SELECT 1 FROM TrackFeatures t WHERE t.trackId = l.trackId) " +
+           "AND NOT EXISTS (SELECT 1 FROM UnresolvedTrack u WHERE u.trackId = l.trackId AND u.nextAttemptAt > :now)")
+    List<String> findTrackIdsWithoutFeatures(@Param("userId") String userId,
+                                             @Param("startDate") LocalDateTime startDate,
+                                             @Param("endDate") LocalDateTime endDate,
+                                             @Param("now") LocalDateTime now,
+                                             Pageable pageable);
+
+    @Query("SELECT l FROM ListeningHistory l " +
+           "WHERE l.userId = :userId AND l.trackId IN :trackIds AND l.playedAt BETWEEN :startDate AND :endDate")
+    List<ListeningHistory> findByUserIdAndTrackIdsAndDateRange(@Param("userId") String userId,
+                                                               @Param("trackIds") Collection<String> trackIds,
+                                                               @Param("startDate") LocalDateTime startDate,
+                                                               @Param("endDate") LocalDateTime endDate);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.ListeningHistory;
+
+import java.util.List;
+
+public interface ListeningHistoryRepositoryCustom {
+
+    /**
+     * Inserts all plays in a single JDBC batch, skipping any that already exist
+     * for the same (user_id, played_at, track_id).
+     *
+     * @return the plays that were actually inserted
+     */
+    List<ListeningHistory> insertIgnoringDuplicates(List<ListeningHistory> plays);
+}
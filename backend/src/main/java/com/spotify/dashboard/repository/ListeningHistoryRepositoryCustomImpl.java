@@ -0,0 +1,61 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.ListeningHistory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ListeningHistoryRepositoryCustomImpl implements ListeningHistoryRepositoryCustom {
+
+    // relies on uk_listening_history_play; per-row update counts tell us which rows were new,
+    // so the driver must not be configured with reWriteBatchedInserts (it reports SUCCESS_NO_INFO)
+    private static final String INSERT_IGNORE_SQL =
+        "INSERT INTO listening_history (user_id, track_id, track_name, artist_name, played_at) " +
+        "VALUES (?, ?, ?, ?, ?) " +
+        "ON CONFLICT (user_id, played_at, track_id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ListeningHistoryRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public List<ListeningHistory> insertIgnoringDuplicates(List<ListeningHistory> plays) {
+        if (plays.isEmpty()) {
+            return List.of();
+        }
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(INSERT_IGNORE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ListeningHistory play = plays.get(i);
+                ps.setString(1, play.getUserId());
+                ps.setString(2, play.getTrackId());
+                ps.setString(3, play.getTrackName());
+                ps.setString(4, play.getArtistName());
+                ps.setTimestamp(5, Timestamp.valueOf(play.getPlayedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return plays.size();
+            }
+        });
+
+        List<ListeningHistory> inserted = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0) {
+                inserted.add(plays.get(i));
+            }
+        }
+        return inserted;
+    }
+}
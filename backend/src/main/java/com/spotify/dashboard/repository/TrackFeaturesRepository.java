@@ -6,16 +6,22 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TrackFeaturesRepository extends JpaRepository<TrackFeatures, Long> {
 
     Optional<TrackFeatures> findByTrackId(String trackId);
 
-    boolean existsByTrackId(String trackId);
-
     @Query("SELECT t FROM TrackFeatures t WHERE t.trackId IN :trackIds")
     List<TrackFeatures> findByTrackIdIn(@Param("trackIds") List<String> trackIds);
+
+    @Query("SELECT t.trackId FROM TrackFeatures t WHERE t.trackId IN :trackIds")
+    List<String> findExistingTrackIds(@Param("trackIds") Collection<String> trackIds);
+
+    @Query("SELECT t.trackId FROM TrackFeatures t")
+    Stream<String> streamAllTrackIds();
 }
\ No newline at end of file
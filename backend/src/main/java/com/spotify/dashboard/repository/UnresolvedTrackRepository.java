@@ -0,0 +1,29 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.UnresolvedTrack;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UnresolvedTrackRepository extends JpaRepository<UnresolvedTrack, String>, UnresolvedTrackRepositoryCustom {
+
+    @Query("SELECT u.trackId FROM UnresolvedTrack u WHERE u.trackId IN :trackIds AND u.nextAttemptAt > :now")
+    List<String> findDeferredTrackIds(@Param("trackIds") Collection<String> trackIds, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UnresolvedTrack u WHERE u.trackId IN :trackIds")
+    int deleteByTrackIdIn(@Param("trackIds") Collection<String> trackIds);
+
+    // rows of [reason, count]
+    @Query("SELECT u.reason, COUNT(u) FROM UnresolvedTrack u GROUP BY u.reason")
+    List<Object[]> countByReason();
+}
@@ -0,0 +1,17 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.UnresolvedTrack;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface UnresolvedTrackRepositoryCustom {
+
+    /**
+     * Records a failed attempt for each track in one JDBC batch. The first miss defers the track
+     * by {@code initialBackoff}, and every further miss doubles that, up to {@code maxBackoff}.
+     */
+    void recordMisses(Collection<String> trackIds, UnresolvedTrack.Reason reason, LocalDateTime attemptedAt,
+                      Duration initialBackoff, Duration maxBackoff);
+}
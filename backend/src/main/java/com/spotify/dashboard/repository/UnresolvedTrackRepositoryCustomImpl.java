@@ -0,0 +1,57 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.UnresolvedTrack;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class UnresolvedTrackRepositoryCustomImpl implements UnresolvedTrackRepositoryCustom {
+
+    // the backoff doubles with the attempts already recorded, so it is computed in the upsert
+    // itself and concurrent misses for the same track cannot both start from the same count
+    private static final String RECORD_MISS_SQL =
+        "INSERT INTO unresolved_track (track_id, reason, attempts, first_attempt_at, last_attempt_at, next_attempt_at) " +
+        "VALUES (?, ?, 1, ?, ?, CAST(? AS timestamp) + ? * INTERVAL '1 second') " +
+        "ON CONFLICT (track_id) DO UPDATE SET reason = EXCLUDED.reason, " +
+        "attempts = unresolved_track.attempts + 1, " +
+        "last_attempt_at = EXCLUDED.last_attempt_at, " +
+        "next_attempt_at = EXCLUDED.last_attempt_at + " +
+        "LEAST(? * power(2, LEAST(unresolved_track.attempts, 30)), ?) * INTERVAL '1 second'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UnresolvedTrackRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void recordMisses(Collection<String> trackIds, UnresolvedTrack.Reason reason, LocalDateTime attemptedAt,
+                             Duration initialBackoff, Duration maxBackoff) {
+        if (trackIds.isEmpty()) {
+            return;
+        }
+        Timestamp attempted = Timestamp.valueOf(attemptedAt);
+        long initialSeconds = initialBackoff.toSeconds();
+        long maxSeconds = maxBackoff.toSeconds();
+        // a fixed order keeps concurrent batches from deadlocking on each other's rows
+        List<String> sorted = new ArrayList<>(trackIds);
+        sorted.sort(null);
+        jdbcTemplate.batchUpdate(RECORD_MISS_SQL, sorted, sorted.size(), (ps, trackId) -> {
+            ps.setString(1, trackId);
+            ps.setString(2, reason.name());
+            ps.setTimestamp(3, attempted);
+            ps.setTimestamp(4, attempted);
+            ps.setTimestamp(5, attempted);
+            ps.setLong(6, Math.min(initialSeconds, maxSeconds));
+            ps.setLong(7, initialSeconds);
+            ps.setLong(8, maxSeconds);
+        });
+    }
+}
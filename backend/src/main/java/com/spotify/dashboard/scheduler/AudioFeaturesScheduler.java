@@ -1,40 +1,59 @@
 package com.spotify.dashboard.scheduler;
 
-import com.spotify.dashboard.repository.UserRepository;
 import com.spotify.dashboard.service.AudioFeaturesService;
+import com.spotify.dashboard.service.TrackEnrichmentQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+/**
+ * Drains the track enrichment queue. Tracks are queued once globally as plays are ingested, so
+ * there is no per-user scan; every replica drains the same queue and claims keep them apart.
+ */
 @Component
 public class AudioFeaturesScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(AudioFeaturesScheduler.class);
-    private static final long ONE_HOUR_MS = 3600000;
-    private static final int DEFAULT_FETCH_LIMIT = 50;
 
-    private final UserRepository userRepository;
     private final AudioFeaturesService audioFeaturesService;
+    private final TrackEnrichmentQueue trackEnrichmentQueue;
+    private final int maxBatchesPerRun;
+    private final Timer cycleTimer;
 
-    public AudioFeaturesScheduler(UserRepository userRepository,
-                                 AudioFeaturesService audioFeaturesService) {
-        this.userRepository = userRepository;
+    public AudioFeaturesScheduler(AudioFeaturesService audioFeaturesService,
+                                  TrackEnrichmentQueue trackEnrichmentQueue,
+                                  @Value("${track-features.enrichment.max-batches-per-run:50}") int maxBatchesPerRun,
+                                  MeterRegistry meterRegistry) {
         this.audioFeaturesService = audioFeaturesService;
+        this.trackEnrichmentQueue = trackEnrichmentQueue;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.cycleTimer = Timer.builder("audio_features.fetch.cycle")
+            .description("Wall-clock time of one enrichment queue drain on this node")
+            .register(meterRegistry);
     }
 
-    @Scheduled(fixedRate = ONE_HOUR_MS)
-    public void fetchAudioFeaturesForAllUsers() {
-        logger.info("Starting scheduled fetch of audio features");
-        
-        userRepository.findAll().forEach(user -> {
-            try {
-                audioFeaturesService.fetchMissingAudioFeatures(user.getSpotifyId(), DEFAULT_FETCH_LIMIT);
-            } catch (Exception e) {
-                logger.error("Error fetching audio features for user {}: {}", user.getSpotifyId(), e.getMessage());
+    @Scheduled(fixedDelayString = "${track-features.enrichment.interval-ms:60000}",
+               initialDelayString = "${track-features.enrichment.interval-ms:60000}")
+    public void drainEnrichmentQueue() {
+        Timer.Sample cycle = Timer.start();
+        try {
+            int saved = audioFeaturesService.drainEnrichmentQueue(maxBatchesPerRun);
+            if (saved > 0) {
+                logger.info("Saved audio features for {} queued tracks", saved);
             }
-        });
-        
-        logger.info("Completed scheduled fetch of audio features");
+        } catch (Exception e) {
+            logger.error("Error draining the track enrichment queue: {}", e.getMessage());
+        } finally {
+            cycle.stop(cycleTimer);
+        }
+        try {
+            trackEnrichmentQueue.refreshStats();
+        } catch (Exception e) {
+            logger.warn("Failed to refresh enrichment queue metrics: {}", e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.spotify.dashboard.scheduler;
+
+import com.spotify.dashboard.service.ListeningHistoryPartitionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ListeningHistoryPartitionScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListeningHistoryPartitionScheduler.class);
+    private static final long SIX_HOURS_MS = 21600000;
+
+    private final ListeningHistoryPartitionService partitionService;
+
+    public ListeningHistoryPartitionScheduler(ListeningHistoryPartitionService partitionService) {
+        this.partitionService = partitionService;
+    }
+
+    // maintenance is idempotent; running it several times a day keeps upcoming partitions in place
+    // even if a run fails and gives a restarted database a chance to catch up
+    @Scheduled(fixedRate = SIX_HOURS_MS, initialDelay = SIX_HOURS_MS)
+    public void maintainPartitions() {
+        try {
+            partitionService.maintain();
+        } catch (Exception e) {
+            logger.error("Error maintaining listening_history partitions: {}", e.getMessage(), e);
+        }
+    }
+}
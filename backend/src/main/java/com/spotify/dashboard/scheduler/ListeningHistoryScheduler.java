@@ -1,53 +1,220 @@
 package com.spotify.dashboard.scheduler;
 
+import com.spotify.dashboard.cluster.ShardCoordinator;
+import com.spotify.dashboard.config.WorkerThreads;
+import com.spotify.dashboard.exception.UpstreamThrottledException;
+import com.spotify.dashboard.model.User;
 import com.spotify.dashboard.repository.UserRepository;
 import com.spotify.dashboard.service.ListeningHistoryService;
 import com.spotify.dashboard.service.TokenRefreshService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 
-import java.util.Map;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Polls each user's recently played tracks on that user's own schedule (see {@link UserPollSchedule}).
+ * Every tick takes the users that are due, most overdue first, up to this node's share of the
+ * global request budget; whoever does not fit waits for the next tick.
+ */
 @Component
 public class ListeningHistoryScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(ListeningHistoryScheduler.class);
-    private static final long THIRTY_MINUTES_MS = 1800000;
+    private static final long ONE_MINUTE_MS = 60000;
 
     private final ListeningHistoryService listeningHistoryService;
     private final UserRepository userRepository;
     private final TokenRefreshService tokenRefreshService;
+    private final ShardCoordinator shardCoordinator;
+    private final ExecutorService pollExecutor;
+    private final int concurrency;
+    private final long tickMs;
+    private final int maxPollsPerMinute;
+    private final UserPollSchedule schedule;
+    private long lastUserSyncMillis;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Timer cycleTimer;
+    private final Counter succeededCounter;
+    private final Counter failedCounter;
+    private final Counter skippedCounter;
+    private final Counter throttledCounter;
+    private volatile double lastCycleUsersPerSecond;
+    private volatile int lastCycleUsers;
+    private volatile int lastOverdueUsers;
 
     public ListeningHistoryScheduler(ListeningHistoryService listeningHistoryService,
                                     UserRepository userRepository,
-                                    TokenRefreshService tokenRefreshService) {
+                                    TokenRefreshService tokenRefreshService,
+                                    ShardCoordinator shardCoordinator,
+                                    WorkerThreads workerThreads,
+                                    @Value("${scheduler.listening-history.concurrency:8}") int concurrency,
+                                    @Value("${scheduler.listening-history.tick-ms:15000}") long tickMs,
+                                    @Value("${scheduler.listening-history.max-polls-per-minute:300}") int maxPollsPerMinute,
+                                    @Value("${scheduler.listening-history.min-interval-minutes:5}") long minIntervalMinutes,
+                                    @Value("${scheduler.listening-history.initial-interval-minutes:30}") long initialIntervalMinutes,
+                                    @Value("${scheduler.listening-history.max-interval-minutes:360}") long maxIntervalMinutes,
+                                    @Value("${scheduler.listening-history.target-fill:0.5}") double targetFill,
+                                    MeterRegistry meterRegistry) {
         this.listeningHistoryService = listeningHistoryService;
         this.userRepository = userRepository;
         this.tokenRefreshService = tokenRefreshService;
+        this.shardCoordinator = shardCoordinator;
+        this.concurrency = concurrency;
+        this.tickMs = tickMs;
+        this.maxPollsPerMinute = maxPollsPerMinute;
+        this.pollExecutor = Executors.newFixedThreadPool(concurrency, workerThreads.newFactory("history-poll-"));
+        this.schedule = new UserPollSchedule(Duration.ofMinutes(minIntervalMinutes), Duration.ofMinutes(initialIntervalMinutes),
+            Duration.ofMinutes(maxIntervalMinutes), targetFill, ListeningHistoryService.RECENTLY_PLAYED_LIMIT);
+
+        this.cycleTimer = Timer.builder("listening_history.poll.cycle")
+            .description("Wall-clock time of polling the users due in one scheduler tick")
+            .register(meterRegistry);
+        this.succeededCounter = userCounter(meterRegistry, "success");
+        this.failedCounter = userCounter(meterRegistry, "failed");
+        this.skippedCounter = userCounter(meterRegistry, "skipped");
+        this.throttledCounter = userCounter(meterRegistry, "throttled");
+        Gauge.builder("listening_history.poll.in_flight", inFlight, AtomicInteger::get)
+            .description("Users currently being polled")
+            .register(meterRegistry);
+        Gauge.builder("listening_history.poll.users_per_second", this, s -> s.lastCycleUsersPerSecond)
+            .description("Throughput of the last scheduler tick")
+            .register(meterRegistry);
+        Gauge.builder("listening_history.poll.cycle.users", this, s -> s.lastCycleUsers)
+            .description("Users polled in the last scheduler tick")
+            .register(meterRegistry);
+        Gauge.builder("listening_history.poll.scheduled", schedule, UserPollSchedule::size)
+            .description("Users on this node's polling schedule")
+            .register(meterRegistry);
+        Gauge.builder("listening_history.poll.overdue", this, s -> s.lastOverdueUsers)
+            .description("Users past their poll time that did not fit in the last tick's budget")
+            .register(meterRegistry);
     }
 
-    @Scheduled(fixedRate = THIRTY_MINUTES_MS)
-    public void pollRecentlyPlayedForAllUsers() {
-        logger.info("Starting scheduled poll for recently played tracks");
-        
-        userRepository.findAll().forEach(user -> {
-            try {
-                String refreshToken = user.getEncryptedRefreshToken();
-                if (refreshToken != null && !refreshToken.isEmpty()) {
-                    Map<String, Object> tokenData = tokenRefreshService.refreshAccessTokenForUser(user.getSpotifyId());
-                    if (tokenData != null && tokenData.containsKey("access_token")) {
-                        String accessToken = (String) tokenData.get("access_token");
-                        listeningHistoryService.pollRecentlyPlayed(user.getSpotifyId(), accessToken);
-                    }
-                }
-            } catch (Exception e) {
-                logger.error("Error polling for user {}: {}", user.getSpotifyId(), e.getMessage());
-            }
-        });
-        
-        logger.info("Completed scheduled poll for recently played tracks");
+    @PreDestroy
+    public void shutdown() {
+        pollExecutor.shutdownNow();
     }
-}
 
+    private static Counter userCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("listening_history.poll.users")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${scheduler.listening-history.tick-ms:15000}")
+    public void pollDueUsers() {
+        long startNanos = System.nanoTime();
+        long now = System.currentTimeMillis();
+
+        // other replicas poll the users whose shards they hold
+        shardCoordinator.refreshIfStale();
+        if (now - lastUserSyncMillis >= ONE_MINUTE_MS) {
+            syncUsers(now);
+        }
+
+        List<String> due = schedule.takeDue(now, tickBudget());
+        lastOverdueUsers = schedule.overdueCount(now);
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // permits bound queued + running work so a large batch never piles up in the executor queue
+        Semaphore permits = new Semaphore(concurrency);
+        List<CompletableFuture<Void>> polls = new ArrayList<>(due.size());
+        for (String userId : due) {
+            permits.acquireUninterruptibly();
+            inFlight.incrementAndGet();
+            polls.add(CompletableFuture.runAsync(() -> pollUser(userId), pollExecutor)
+                .whenComplete((ignored, error) -> {
+                    inFlight.decrementAndGet();
+                    permits.release();
+                }));
+        }
+        CompletableFuture.allOf(polls.toArray(CompletableFuture[]::new)).join();
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        cycleTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        double elapsedSeconds = elapsedNanos / 1_000_000_000.0;
+        lastCycleUsers = due.size();
+        lastCycleUsersPerSecond = elapsedSeconds > 0 ? due.size() / elapsedSeconds : 0.0;
+
+        if (lastOverdueUsers > 0) {
+            logger.warn("{} users are overdue for polling after this tick; the budget of {} polls per minute is exhausted",
+                lastOverdueUsers, maxPollsPerMinute);
+        }
+        logger.debug("Polled {} due users in {} ms ({} users/s)",
+            due.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(lastCycleUsersPerSecond));
+    }
+
+    private void syncUsers(long now) {
+        List<String> userIds = userRepository.findAll().stream()
+            .filter(user -> user.getEncryptedRefreshToken() != null && !user.getEncryptedRefreshToken().isEmpty())
+            .map(User::getSpotifyId)
+            .filter(shardCoordinator::ownsUser)
+            .toList();
+        schedule.sync(userIds, now);
+        lastUserSyncMillis = now;
+    }
+
+    // the budget is global, so each live replica takes an equal part of it
+    private int tickBudget() {
+        double perNodePerMinute = (double) maxPollsPerMinute / Math.max(1, shardCoordinator.liveNodeCount());
+        return Math.max(1, (int) (perNodePerMinute * tickMs / ONE_MINUTE_MS));
+    }
+
+    private void pollUser(String userId) {
+        // the shard may have moved to another node since the last user sync
+        if (!shardCoordinator.ownsUser(userId)) {
+            skippedCounter.increment();
+            schedule.skip(userId, System.currentTimeMillis());
+            return;
+        }
+        try {
+            ListeningHistoryService.PollResult result = poll(userId);
+            schedule.record(userId, result.newPlays(), result.windowFull(), System.currentTimeMillis());
+            succeededCounter.increment();
+        } catch (UpstreamThrottledException e) {
+            throttledCounter.increment();
+            // Spotify is throttling everyone, this says nothing about the user's play rate
+            schedule.skip(userId, System.currentTimeMillis());
+            logger.debug("Poll for user {} deferred: {}", userId, e.getMessage());
+        } catch (Exception e) {
+            failedCounter.increment();
+            // an outage says nothing about the user either: recording it as an empty poll would
+            // stretch a heavy listener's interval until plays fall out of Spotify's window
+            schedule.skip(userId, System.currentTimeMillis());
+            logger.error("Error polling for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private ListeningHistoryService.PollResult poll(String userId) {
+        String accessToken = tokenRefreshService.getAccessToken(userId);
+        try {
+            return listeningHistoryService.pollRecentlyPlayed(userId, accessToken);
+        } catch (HttpClientErrorException.Unauthorized e) {
+            // revoked or rejected before it expired: without this the cached token would keep failing until then
+            logger.info("Access token for user {} was rejected, refreshing and retrying once", userId);
+            tokenRefreshService.evictAccessToken(userId, accessToken);
+            return listeningHistoryService.pollRecentlyPlayed(userId, tokenRefreshService.getAccessToken(userId));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.spotify.dashboard.scheduler;
+
+import com.spotify.dashboard.cluster.ShardCoordinator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ShardHeartbeatScheduler {
+
+    private final ShardCoordinator shardCoordinator;
+
+    public ShardHeartbeatScheduler(ShardCoordinator shardCoordinator) {
+        this.shardCoordinator = shardCoordinator;
+    }
+
+    // renews this node's leases and picks up shards freed by nodes joining or leaving
+    @Scheduled(fixedRateString = "${scheduler.sharding.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        shardCoordinator.rebalance();
+    }
+}
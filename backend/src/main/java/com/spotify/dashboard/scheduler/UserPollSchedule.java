@@ -0,0 +1,209 @@
+package com.spotify.dashboard.scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-user next-poll times, ordered in a priority queue so the most overdue user goes first.
+ *
+ * Each poll updates an exponentially weighted play rate for the user, and the next poll is
+ * timed so that about {@code targetFill} of Spotify's recently-played window fills up in
+ * between. A full window means plays may already have been lost, so the next poll comes as soon
+ * as allowed. Polls that find nothing double the wait, so dormant accounts drift to the maximum
+ * interval.
+ */
+class UserPollSchedule {
+
+    private static final double HOUR_MS = 3_600_000.0;
+    // weight of the latest poll in the play rate; a few polls are enough to follow a change in habits
+    private static final double RATE_SMOOTHING = 0.3;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final long minIntervalMs;
+    private final long initialIntervalMs;
+    private final long maxIntervalMs;
+    private final double targetPlaysPerPoll;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, UserState> users = new HashMap<>();
+    private final PriorityQueue<UserState> queue =
+        new PriorityQueue<>(Comparator.comparingLong(UserState::nextPollAt));
+
+    private static final class UserState {
+        private final String userId;
+        private long nextPollAt;
+        private long lastPolledAt = NEVER;
+        private long intervalMs;
+        private double playsPerHour = -1;
+        // false while the user is being polled
+        private boolean queued = true;
+
+        private UserState(String userId, long nextPollAt, long intervalMs) {
+            this.userId = userId;
+            this.nextPollAt = nextPollAt;
+            this.intervalMs = intervalMs;
+        }
+
+        private long nextPollAt() {
+            return nextPollAt;
+        }
+    }
+
+    UserPollSchedule(Duration minInterval, Duration initialInterval, Duration maxInterval,
+                     double targetFill, int windowSize) {
+        if (minInterval.isNegative() || maxInterval.compareTo(minInterval) < 0) {
+            throw new IllegalArgumentException("Invalid poll interval bounds");
+        }
+        this.minIntervalMs = minInterval.toMillis();
+        this.initialIntervalMs = clamp(initialInterval.toMillis(), minInterval.toMillis(), maxInterval.toMillis());
+        this.maxIntervalMs = maxInterval.toMillis();
+        this.targetPlaysPerPoll = targetFill * windowSize;
+    }
+
+    /** Starts tracking new users (due at once) and forgets users that are no longer in {@code userIds}. */
+    void sync(Collection<String> userIds, long nowMillis) {
+        Set<String> current = new HashSet<>(userIds);
+        lock.lock();
+        try {
+            users.values().removeIf(state -> {
+                if (current.contains(state.userId)) {
+                    return false;
+                }
+                if (state.queued) {
+                    queue.remove(state);
+                }
+                return true;
+            });
+            for (String userId : current) {
+                if (!users.containsKey(userId)) {
+                    UserState state = new UserState(userId, nowMillis, initialIntervalMs);
+                    users.put(userId, state);
+                    queue.add(state);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns up to {@code max} users whose poll is due, most overdue first. They
+     * stay off the queue until their result is {@link #record recorded}.
+     */
+    List<String> takeDue(long nowMillis, int max) {
+        List<String> due = new ArrayList<>();
+        lock.lock();
+        try {
+            while (due.size() < max && !queue.isEmpty() && queue.peek().nextPollAt <= nowMillis) {
+                UserState state = queue.poll();
+                state.queued = false;
+                due.add(state.userId);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return due;
+    }
+
+    /**
+     * Feeds back a poll and schedules the user's next one.
+     *
+     * @return the interval until the next poll, or -1 if the user is no longer tracked
+     */
+    long record(String userId, int newPlays, boolean windowFull, long nowMillis) {
+        lock.lock();
+        try {
+            UserState state = users.get(userId);
+            if (state == null) {
+                return -1;
+            }
+            if (state.queued) {
+                // the user was dropped and re-added while this poll was running
+                queue.remove(state);
+            }
+            long elapsedMs = state.lastPolledAt != NEVER ? nowMillis - state.lastPolledAt : 0;
+            if (elapsedMs > 0) {
+                double sample = newPlays * HOUR_MS / elapsedMs;
+                state.playsPerHour = state.playsPerHour < 0
+                    ? sample
+                    : RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * state.playsPerHour;
+            }
+
+            long intervalMs;
+            if (windowFull) {
+                intervalMs = minIntervalMs;
+            } else if (state.playsPerHour < 0) {
+                intervalMs = initialIntervalMs;
+            } else {
+                intervalMs = state.playsPerHour > 0
+                    ? (long) (targetPlaysPerPoll / state.playsPerHour * HOUR_MS)
+                    : maxIntervalMs;
+                if (newPlays == 0) {
+                    intervalMs = Math.max(intervalMs, state.intervalMs * 2);
+                }
+            }
+            state.intervalMs = clamp(intervalMs, minIntervalMs, maxIntervalMs);
+            state.lastPolledAt = nowMillis;
+            state.nextPollAt = nowMillis + state.intervalMs;
+            state.queued = true;
+            queue.add(state);
+            return state.intervalMs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Puts a user taken by {@link #takeDue} back for its current interval without touching its play rate. */
+    void skip(String userId, long nowMillis) {
+        lock.lock();
+        try {
+            UserState state = users.get(userId);
+            if (state == null || state.queued) {
+                return;
+            }
+            state.nextPollAt = nowMillis + state.intervalMs;
+            state.queued = true;
+            queue.add(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return users.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Users whose poll time has passed but that have not been taken yet. */
+    int overdueCount(long nowMillis) {
+        lock.lock();
+        try {
+            int overdue = 0;
+            for (UserState state : queue) {
+                if (state.nextPollAt <= nowMillis) {
+                    overdue++;
+                }
+            }
+            return overdue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
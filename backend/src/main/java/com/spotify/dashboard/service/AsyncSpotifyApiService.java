@@ -0,0 +1,189 @@
+package com.spotify.dashboard.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.dashboard.cache.SpotifyUserKeyGenerator;
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.config.GovernedAsyncClient;
+import com.spotify.dashboard.dto.SpotifyArtist;
+import com.spotify.dashboard.dto.SpotifyPage;
+import com.spotify.dashboard.dto.SpotifyTrack;
+import com.spotify.dashboard.util.OutboundGovernor;
+import com.spotify.dashboard.util.SingleFlight;
+import com.spotify.dashboard.util.SpotifyAuthUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link SpotifyApiService} for handlers that chain or combine several
+ * Spotify calls: every operation returns a future, so independent calls run in parallel and no
+ * thread is held while a call is queued in the governor or waiting on Spotify.
+ *
+ * Caching matches the blocking service entry for entry. The same caches are read and written
+ * under the same keys (the Spotify user id plus the remaining arguments, as
+ * {@link SpotifyUserKeyGenerator} builds them), so a response cached by either service is served
+ * by both. Tokens are resolved to user ids through {@link SpotifyUserResolver}'s cache, and an
+ * unknown token costs one non-blocking {@code /me} call. Identical GETs in flight share one call.
+ *
+ * Cache reads and writes still block briefly on Redis, on the client's callback threads. Calls
+ * count as interactive in the governor: this service is only used to serve requests.
+ */
+@Service
+public class AsyncSpotifyApiService {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    private static final TypeReference<SpotifyPage<SpotifyTrack>> TRACK_PAGE_TYPE = new TypeReference<>() {};
+    private static final TypeReference<SpotifyPage<SpotifyArtist>> ARTIST_PAGE_TYPE = new TypeReference<>() {};
+
+    private final GovernedAsyncClient httpClient;
+    private final String spotifyApiBaseUrl;
+    private final SpotifyAuthUtil spotifyAuthUtil;
+    private final SpotifyUserResolver spotifyUserResolver;
+    private final CacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+
+    private final SingleFlight<String, Object> inFlightRequests = new SingleFlight<>();
+
+    public AsyncSpotifyApiService(@Qualifier(AppConfig.SPOTIFY_API_ASYNC) GovernedAsyncClient httpClient,
+                                  @Value("${spotify.api.base-url}") String spotifyApiBaseUrl,
+                                  SpotifyAuthUtil spotifyAuthUtil,
+                                  SpotifyUserResolver spotifyUserResolver,
+                                  CacheManager cacheManager,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.httpClient = httpClient;
+        this.spotifyApiBaseUrl = spotifyApiBaseUrl;
+        this.spotifyAuthUtil = spotifyAuthUtil;
+        this.spotifyUserResolver = spotifyUserResolver;
+        this.cacheManager = cacheManager;
+        this.objectMapper = objectMapper;
+
+        FunctionCounter.builder("spotify.api.async.requests.coalesced", inFlightRequests, SingleFlight::getSharedCalls)
+            .description("Non-blocking Spotify API GETs served by an identical request that was already in flight")
+            .register(meterRegistry);
+        Gauge.builder("spotify.api.async.requests.in_flight", inFlightRequests, SingleFlight::getInFlight)
+            .description("Distinct non-blocking Spotify API GETs currently in flight")
+            .register(meterRegistry);
+    }
+
+    public CompletableFuture<Map<String, Object>> getCurrentUser(String accessToken) {
+        return cached(SpotifyApiService.USER_CACHE, accessToken, "/me", MAP_TYPE);
+    }
+
+    public CompletableFuture<String> getUserId(String accessToken) {
+        String userId = spotifyUserResolver.cachedUserId(accessToken);
+        if (userId != null) {
+            return CompletableFuture.completedFuture(userId);
+        }
+        return get("/me", accessToken, MAP_TYPE).thenApply(user -> spotifyUserResolver.remember(accessToken, user));
+    }
+
+    public CompletableFuture<Map<String, Object>> getTopTracks(String accessToken, String timeRange, int limit) {
+        String endpoint = "/me/top/tracks?time_range=" + timeRange + "&limit=" + limit;
+        return cached(SpotifyApiService.TOP_TRACKS_CACHE, accessToken, endpoint, MAP_TYPE, timeRange, limit);
+    }
+
+    public CompletableFuture<Map<String, Object>> getTopArtists(String accessToken, String timeRange, int limit) {
+        String endpoint = "/me/top/artists?time_range=" + timeRange + "&limit=" + limit;
+        return cached(SpotifyApiService.TOP_ARTISTS_CACHE, accessToken, endpoint, MAP_TYPE, timeRange, limit);
+    }
+
+    public CompletableFuture<SpotifyPage<SpotifyTrack>> getTopTrackPage(String accessToken, String timeRange, int limit) {
+        String endpoint = "/me/top/tracks?time_range=" + timeRange + "&limit=" + limit;
+        return cached(SpotifyApiService.TOP_TRACK_PAGES_CACHE, accessToken, endpoint, TRACK_PAGE_TYPE, timeRange, limit);
+    }
+
+    public CompletableFuture<SpotifyPage<SpotifyArtist>> getTopArtistPage(String accessToken, String timeRange, int limit) {
+        String endpoint = "/me/top/artists?time_range=" + timeRange + "&limit=" + limit;
+        return cached(SpotifyApiService.TOP_ARTIST_PAGES_CACHE, accessToken, endpoint, ARTIST_PAGE_TYPE, timeRange, limit);
+    }
+
+    public CompletableFuture<Map<String, Object>> createPlaylist(String accessToken, String userId,
+                                                                 Map<String, Object> playlistData) {
+        return post("/users/" + userId + "/playlists", accessToken, playlistData);
+    }
+
+    public CompletableFuture<Map<String, Object>> addTracksToPlaylist(String accessToken, String playlistId,
+                                                                      Map<String, Object> tracksData) {
+        return post("/playlists/" + playlistId + "/tracks", accessToken, tracksData);
+    }
+
+    // what @Cacheable does for the blocking service, keyed the same way
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> cached(String cacheName, String accessToken, String endpoint,
+                                            TypeReference<T> responseType, Object... params) {
+        Cache cache = cacheManager.getCache(cacheName);
+        return getUserId(accessToken).thenCompose(userId -> {
+            String key = SpotifyUserKeyGenerator.key(userId, params);
+            Cache.ValueWrapper hit = cache != null ? cache.get(key) : null;
+            if (hit != null) {
+                return CompletableFuture.completedFuture((T) hit.get());
+            }
+            return get(endpoint, accessToken, responseType).thenApply(value -> {
+                if (cache != null && value != null) {
+                    cache.put(key, value);
+                }
+                return value;
+            });
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> get(String endpoint, String accessToken, TypeReference<T> responseType) {
+        String key = responseType.getType().getTypeName() + ' ' + endpoint + ' ' + accessToken;
+        return inFlightRequests.executeAsync(key, () -> httpClient
+                .execute(request(SimpleRequestBuilder.get(spotifyApiBaseUrl + endpoint), accessToken),
+                    OutboundGovernor.Priority.INTERACTIVE)
+                .<Object>thenApply(response -> read(response, responseType)))
+            .thenApply(value -> (T) value);
+    }
+
+    private CompletableFuture<Map<String, Object>> post(String endpoint, String accessToken, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        SimpleRequestBuilder builder = SimpleRequestBuilder.post(spotifyApiBaseUrl + endpoint)
+            .setBody(json, ContentType.APPLICATION_JSON);
+        return httpClient.execute(request(builder, accessToken), OutboundGovernor.Priority.INTERACTIVE)
+            .thenApply(response -> read(response, MAP_TYPE));
+    }
+
+    private SimpleHttpRequest request(SimpleRequestBuilder builder, String accessToken) {
+        return builder
+            .setHeader(HttpHeaders.AUTHORIZATION,
+                spotifyAuthUtil.createBearerAuthHeaders(accessToken).getFirst(HttpHeaders.AUTHORIZATION))
+            .setHeader(HttpHeaders.ACCEPT, "application/json")
+            .build();
+    }
+
+    private <T> T read(SimpleHttpResponse response, TypeReference<T> responseType) {
+        byte[] body = response.getBodyBytes();
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(body, responseType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable Spotify response", e);
+        }
+    }
+}
@@ -1,29 +1,49 @@
 package com.spotify.dashboard.service;
 
+import com.spotify.dashboard.config.WorkerThreads;
+import com.spotify.dashboard.dto.ReccoBeatsAudioFeatures;
+import com.spotify.dashboard.dto.ReccoBeatsTrack;
+import com.spotify.dashboard.dto.SpotifyPage;
+import com.spotify.dashboard.dto.SpotifyTrack;
+import com.spotify.dashboard.exception.UpstreamUnavailableException;
 import com.spotify.dashboard.model.ListeningHistory;
 import com.spotify.dashboard.model.TrackFeatures;
+import com.spotify.dashboard.model.UnresolvedTrack;
 import com.spotify.dashboard.repository.ListeningHistoryRepository;
 import com.spotify.dashboard.repository.TrackFeaturesRepository;
+import com.spotify.dashboard.util.AdaptiveBatchSizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.*;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class AudioFeaturesService {
 
     private static final Logger logger = LoggerFactory.getLogger(AudioFeaturesService.class);
 
-    private static final int RATE_LIMIT_DELAY_MS = 50;
-    private static final int BATCH_DELAY_MS = 200;
     private static final int DEFAULT_TOP_TRACKS_LIMIT = 50;
-    private static final int BATCH_SIZE = 40;
-    private static final String RECCOBEATS_API_BASE = "https://api.reccobeats.com/v1";
+    private static final int MIN_BATCH_SIZE = 5;
+    private static final int MAX_BATCH_SIZE = 40;
+    private static final int MAX_BATCHES_IN_FLIGHT = 2;
+
+    private record TrackNames(String trackName, String artistName) {}
     
     // Mood thresholds
     private static final double HIGH_VALENCE_THRESHOLD = 0.6;
@@ -32,57 +52,129 @@ public class AudioFeaturesService {
 
     private final TrackFeaturesRepository trackFeaturesRepository;
     private final ListeningHistoryRepository listeningHistoryRepository;
-    private final RestTemplate restTemplate;
+    private final ReccoBeatsClient reccoBeatsClient;
+    private final KnownTrackIndex knownTrackIndex;
+    private final TrackFeatureStore trackFeatureStore;
+    private final UnresolvedTrackService unresolvedTrackService;
+    private final TrackEnrichmentQueue trackEnrichmentQueue;
     private final SpotifyApiService spotifyApiService;
+    private final ExecutorService reccoBeatsExecutor;
+    private final AdaptiveBatchSizer batchSizer;
+    private final MeterRegistry meterRegistry;
 
     public AudioFeaturesService(TrackFeaturesRepository trackFeaturesRepository,
                                ListeningHistoryRepository listeningHistoryRepository,
-                               RestTemplate restTemplate,
-                               SpotifyApiService spotifyApiService) {
+                               ReccoBeatsClient reccoBeatsClient,
+                               KnownTrackIndex knownTrackIndex,
+                               TrackFeatureStore trackFeatureStore,
+                               UnresolvedTrackService unresolvedTrackService,
+                               TrackEnrichmentQueue trackEnrichmentQueue,
+                               SpotifyApiService spotifyApiService,
+                               WorkerThreads workerThreads,
+                               @Value("${reccobeats.concurrency:8}") int concurrency,
+                               @Value("${reccobeats.batch.target-latency-ms:1500}") long targetBatchLatencyMs,
+                               MeterRegistry meterRegistry) {
         this.trackFeaturesRepository = trackFeaturesRepository;
         this.listeningHistoryRepository = listeningHistoryRepository;
-        this.restTemplate = restTemplate;
+        this.reccoBeatsClient = reccoBeatsClient;
+        this.knownTrackIndex = knownTrackIndex;
+        this.trackFeatureStore = trackFeatureStore;
+        this.unresolvedTrackService = unresolvedTrackService;
+        this.trackEnrichmentQueue = trackEnrichmentQueue;
         this.spotifyApiService = spotifyApiService;
+        this.meterRegistry = meterRegistry;
+        this.reccoBeatsExecutor = Executors.newFixedThreadPool(concurrency, workerThreads.newFactory("reccobeats-"));
+        this.batchSizer = new AdaptiveBatchSizer(MIN_BATCH_SIZE, MAX_BATCH_SIZE, MAX_BATCH_SIZE, targetBatchLatencyMs);
+        Gauge.builder("reccobeats.batch.size", batchSizer, AdaptiveBatchSizer::currentSize)
+            .description("Current adaptive ReccoBeats lookup batch size")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reccoBeatsExecutor.shutdownNow();
     }
 
     public void fetchMissingAudioFeatures(String userId, int limit) {
         try {
             LocalDateTime oneMonthAgo = LocalDateTime.now().minusMonths(1);
             LocalDateTime now = LocalDateTime.now();
-            List<ListeningHistory> recentTracks = listeningHistoryRepository
-                .findByUserIdAndDateRange(userId, oneMonthAgo, now);
-
-            if (recentTracks.isEmpty()) {
-                logger.info("No recent tracks found for user {}", userId);
-                return;
-            }
-
-            List<String> trackIds = recentTracks.stream()
-                .map(ListeningHistory::getTrackId)
-                .distinct()
-                .filter(trackId -> !trackFeaturesRepository.existsByTrackId(trackId))
-                .limit(limit)
-                .collect(Collectors.toList());
+            List<String> trackIds = listeningHistoryRepository
+                .findTrackIdsWithoutFeatures(userId, oneMonthAgo, now, now, PageRequest.of(0, limit));
 
             if (trackIds.isEmpty()) {
-                logger.info("All recent tracks already have audio features for user {}", userId);
+                logger.info("No recent tracks without audio features for user {}", userId);
                 return;
             }
 
+            List<ListeningHistory> recentTracks = listeningHistoryRepository
+                .findByUserIdAndTrackIdsAndDateRange(userId, trackIds, oneMonthAgo, now);
             int saved = fetchAndSaveAudioFeatures(trackIds, recentTracks);
             logger.info("Saved audio features for {} out of {} tracks using ReccoBeats API", saved, trackIds.size());
 
+        } catch (UpstreamUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error fetching audio features for user {}: {}", userId, e.getMessage());
         }
     }
 
-    private Map<String, Object> buildInsightsResponse(List<String> trackIds, List<TrackFeatures> trackFeatures,
+    /**
+     * Claims tracks from the enrichment queue in ReccoBeats-sized batches, most played first,
+     * and fetches their features on the ReccoBeats workers. Stops when the queue has nothing
+     * ready, after {@code maxBatches}, or when the ReccoBeats circuit opens.
+     *
+     * @return tracks whose features were saved
+     */
+    public int drainEnrichmentQueue(int maxBatches) {
+        Semaphore batchPermits = new Semaphore(MAX_BATCHES_IN_FLIGHT);
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        for (int i = 0; i < maxBatches; i++) {
+            batchPermits.acquireUninterruptibly();
+            if (!reccoBeatsClient.isAvailable()) {
+                batchPermits.release();
+                logger.warn("ReccoBeats circuit is open, leaving the enrichment queue for later");
+                break;
+            }
+            List<TrackEnrichmentQueue.Task> tasks = trackEnrichmentQueue.claim(batchSizer.currentSize());
+            if (tasks.isEmpty()) {
+                batchPermits.release();
+                break;
+            }
+            Map<String, TrackNames> namesByTrackId = new HashMap<>();
+            tasks.forEach(task -> namesByTrackId.put(task.trackId(), new TrackNames(task.trackName(), task.artistName())));
+            List<String> claimed = List.copyOf(namesByTrackId.keySet());
+            // features may have been stored since the track was queued, e.g. by a manual fetch
+            List<String> batch = knownTrackIndex.filterMissing(claimed);
+
+            CompletableFuture<Integer> processed = batch.isEmpty()
+                ? CompletableFuture.completedFuture(0)
+                : processBatch(batch, namesByTrackId);
+            batches.add(processed
+                .exceptionally(e -> {
+                    logger.warn("Failed to process enrichment batch of {} tracks: {}", batch.size(), e.getMessage());
+                    return 0;
+                })
+                .whenComplete((saved, e) -> {
+                    try {
+                        trackEnrichmentQueue.complete(claimed);
+                    } catch (RuntimeException completeFailure) {
+                        // the claim lease runs out and the tracks are picked up again
+                        logger.warn("Failed to complete enrichment batch: {}", completeFailure.getMessage());
+                    } finally {
+                        batchPermits.release();
+                    }
+                }));
+        }
+        return batches.stream().mapToInt(CompletableFuture::join).sum();
+    }
+
+    private Map<String, Object> buildInsightsResponse(List<String> trackIds, int tracksWithFeatures,
                                                       Map<String, Double> averages, Map<String, Object> periodInfo) {
         Map<String, Object> insights = new HashMap<>();
         insights.put("period", periodInfo);
         insights.put("totalTracks", trackIds.size());
-        insights.put("tracksWithFeatures", trackFeatures.size());
+        insights.put("tracksWithFeatures", tracksWithFeatures);
         insights.put("averages", Map.of(
             "energy", round(averages.get("energy"), 2),
             "valence", round(averages.get("valence"), 2),
@@ -96,108 +188,163 @@ public class AudioFeaturesService {
     }
 
 
+    // fails fast while the ReccoBeats circuit is open; insights keep using the features already stored
     private int fetchAndSaveAudioFeatures(List<String> trackIds, List<ListeningHistory> recentTracks) {
-        int saved = 0;
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Accept", "application/json");
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-        
-        for (int i = 0; i < trackIds.size(); i += BATCH_SIZE) {
-            try {
-                List<String> batch = trackIds.subList(i, Math.min(i + BATCH_SIZE, trackIds.size()));
-                List<Map<String, Object>> reccoTracks = fetchReccoBeatsIds(batch, entity);
-                
-                if (reccoTracks != null) {
-                    for (Map<String, Object> track : reccoTracks) {
-                        String reccobeatsId = (String) track.get("id");
-                        if (reccobeatsId == null) continue;
-                        
-                        Map<String, Object> features = fetchAudioFeatures(reccobeatsId, entity);
-                        if (features == null) continue;
-                        
-                        String spotifyId = extractSpotifyId((String) track.get("href"));
-                        if (spotifyId == null) continue;
-                        
-                        TrackFeatures trackFeature = mapToTrackFeatures(features, recentTracks, spotifyId);
-                        if (trackFeature != null) {
-                            trackFeaturesRepository.save(trackFeature);
-                            saved++;
-                        }
-                        Thread.sleep(RATE_LIMIT_DELAY_MS); // rate limiting for ReccoBeats API
-                    }
-                }
-                Thread.sleep(BATCH_DELAY_MS); // delay between batches to avoid overwhelming the API
-            } catch (Exception e) {
-                logger.warn("Failed to process batch starting at index {}: {}", i, e.getMessage());
+        if (!reccoBeatsClient.isAvailable()) {
+            throw new UpstreamUnavailableException("ReccoBeats is unavailable, audio features were not fetched",
+                reccoBeatsClient.retryAfter());
+        }
+        Map<String, TrackNames> namesByTrackId = new HashMap<>();
+        recentTracks.forEach(h -> namesByTrackId.putIfAbsent(h.getTrackId(), new TrackNames(h.getTrackName(), h.getArtistName())));
+
+        // bounds how many lookup batches are outstanding so later batches pick up the adapted size
+        Semaphore batchPermits = new Semaphore(MAX_BATCHES_IN_FLIGHT);
+        List<CompletableFuture<Integer>> batches = new ArrayList<>();
+        int index = 0;
+        while (index < trackIds.size()) {
+            batchPermits.acquireUninterruptibly();
+            if (!reccoBeatsClient.isAvailable()) {
+                batchPermits.release();
+                logger.warn("ReccoBeats circuit opened, skipping the remaining {} tracks", trackIds.size() - index);
+                break;
             }
+            int end = Math.min(index + batchSizer.currentSize(), trackIds.size());
+            List<String> batch = trackIds.subList(index, end);
+            int batchStart = index;
+            batches.add(processBatch(batch, namesByTrackId)
+                .exceptionally(e -> {
+                    logger.warn("Failed to process batch starting at index {}: {}", batchStart, e.getMessage());
+                    return 0;
+                })
+                .whenComplete((saved, e) -> batchPermits.release()));
+            index = end;
         }
-        return saved;
+
+        return batches.stream().mapToInt(CompletableFuture::join).sum();
     }
 
+    private CompletableFuture<Integer> processBatch(List<String> batch, Map<String, TrackNames> namesByTrackId) {
+        return CompletableFuture.supplyAsync(() -> lookupBatch(batch), reccoBeatsExecutor)
+            .thenCompose(reccoTracks -> {
+                if (reccoTracks == null) {
+                    return CompletableFuture.completedFuture(0);
+                }
+                Set<String> notInReccoBeats = new HashSet<>(batch);
+                reccoTracks.forEach(track -> notInReccoBeats.remove(track.spotifyId()));
+                Set<String> withoutFeatures = ConcurrentHashMap.newKeySet();
+                List<CompletableFuture<TrackFeatures>> features = reccoTracks.stream()
+                    .map(track -> CompletableFuture.supplyAsync(
+                        () -> fetchTrackFeatures(track, namesByTrackId, withoutFeatures), reccoBeatsExecutor))
+                    .toList();
+                return CompletableFuture.allOf(features.toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> {
+                        List<TrackFeatures> fetched = features.stream()
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .toList();
+                        int saved = saveBatch(fetched);
+                        updateTombstones(fetched, notInReccoBeats, withoutFeatures);
+                        return saved;
+                    });
+            });
+    }
 
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> fetchReccoBeatsIds(List<String> spotifyIds, HttpEntity<String> entity) {
+    private void updateTombstones(List<TrackFeatures> fetched, Set<String> notInReccoBeats, Set<String> withoutFeatures) {
         try {
-            String queryParams = spotifyIds.stream()
-                .map(id -> "ids=" + id)
-                .collect(Collectors.joining("&"));
-            String url = RECCOBEATS_API_BASE + "/track?" + queryParams;
-            
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                url, HttpMethod.GET, entity, (Class<Map<String, Object>>)(Class<?>)Map.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                return (List<Map<String, Object>>) response.getBody().get("content");
-            }
-        } catch (Exception e) {
-            logger.debug("Failed to fetch ReccoBeats IDs: {}", e.getMessage());
+            unresolvedTrackService.markResolved(fetched.stream().map(TrackFeatures::getTrackId).toList());
+            unresolvedTrackService.recordMisses(notInReccoBeats, UnresolvedTrack.Reason.NOT_IN_RECCOBEATS);
+            unresolvedTrackService.recordMisses(withoutFeatures, UnresolvedTrack.Reason.NO_AUDIO_FEATURES);
+        } catch (RuntimeException e) {
+            // the tracks are simply retried on the next run
+            logger.warn("Failed to update unresolved track tombstones: {}", e.getMessage());
         }
-        return null;
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> fetchAudioFeatures(String reccobeatsId, HttpEntity<String> entity) {
+    // null when the lookup itself failed, so nothing can be concluded about the batch's tracks
+    private List<ReccoBeatsTrack> lookupBatch(List<String> batch) {
+        long start = System.nanoTime();
         try {
-            String url = RECCOBEATS_API_BASE + "/track/" + reccobeatsId + "/audio-features";
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                url, HttpMethod.GET, entity, (Class<Map<String, Object>>)(Class<?>)Map.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK) {
-                return response.getBody();
+            List<ReccoBeatsTrack> reccoTracks = reccoBeatsClient.lookupTracks(batch);
+            batchSizer.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return reccoTracks;
+        } catch (UpstreamUnavailableException e) {
+            // refused without a call, says nothing about the batch size
+            logger.debug("Skipped ReccoBeats lookup: {}", e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            batchSizer.onFailure();
+            logger.warn("Failed to fetch ReccoBeats IDs for {} tracks: {}", batch.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    private TrackFeatures fetchTrackFeatures(ReccoBeatsTrack reccoTrack, Map<String, TrackNames> namesByTrackId,
+                                             Set<String> withoutFeatures) {
+        String reccobeatsId = reccoTrack.id();
+        String spotifyId = reccoTrack.spotifyId();
+        if (reccobeatsId == null || spotifyId == null) {
+            return null;
+        }
+
+        try {
+            ReccoBeatsAudioFeatures features = reccoBeatsClient.getAudioFeatures(reccobeatsId);
+            if (features == null) {
+                withoutFeatures.add(spotifyId);
+                return null;
             }
-        } catch (Exception e) {
+            TrackNames names = namesByTrackId.get(spotifyId);
+            return names != null
+                ? mapToTrackFeatures(features, names.trackName(), names.artistName(), spotifyId)
+                : mapToTrackFeatures(features, null, spotifyId);
+        } catch (HttpClientErrorException.NotFound e) {
+            withoutFeatures.add(spotifyId);
+            return null;
+        } catch (UpstreamUnavailableException e) {
+            logger.debug("Skipped audio features for ReccoBeats ID {}: {}", reccobeatsId, e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            batchSizer.onFailure();
             logger.debug("Failed to fetch audio features for ReccoBeats ID {}: {}", reccobeatsId, e.getMessage());
+            return null;
         }
-        return null;
     }
 
-    private String extractSpotifyId(String spotifyHref) {
-        if (spotifyHref != null && spotifyHref.contains("/track/")) {
-            return spotifyHref.substring(spotifyHref.lastIndexOf("/") + 1);
+    private int saveBatch(List<TrackFeatures> trackFeatures) {
+        if (trackFeatures.isEmpty()) {
+            return 0;
+        }
+        try {
+            List<TrackFeatures> saved = trackFeaturesRepository.saveAll(trackFeatures);
+            saved.forEach(trackFeature -> knownTrackIndex.markKnown(trackFeature.getTrackId()));
+            return saved.size();
+        } catch (DataIntegrityViolationException e) {
+            // another fetch stored some of these tracks concurrently; keep the rest
+            int saved = 0;
+            for (TrackFeatures trackFeature : trackFeatures) {
+                try {
+                    trackFeaturesRepository.save(trackFeature);
+                    knownTrackIndex.markKnown(trackFeature.getTrackId());
+                    saved++;
+                } catch (DataIntegrityViolationException duplicate) {
+                    // stored by someone else, but stored: without this it would be fetched again every run
+                    knownTrackIndex.markKnown(trackFeature.getTrackId());
+                    logger.debug("Audio features for track {} already stored", trackFeature.getTrackId());
+                }
+            }
+            return saved;
         }
-        return null;
     }
 
-    @SuppressWarnings("unchecked")
     public void fetchAudioFeaturesForTopTracks(String accessToken, String timeRange, int limit) {
-        Map<String, Object> response = spotifyApiService.getTopTracks(accessToken, timeRange, limit);
-        if (response == null || response.get("items") == null) {
-            return;
-        }
-        List<Map<String, Object>> tracks = (List<Map<String, Object>>) response.get("items");
-        if (tracks == null || tracks.isEmpty()) {
+        List<String> topTrackIds = getTopTrackIds(accessToken, timeRange, limit);
+        if (topTrackIds.isEmpty()) {
             return;
         }
 
-        List<String> trackIds = tracks.stream()
-            .map(track -> (String) track.get("id"))
-            .filter(trackId -> !trackFeaturesRepository.existsByTrackId(trackId))
-            .collect(Collectors.toList());
+        List<String> trackIds = unresolvedTrackService.filterDeferred(knownTrackIndex.filterMissing(topTrackIds));
 
         if (trackIds.isEmpty()) {
-            logger.info("All top tracks already have audio features for time range: {}", timeRange);
+            logger.info("No top tracks left to fetch audio features for in time range {} (stored or awaiting re-check)", timeRange);
             return;
         }
 
@@ -205,24 +352,25 @@ public class AudioFeaturesService {
         logger.info("Saved audio features for {} out of {} top tracks for time range {}", saved, trackIds.size(), timeRange);
     }
 
-    @SuppressWarnings("unchecked")
     public Map<String, Object> getAudioInsightsFromTopTracks(String accessToken, String timeRange) {
-        Map<String, Object> response = spotifyApiService.getTopTracks(accessToken, timeRange, DEFAULT_TOP_TRACKS_LIMIT);
-        if (response == null || response.get("items") == null) {
-            return Map.of("message", "No top tracks found for this period");
-        }
-        List<Map<String, Object>> tracks = (List<Map<String, Object>>) response.get("items");
-        if (tracks == null || tracks.isEmpty()) {
+        return Timer.builder("audio_features.insights")
+            .description("Time to compute audio insights from a user's top tracks")
+            .tag("time_range", timeRange)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(() -> computeInsightsFromTopTracks(accessToken, timeRange));
+    }
+
+    private Map<String, Object> computeInsightsFromTopTracks(String accessToken, String timeRange) {
+        List<String> trackIds = getTopTrackIds(accessToken, timeRange, DEFAULT_TOP_TRACKS_LIMIT);
+        if (trackIds.isEmpty()) {
             return Map.of("message", "No top tracks found for this period");
         }
 
-        List<String> trackIds = tracks.stream()
-            .map(track -> (String) track.get("id"))
-            .collect(Collectors.toList());
+        loadIntoStore(trackFeatureStore.findMissing(trackIds));
+        TrackFeatureStore.FeatureAverages featureAverages = trackFeatureStore.averages(trackIds);
 
-        List<TrackFeatures> trackFeatures = trackFeaturesRepository.findByTrackIdIn(trackIds);
-
-        if (trackFeatures.isEmpty()) {
+        if (featureAverages.tracksWithFeatures() == 0) {
             return Map.of(
                 "message", "No audio features available yet. Click 'Update Features' to fetch them.",
                 "totalTracks", trackIds.size(),
@@ -230,86 +378,63 @@ public class AudioFeaturesService {
             );
         }
 
-        Map<String, Double> averages = calculateAverages(trackFeatures);
-        
-        return buildInsightsResponse(trackIds, trackFeatures, averages, 
+        Map<String, Double> averages = Map.of(
+            "energy", featureAverages.energy(),
+            "valence", featureAverages.valence(),
+            "danceability", featureAverages.danceability(),
+            "tempo", featureAverages.tempo(),
+            "acousticness", featureAverages.acousticness()
+        );
+
+        return buildInsightsResponse(trackIds, featureAverages.tracksWithFeatures(), averages, 
             Map.of("timeRange", timeRange));
     }
     
-    private TrackFeatures mapToTrackFeatures(Map<String, Object> features, List<ListeningHistory> listeningHistory, String spotifyId) {
-        try {
-            Optional<ListeningHistory> historyEntry = listeningHistory.stream()
-                .filter(h -> h.getTrackId().equals(spotifyId))
-                .findFirst();
-
-            TrackFeatures trackFeature = new TrackFeatures(
-                spotifyId,
-                historyEntry.map(ListeningHistory::getTrackName).orElse("Unknown"),
-                historyEntry.map(ListeningHistory::getArtistName).orElse("Unknown")
-            );
-
-            // Map float fields (only the ones we actually use)
-            Map<String, java.util.function.BiConsumer<TrackFeatures, Float>> floatFields = Map.of(
-                "acousticness", TrackFeatures::setAcousticness,
-                "danceability", TrackFeatures::setDanceability,
-                "energy", TrackFeatures::setEnergy,
-                "valence", TrackFeatures::setValence,
-                "tempo", TrackFeatures::setTempo
-            );
-            floatFields.forEach((key, setter) -> setFloatField(trackFeature, features, key, setter));
-
-            return trackFeature;
-        } catch (Exception e) {
-            logger.error("Error mapping track features: {}", e.getMessage());
-            return null;
+    private List<String> getTopTrackIds(String accessToken, String timeRange, int limit) {
+        SpotifyPage<SpotifyTrack> response = spotifyApiService.getTopTrackPage(accessToken, timeRange, limit);
+        if (response == null) {
+            return List.of();
         }
+        return response.items().stream()
+            .map(SpotifyTrack::id)
+            .filter(Objects::nonNull)
+            .toList();
     }
 
-    private void setFloatField(TrackFeatures trackFeature, Map<String, Object> features, 
-                               String key, java.util.function.BiConsumer<TrackFeatures, Float> setter) {
-        Float value = getFloatValue(features.get(key));
-        if (value != null) {
-            setter.accept(trackFeature, value);
-        }
+    static TrackFeatures mapToTrackFeatures(ReccoBeatsAudioFeatures features, ListeningHistory listeningHistory, String spotifyId) {
+        Optional<ListeningHistory> historyEntry = Optional.ofNullable(listeningHistory);
+        return mapToTrackFeatures(features,
+            historyEntry.map(ListeningHistory::getTrackName).orElse(null),
+            historyEntry.map(ListeningHistory::getArtistName).orElse(null),
+            spotifyId);
     }
 
-    private Float getFloatValue(Object value) {
-        if (value == null) return null;
-        if (value instanceof Number) return ((Number) value).floatValue();
-        return null;
-    }
-    
-    private Map<String, Double> calculateAverages(List<TrackFeatures> trackFeatures) {
-        Map<String, Double> averages = new HashMap<>();
-        
-        Map<String, java.util.function.Function<TrackFeatures, Float>> featureExtractors = Map.of(
-            "energy", TrackFeatures::getEnergy,
-            "valence", TrackFeatures::getValence,
-            "danceability", TrackFeatures::getDanceability,
-            "tempo", TrackFeatures::getTempo,
-            "acousticness", TrackFeatures::getAcousticness
-        );
-        
-        featureExtractors.forEach((key, extractor) -> 
-            averages.put(key, calculateAverage(trackFeatures, extractor))
+    static TrackFeatures mapToTrackFeatures(ReccoBeatsAudioFeatures features, String trackName, String artistName, String spotifyId) {
+        TrackFeatures trackFeature = new TrackFeatures(
+            spotifyId,
+            trackName != null ? trackName : "Unknown",
+            artistName != null ? artistName : "Unknown"
         );
-        
-        return averages;
+        trackFeature.setAcousticness(features.acousticness());
+        trackFeature.setDanceability(features.danceability());
+        trackFeature.setEnergy(features.energy());
+        trackFeature.setValence(features.valence());
+        trackFeature.setTempo(features.tempo());
+        return trackFeature;
     }
-
-    private double calculateAverage(List<TrackFeatures> trackFeatures,
-                                    java.util.function.Function<TrackFeatures, Float> extractor) {
-        // Simple average: each unique song counts equally
-        return trackFeatures.stream()
-            .mapToDouble(t -> {
-                Float value = extractor.apply(t);
-                return value != null ? value : 0.0;
-            })
-            .average()
-            .orElse(0.0);
+    
+    // Pulls rows the store has not caught up with yet from the database; ids the membership
+    // filter rules out are skipped without a query.
+    private void loadIntoStore(List<String> missingTrackIds) {
+        List<String> candidates = missingTrackIds.stream()
+            .filter(knownTrackIndex::mightBeKnown)
+            .toList();
+        if (!candidates.isEmpty()) {
+            trackFeaturesRepository.findByTrackIdIn(candidates).forEach(trackFeatureStore::put);
+        }
     }
 
-    private String determineMood(double valence, double energy) {
+    static String determineMood(double valence, double energy) {
         boolean isHighValence = valence > HIGH_VALENCE_THRESHOLD;
         boolean isLowValence = valence <= LOW_VALENCE_THRESHOLD;
         boolean isHighEnergy = energy > HIGH_ENERGY_THRESHOLD;
@@ -0,0 +1,226 @@
+package com.spotify.dashboard.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spotify.dashboard.dto.SpotifyArtist;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Genre distributions of a user's top artists for all three Spotify time ranges, computed
+ * together in one pass and kept per user until the underlying top artists change.
+ */
+@Service
+public class GenreAnalyticsService {
+
+    public static final List<String> TIME_RANGES = List.of("short_term", "medium_term", "long_term");
+
+    private static final int TOP_ARTISTS_LIMIT = 50;
+    private static final int TOP_GENRES = 10;
+    private static final int DRIFT_GENRES = 5;
+
+    private final SpotifyApiService spotifyApiService;
+    private final Cache<String, Distributions> distributionsByUser;
+
+    public GenreAnalyticsService(SpotifyApiService spotifyApiService,
+                                 @Value("${cache.spotify.l1.max-entries:10000}") long maxEntries,
+                                 MeterRegistry meterRegistry) {
+        this.spotifyApiService = spotifyApiService;
+        this.distributionsByUser = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterAccess(Duration.ofHours(6))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, distributionsByUser, "genreDistributions");
+    }
+
+    public record GenreShare(String name, int count, double percentage) {
+
+        Map<String, Object> toMap() {
+            return Map.of("name", name, "count", count, "percentage", percentage);
+        }
+    }
+
+    /** Top genres per time range, keyed by range name, plus the artists fingerprint they came from. */
+    record Distributions(long fingerprint, Map<String, List<GenreShare>> byRange,
+                         Map<String, Map<String, Object>> drift) {}
+
+    public List<Map<String, Object>> getGenreDistribution(String accessToken, String timeRange) {
+        return getDistributions(accessToken).byRange().getOrDefault(timeRange, List.of()).stream()
+            .map(GenreShare::toMap)
+            .toList();
+    }
+
+    public Map<String, Object> getAllRanges(String accessToken) {
+        Distributions distributions = getDistributions(accessToken);
+        Map<String, Object> ranges = new LinkedHashMap<>();
+        distributions.byRange().forEach((range, shares) ->
+            ranges.put(range, shares.stream().map(GenreShare::toMap).toList()));
+        return Map.of("ranges", ranges, "drift", distributions.drift());
+    }
+
+    private Distributions getDistributions(String accessToken) {
+        String userId = spotifyApiService.getUserId(accessToken);
+        // top artist pages come from the response cache, so this is cheap once warm
+        List<List<SpotifyArtist>> artistsByRange = TIME_RANGES.stream()
+            .map(range -> spotifyApiService.getTopArtistPage(accessToken, range, TOP_ARTISTS_LIMIT).items())
+            .toList();
+
+        long fingerprint = fingerprint(artistsByRange);
+        Distributions cached = distributionsByUser.getIfPresent(userId);
+        if (cached != null && cached.fingerprint() == fingerprint) {
+            return cached;
+        }
+
+        Distributions computed = computeDistributions(fingerprint, artistsByRange, TOP_GENRES);
+        distributionsByUser.put(userId, computed);
+        return computed;
+    }
+
+    /**
+     * Counts genres for every range in a single pass over all artists, then keeps the
+     * {@code limit} most common genres of each range with a bounded min-heap and derives
+     * the drift between ranges from the same counts.
+     */
+    static Distributions computeDistributions(long fingerprint, List<List<SpotifyArtist>> artistsByRange, int limit) {
+        Map<String, int[]> counts = countGenres(artistsByRange);
+        Map<String, List<GenreShare>> byRange = new LinkedHashMap<>();
+        for (int range = 0; range < artistsByRange.size(); range++) {
+            byRange.put(TIME_RANGES.get(range), topGenres(counts, range, artistsByRange.get(range).size(), limit));
+        }
+        return new Distributions(fingerprint, byRange, computeDrift(counts, artistsByRange));
+    }
+
+    private static Map<String, int[]> countGenres(List<List<SpotifyArtist>> artistsByRange) {
+        int ranges = artistsByRange.size();
+        Map<String, int[]> counts = new HashMap<>();
+        for (int range = 0; range < ranges; range++) {
+            for (SpotifyArtist artist : artistsByRange.get(range)) {
+                for (String genre : artist.genres()) {
+                    counts.computeIfAbsent(genre, ignored -> new int[ranges])[range]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static List<GenreShare> topGenres(Map<String, int[]> counts, int range, int artistCount, int limit) {
+        if (artistCount == 0) {
+            return List.of();
+        }
+        // min-heap on (count, then reverse name) so the root is always the weakest of the current top K
+        Comparator<Map.Entry<String, int[]>> weakestFirst = Comparator
+            .<Map.Entry<String, int[]>>comparingInt(entry -> entry.getValue()[range])
+            .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+        PriorityQueue<Map.Entry<String, int[]>> heap = new PriorityQueue<>(limit + 1, weakestFirst);
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            if (entry.getValue()[range] == 0) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.offer(entry);
+            } else if (weakestFirst.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(entry);
+            }
+        }
+
+        GenreShare[] top = new GenreShare[heap.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            Map.Entry<String, int[]> entry = heap.poll();
+            int count = entry.getValue()[range];
+            top[i] = new GenreShare(entry.getKey(), count, percentage(count, artistCount));
+        }
+        return List.of(top);
+    }
+
+    /**
+     * Compares each pair of ranges, newer against older: the total variation distance between
+     * their genre mixes (0 = identical, 1 = disjoint) and the genres that gained or lost the most
+     * share of artists, in percentage points.
+     */
+    private static Map<String, Map<String, Object>> computeDrift(Map<String, int[]> counts,
+                                                                 List<List<SpotifyArtist>> artistsByRange) {
+        int[] mentions = new int[TIME_RANGES.size()];
+        counts.values().forEach(perRange -> {
+            for (int range = 0; range < perRange.length; range++) {
+                mentions[range] += perRange[range];
+            }
+        });
+
+        Map<String, Map<String, Object>> drift = new LinkedHashMap<>();
+        for (int newer = 0; newer < TIME_RANGES.size(); newer++) {
+            for (int older = newer + 1; older < TIME_RANGES.size(); older++) {
+                drift.put(TIME_RANGES.get(newer) + "_vs_" + TIME_RANGES.get(older),
+                    compareRanges(counts, mentions, artistsByRange, newer, older));
+            }
+        }
+        return drift;
+    }
+
+    private static Map<String, Object> compareRanges(Map<String, int[]> counts, int[] mentions,
+                                                     List<List<SpotifyArtist>> artistsByRange, int newer, int older) {
+        int newerArtists = artistsByRange.get(newer).size();
+        int olderArtists = artistsByRange.get(older).size();
+        double distance = 0;
+        List<Map.Entry<String, Double>> changes = new ArrayList<>(counts.size());
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            int[] perRange = entry.getValue();
+            double newerShare = mentions[newer] == 0 ? 0 : (double) perRange[newer] / mentions[newer];
+            double olderShare = mentions[older] == 0 ? 0 : (double) perRange[older] / mentions[older];
+            distance += Math.abs(newerShare - olderShare);
+
+            double change = percentage(perRange[newer], newerArtists) - percentage(perRange[older], olderArtists);
+            if (change != 0) {
+                changes.add(Map.entry(entry.getKey(), change));
+            }
+        }
+
+        List<Map<String, Object>> rising = changes.stream()
+            .filter(change -> change.getValue() > 0)
+            .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry::getKey))
+            .limit(DRIFT_GENRES)
+            .map(GenreAnalyticsService::changeToMap)
+            .toList();
+        List<Map<String, Object>> falling = changes.stream()
+            .filter(change -> change.getValue() < 0)
+            .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry::getKey))
+            .limit(DRIFT_GENRES)
+            .map(GenreAnalyticsService::changeToMap)
+            .toList();
+
+        return Map.of(
+            "distance", Math.round(distance / 2 * 1000.0) / 1000.0,
+            "rising", rising,
+            "falling", falling
+        );
+    }
+
+    private static Map<String, Object> changeToMap(Map.Entry<String, Double> change) {
+        return Map.of("name", change.getKey(), "change", Math.round(change.getValue() * 100.0) / 100.0);
+    }
+
+    private static double percentage(int count, int artistCount) {
+        if (artistCount == 0) {
+            return 0.0;
+        }
+        return Math.round(count * 100.0 / artistCount * 100.0) / 100.0;
+    }
+
+    private static long fingerprint(List<List<SpotifyArtist>> artistsByRange) {
+        long hash = 1125899906842597L;
+        for (List<SpotifyArtist> artists : artistsByRange) {
+            hash = 31 * hash + artists.size();
+            for (SpotifyArtist artist : artists) {
+                hash = 31 * hash + Objects.hashCode(artist.id());
+                hash = 31 * hash + artist.genres().hashCode();
+            }
+        }
+        return hash;
+    }
+}
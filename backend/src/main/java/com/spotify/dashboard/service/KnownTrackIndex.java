@@ -0,0 +1,109 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.repository.TrackFeaturesRepository;
+import com.spotify.dashboard.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter of track ids that already have a {@code track_features} row.
+ *
+ * A negative answer is definitive, so ids the filter has never seen are reported missing
+ * without touching Postgres; only possible hits are confirmed with one batched query.
+ * Until the startup warm-up finishes every id is confirmed against the database. Afterwards
+ * ids saved by other replicas are added by {@link TrackFeatureStore}'s catch-up, so for at most
+ * one catch-up interval such an id can still be reported missing.
+ */
+@Service
+public class KnownTrackIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnownTrackIndex.class);
+
+    private final TrackFeaturesRepository trackFeaturesRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BloomFilter knownTrackIds;
+    private volatile boolean warmed;
+
+    private final Counter filterNegatives;
+    private final Counter databaseChecks;
+    private final Counter falsePositives;
+
+    public KnownTrackIndex(TrackFeaturesRepository trackFeaturesRepository,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${track-features.known-ids.expected-insertions:1000000}") long expectedInsertions,
+                           @Value("${track-features.known-ids.false-positive-rate:0.01}") double falsePositiveRate,
+                           MeterRegistry meterRegistry) {
+        this.trackFeaturesRepository = trackFeaturesRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.knownTrackIds = BloomFilter.create(expectedInsertions, falsePositiveRate);
+
+        this.filterNegatives = Counter.builder("track_features.known_ids.checks").tag("result", "filter_negative")
+            .register(meterRegistry);
+        this.databaseChecks = Counter.builder("track_features.known_ids.checks").tag("result", "database")
+            .register(meterRegistry);
+        this.falsePositives = Counter.builder("track_features.known_ids.false_positives")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        Long loaded = transactionTemplate.execute(status -> {
+            try (Stream<String> trackIds = trackFeaturesRepository.streamAllTrackIds()) {
+                return trackIds.peek(knownTrackIds::put).count();
+            }
+        });
+        warmed = true;
+        logger.info("Loaded {} known track ids into membership filter in {} ms",
+            loaded, System.currentTimeMillis() - start);
+    }
+
+    public void markKnown(String trackId) {
+        knownTrackIds.put(trackId);
+    }
+
+    /** False only when the track is definitely not stored; true before the filter is warmed. */
+    public boolean mightBeKnown(String trackId) {
+        return !warmed || knownTrackIds.mightContain(trackId);
+    }
+
+    /** Returns the given track ids that have no stored audio features, preserving order. */
+    public List<String> filterMissing(Collection<String> trackIds) {
+        List<String> candidates = new ArrayList<>();
+        for (String trackId : trackIds) {
+            if (warmed && !knownTrackIds.mightContain(trackId)) {
+                filterNegatives.increment();
+            } else {
+                candidates.add(trackId);
+            }
+        }
+
+        Set<String> existing = new HashSet<>();
+        if (!candidates.isEmpty()) {
+            databaseChecks.increment(candidates.size());
+            existing.addAll(trackFeaturesRepository.findExistingTrackIds(candidates));
+            if (warmed) {
+                falsePositives.increment(candidates.size() - existing.size());
+            }
+        }
+
+        return trackIds.stream()
+            .distinct()
+            .filter(trackId -> !existing.contains(trackId))
+            .toList();
+    }
+}
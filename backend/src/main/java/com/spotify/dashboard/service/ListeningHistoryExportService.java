@@ -0,0 +1,271 @@
+package com.spotify.dashboard.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.dashboard.exception.ExportLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams a user's complete listening history as NDJSON or CSV.
+ *
+ * Rows are read through a forward-only cursor with a fixed fetch size (Postgres only uses a
+ * cursor inside a transaction) and written straight to the response, so memory use does not
+ * depend on how much history the user has and the first bytes go out immediately.
+ *
+ * The cursor keeps a transaction, and so a pooled connection, open until the last row is written,
+ * however slowly the client reads. Exports are therefore capped at {@code max-concurrent} at a time
+ * and the transaction is given a timeout, so downloads cannot take the whole pool between them.
+ */
+@Service
+public class ListeningHistoryExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String fileExtension;
+
+        Format(String contentType, String fileExtension) {
+            this.contentType = contentType;
+            this.fileExtension = fileExtension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileExtension() {
+            return fileExtension;
+        }
+    }
+
+    private static final String EXPORT_SQL =
+        "SELECT played_at, track_id, track_name, artist_name FROM listening_history " +
+        "WHERE user_id = ? ORDER BY played_at, track_id";
+    private static final String CSV_HEADER = "played_at,track_id,track_name,artist_name\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final int maxConcurrent;
+    private final int timeoutSeconds;
+    private final Semaphore exportSlots;
+    private final Counter exportedRows;
+    private final Counter rejectedExports;
+
+    public ListeningHistoryExportService(JdbcTemplate jdbcTemplate,
+                                         PlatformTransactionManager transactionManager,
+                                         ObjectMapper objectMapper,
+                                         @Value("${listening-history.export.fetch-size:1000}") int fetchSize,
+                                         @Value("${listening-history.export.max-concurrent:4}") int maxConcurrent,
+                                         @Value("${listening-history.export.timeout-seconds:300}") int timeoutSeconds,
+                                         MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // bounds the query itself; writeRow enforces the same deadline on the download
+        this.readOnlyTransaction.setTimeout(timeoutSeconds);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutSeconds = timeoutSeconds;
+        this.exportSlots = new Semaphore(maxConcurrent);
+        this.exportedRows = Counter.builder("listening_history.export.rows")
+            .description("Listening history rows written by exports")
+            .register(meterRegistry);
+        this.rejectedExports = Counter.builder("listening_history.export.rejected")
+            .description("Exports refused because every export slot was taken")
+            .register(meterRegistry);
+        Gauge.builder("listening_history.export.in_progress", exportSlots, slots -> maxConcurrent - slots.availablePermits())
+            .description("Exports holding an export slot")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Claims an export slot for {@code userId}'s history, failing with
+     * {@link ExportLimitExceededException} when all of them are taken. Claim it before the
+     * response starts, so the refusal can still be sent as an error; the slot is released when
+     * {@link Export#writeTo} returns.
+     */
+    public Export reserve(String userId, Format format) {
+        if (!exportSlots.tryAcquire()) {
+            rejectedExports.increment();
+            throw new ExportLimitExceededException("All " + maxConcurrent + " export slots are taken");
+        }
+        return new Export(userId, format);
+    }
+
+    /** A reserved export, written at most once. */
+    public final class Export {
+
+        private final String userId;
+        private final Format format;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Export(String userId, Format format) {
+            this.userId = userId;
+            this.format = format;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            try {
+                export(userId, format, out);
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    exportSlots.release();
+                }
+            }
+        }
+    }
+
+    private void export(String userId, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        PlayWriter playWriter = format == Format.CSV ? new CsvPlayWriter(writer) : new NdjsonPlayWriter(writer);
+        long[] rowsWritten = {0};
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                        EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    statement.setString(1, userId);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> writeRow(playWriter, rs, ++rowsWritten[0], deadlineNanos)));
+        } catch (UncheckedIOException e) {
+            // usually the client went away mid-download
+            throw e.getCause();
+        }
+        playWriter.finish();
+    }
+
+    private void writeRow(PlayWriter playWriter, ResultSet rs, long rowNumber, long deadlineNanos) throws SQLException {
+        // a client reading slowly keeps the cursor's connection; the query timeout alone would not stop that
+        if (System.nanoTime() - deadlineNanos > 0) {
+            throw new TransactionTimedOutException("Export did not finish within " + timeoutSeconds + "s");
+        }
+        try {
+            playWriter.write(rs.getObject("played_at", LocalDateTime.class), rs.getString("track_id"),
+                rs.getString("track_name"), rs.getString("artist_name"));
+            exportedRows.increment();
+            // get the download going at once, then push each fetched batch instead of waiting for buffers to fill
+            if (rowNumber == 1 || rowNumber % fetchSize == 0) {
+                playWriter.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface PlayWriter {
+
+        void write(LocalDateTime playedAt, String trackId, String trackName, String artistName) throws IOException;
+
+        void flush() throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonPlayWriter implements PlayWriter {
+
+        private final JsonGenerator generator;
+
+        NdjsonPlayWriter(Writer writer) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            // each record ends with its own newline instead of Jackson's default space between root values
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(LocalDateTime playedAt, String trackId, String trackName, String artistName) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("playedAt", playedAt.toString());
+            generator.writeStringField("trackId", trackId);
+            generator.writeStringField("trackName", trackName);
+            generator.writeStringField("artistName", artistName);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CsvPlayWriter implements PlayWriter {
+
+        private final Writer writer;
+
+        CsvPlayWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(CSV_HEADER);
+        }
+
+        @Override
+        public void write(LocalDateTime playedAt, String trackId, String trackName, String artistName) throws IOException {
+            writer.write(playedAt.toString());
+            writer.write(',');
+            writeField(trackId);
+            writer.write(',');
+            writeField(trackName);
+            writer.write(',');
+            writeField(artistName);
+            writer.write('\n');
+        }
+
+        // RFC 4180: quote fields containing separators, quotes or line breaks and double the quotes
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+}
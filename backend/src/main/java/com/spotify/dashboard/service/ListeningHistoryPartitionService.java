@@ -0,0 +1,298 @@
+package com.spotify.dashboard.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps listening_history range-partitioned by month on played_at.
+ *
+ * Partitions are created ahead of time so ingests never wait on DDL, and history older than the
+ * retention window goes by dropping whole partitions instead of DELETE, which leaves no dead rows
+ * or index bloat behind. This runs before Hibernate updates the schema (see DatabaseConfig): a
+ * fresh database gets the partitioned table from the start and an existing plain table is
+ * converted once, in a single transaction.
+ *
+ * Plays are deduplicated on (user_id, played_at, track_id) before uk_listening_history_play is
+ * created, whether by the conversion or on a partitioned table that lacks it, so databases that
+ * stored duplicates before the constraint existed can still be migrated. The oldest copy is kept
+ * and the rollups, which counted every copy, are cleared to be rebuilt.
+ *
+ * Each month is created or dropped under its own savepoint, so one that fails (and is retried
+ * on the next run) does not hold back the others or roll back the rest of the maintenance.
+ */
+@Service
+public class ListeningHistoryPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListeningHistoryPartitionService.class);
+
+    private static final String TABLE = "listening_history";
+    private static final String UNPARTITIONED_TABLE = TABLE + "_unpartitioned";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String ID_SEQUENCE = TABLE + "_play_id_seq";
+    private static final String PLAY_CONSTRAINT = "uk_listening_history_play";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    // serialises maintenance when several instances start or run it at the same time
+    private static final long MAINTENANCE_LOCK_KEY = 7_316_240_015L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate savepointTemplate;
+    private final int premakeMonths;
+    private final int retentionMonths;
+
+    public ListeningHistoryPartitionService(JdbcTemplate jdbcTemplate,
+                                            DataSource dataSource,
+                                            @Value("${listening-history.partitions.premake-months:3}") int premakeMonths,
+                                            @Value("${listening-history.partitions.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        // the JPA transaction manager does not exist yet when this first runs
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            // the database may not be up yet; the scheduled maintenance retries
+            logger.error("Failed to prepare listening_history partitions: {}", e.getMessage(), e);
+        }
+    }
+
+    public void maintain() {
+        YearMonth currentMonth = YearMonth.now(ZoneOffset.UTC);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MAINTENANCE_LOCK_KEY + ")");
+
+            String relkind = jdbcTemplate.query(
+                "SELECT relkind FROM pg_class WHERE oid = to_regclass(?)",
+                rs -> rs.next() ? rs.getString(1) : null, TABLE);
+            if (relkind == null) {
+                createPartitionedTable();
+                logger.info("Created partitioned {} table", TABLE);
+            } else if ("r".equals(relkind)) {
+                convertToPartitioned(currentMonth);
+            } else {
+                ensurePlayConstraint();
+            }
+
+            createUpcomingPartitions(currentMonth);
+            dropExpiredPartitions(currentMonth);
+        });
+    }
+
+    private void createPartitionedTable() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + ID_SEQUENCE);
+        // primary and unique keys of a partitioned table must include the partition key
+        jdbcTemplate.execute(
+            "CREATE TABLE " + TABLE + " (" +
+            "id bigint NOT NULL DEFAULT nextval('" + ID_SEQUENCE + "'), " +
+            "user_id varchar(255) NOT NULL, " +
+            "track_id varchar(255) NOT NULL, " +
+            "track_name varchar(255) NOT NULL, " +
+            "artist_name varchar(255) NOT NULL, " +
+            "played_at timestamp(6) NOT NULL, " +
+            "CONSTRAINT listening_history_pkey PRIMARY KEY (id, played_at), " +
+            "CONSTRAINT " + PLAY_CONSTRAINT + " UNIQUE (user_id, played_at, track_id)" +
+            ") PARTITION BY RANGE (played_at)");
+        jdbcTemplate.execute("ALTER SEQUENCE " + ID_SEQUENCE + " OWNED BY " + TABLE + ".id");
+        // catches plays outside every monthly partition, e.g. older than the retention window
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+    }
+
+    private void convertToPartitioned(YearMonth currentMonth) {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + UNPARTITIONED_TABLE);
+        // constraint indexes are named schema-wide, free the names for the new table
+        jdbcTemplate.execute("ALTER TABLE " + UNPARTITIONED_TABLE +
+            " DROP CONSTRAINT IF EXISTS " + PLAY_CONSTRAINT + ", DROP CONSTRAINT IF EXISTS listening_history_pkey");
+        deleteDuplicatePlays(UNPARTITIONED_TABLE);
+        createPartitionedTable();
+
+        LocalDateTime firstPlay = jdbcTemplate.queryForObject(
+            "SELECT MIN(played_at) FROM " + UNPARTITIONED_TABLE, LocalDateTime.class);
+        if (firstPlay != null) {
+            for (YearMonth month : missingMonths(Set.of(), YearMonth.from(firstPlay), currentMonth)) {
+                createPartition(month);
+            }
+        }
+        int copied = jdbcTemplate.update(
+            "INSERT INTO " + TABLE + " (id, user_id, track_id, track_name, artist_name, played_at) " +
+            "SELECT id, user_id, track_id, track_name, artist_name, played_at FROM " + UNPARTITIONED_TABLE);
+        jdbcTemplate.execute("SELECT setval('" + ID_SEQUENCE + "', (SELECT COALESCE(MAX(id), 0) + 1 FROM " + TABLE + "), false)");
+        jdbcTemplate.execute("DROP TABLE " + UNPARTITIONED_TABLE);
+        logger.info("Converted {} to monthly partitions: {} rows in {} ms",
+            TABLE, copied, System.currentTimeMillis() - start);
+    }
+
+    private void ensurePlayConstraint() {
+        Boolean present = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = to_regclass(?) AND conname = ?)",
+            Boolean.class, TABLE, PLAY_CONSTRAINT);
+        if (Boolean.TRUE.equals(present)) {
+            return;
+        }
+        deleteDuplicatePlays(TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + PLAY_CONSTRAINT +
+            " UNIQUE (user_id, played_at, track_id)");
+        logger.info("Added {} to {}", PLAY_CONSTRAINT, TABLE);
+    }
+
+    private void deleteDuplicatePlays(String table) {
+        int deleted = jdbcTemplate.update(
+            "DELETE FROM " + table + " duplicate USING " + table + " kept " +
+            "WHERE duplicate.user_id = kept.user_id AND duplicate.played_at = kept.played_at " +
+            "AND duplicate.track_id = kept.track_id AND duplicate.id > kept.id");
+        if (deleted == 0) {
+            return;
+        }
+        logger.warn("Deleted {} duplicate plays from {}", deleted, table);
+        // the rollups counted them; ListeningRollupService rebuilds empty rollups once the application is ready
+        if (jdbcTemplate.queryForObject("SELECT to_regclass('listening_hourly_rollup')", String.class) != null) {
+            jdbcTemplate.update("DELETE FROM listening_hourly_rollup");
+        }
+    }
+
+    private void createUpcomingPartitions(YearMonth currentMonth) {
+        List<YearMonth> missing = missingMonths(existingPartitionMonths(), currentMonth, currentMonth.plusMonths(premakeMonths));
+        for (YearMonth month : missing) {
+            inSavepoint("create the partition for " + month, () -> {
+                createPartition(month);
+                logger.info("Created {} partition for {}", TABLE, month);
+            });
+        }
+    }
+
+    /**
+     * Postgres refuses to add a partition while the default partition holds rows in its range,
+     * e.g. plays that arrived before the month was premade. Those are moved into the new partition,
+     * with the default detached meanwhile so the move cannot route them back into it.
+     */
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        String bounds = " FOR VALUES FROM ('" + month.atDay(1) + " 00:00:00') TO ('" + month.plusMonths(1).atDay(1) + " 00:00:00')";
+
+        Boolean strayRows = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE played_at >= ? AND played_at < ?)",
+            Boolean.class, from, to);
+        if (!Boolean.TRUE.equals(strayRows)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + TABLE + bounds);
+            return;
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + DEFAULT_PARTITION);
+        jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF " + TABLE + bounds);
+        int moved = jdbcTemplate.update(
+            "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE played_at >= ? AND played_at < ? " +
+            "RETURNING id, user_id, track_id, track_name, artist_name, played_at) " +
+            "INSERT INTO " + partition + " (id, user_id, track_id, track_name, artist_name, played_at) " +
+            "SELECT id, user_id, track_id, track_name, artist_name, played_at FROM moved",
+            from, to);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+        logger.info("Moved {} plays for {} out of {}", moved, month, DEFAULT_PARTITION);
+    }
+
+    private void inSavepoint(String action, Runnable work) {
+        try {
+            savepointTemplate.executeWithoutResult(status -> work.run());
+        } catch (Exception e) {
+            logger.error("{} maintenance failed to {}, retrying on the next run: {}", TABLE, action, e.getMessage(), e);
+        }
+    }
+
+    private void dropExpiredPartitions(YearMonth currentMonth) {
+        if (retentionMonths <= 0) {
+            return;
+        }
+        for (YearMonth month : expiredMonths(existingPartitionMonths(), currentMonth, retentionMonths)) {
+            inSavepoint("drop the partition for " + month, () -> {
+                jdbcTemplate.execute("DROP TABLE " + partitionName(month));
+                logger.info("Dropped {} partition for {} (retention {} months)", TABLE, month, retentionMonths);
+            });
+        }
+        LocalDateTime cutoff = currentMonth.minusMonths(retentionMonths).atDay(1).atStartOfDay();
+        inSavepoint("delete expired plays from the default partition", () -> {
+            int stray = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE played_at < ?", cutoff);
+            if (stray > 0) {
+                logger.info("Deleted {} expired plays from {}", stray, DEFAULT_PARTITION);
+            }
+        });
+    }
+
+    private Set<YearMonth> existingPartitionMonths() {
+        List<String> names = jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = to_regclass(?)", String.class, TABLE);
+        Set<YearMonth> months = new HashSet<>();
+        for (String name : names) {
+            YearMonth month = partitionMonth(name);
+            if (month != null) {
+                months.add(month);
+            }
+        }
+        return months;
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    /** The month a partition covers, or null for tables that are not monthly partitions. */
+    static YearMonth partitionMonth(String tableName) {
+        if (!tableName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(tableName.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    static List<YearMonth> missingMonths(Set<YearMonth> existing, YearMonth from, YearMonth to) {
+        List<YearMonth> missing = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            if (!existing.contains(month)) {
+                missing.add(month);
+            }
+        }
+        return missing;
+    }
+
+    /** Months entirely before the retention window, which keeps the current month plus {@code retentionMonths} before it. */
+    static List<YearMonth> expiredMonths(Collection<YearMonth> existing, YearMonth currentMonth, int retentionMonths) {
+        YearMonth oldestKept = currentMonth.minusMonths(retentionMonths);
+        return existing.stream()
+            .filter(month -> month.isBefore(oldestKept))
+            .sorted()
+            .toList();
+    }
+}
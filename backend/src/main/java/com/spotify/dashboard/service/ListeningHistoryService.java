@@ -1,16 +1,29 @@
 package com.spotify.dashboard.service;
 
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.dto.RecentlyPlayedItem;
+import com.spotify.dashboard.dto.SpotifyPage;
+import com.spotify.dashboard.dto.SpotifyTrack;
 import com.spotify.dashboard.model.ListeningHistory;
 import com.spotify.dashboard.repository.ListeningHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
@@ -18,74 +31,153 @@ import java.util.*;
 public class ListeningHistoryService {
 
     private static final Logger logger = LoggerFactory.getLogger(ListeningHistoryService.class);
-    private static final int RECENTLY_PLAYED_LIMIT = 50;
+    public static final int RECENTLY_PLAYED_LIMIT = 50;
+    private static final ParameterizedTypeReference<SpotifyPage<RecentlyPlayedItem>> RECENTLY_PLAYED_TYPE =
+        new ParameterizedTypeReference<>() {};
     
     private final ListeningHistoryRepository repository;
     private final RestTemplate restTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ListeningRollupService listeningRollupService;
+    private final TrackEnrichmentQueue trackEnrichmentQueue;
+    private final Counter fullWindowCounter;
+    private final Timer cursorQueryTimer;
+    private final Timer insertTimer;
+    private final Timer rollupTimer;
+    private final Timer enqueueTimer;
+    private final Timer ingestLagTimer;
 
     @Value("${spotify.api.base-url}")
     private String spotifyApiBaseUrl;
 
-    public ListeningHistoryService(ListeningHistoryRepository repository, RestTemplate restTemplate) {
+    public ListeningHistoryService(ListeningHistoryRepository repository,
+                                   @Qualifier(AppConfig.SPOTIFY_API) RestTemplate restTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   ListeningRollupService listeningRollupService,
+                                   TrackEnrichmentQueue trackEnrichmentQueue,
+                                   MeterRegistry meterRegistry) {
         this.repository = repository;
         this.restTemplate = restTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.listeningRollupService = listeningRollupService;
+        this.trackEnrichmentQueue = trackEnrichmentQueue;
+        this.fullWindowCounter = Counter.builder("listening_history.poll.window_full")
+            .description("Polls that returned a full recently-played window, so older plays may have been missed")
+            .register(meterRegistry);
+        this.cursorQueryTimer = ingestStepTimer(meterRegistry, "cursor");
+        this.insertTimer = ingestStepTimer(meterRegistry, "insert");
+        this.rollupTimer = ingestStepTimer(meterRegistry, "rollup");
+        this.enqueueTimer = ingestStepTimer(meterRegistry, "enqueue");
+        this.ingestLagTimer = Timer.builder("listening_history.ingest.lag")
+            .description("Time from a play until it was stored, for the oldest new play of each user poll")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
     }
 
-    @SuppressWarnings("unchecked")
-    public void pollRecentlyPlayed(String userId, String accessToken) {
-        try {
-            Optional<LocalDateTime> lastPlayedAt = repository.findLatestPlayedAtByUserId(userId);
-            Long afterTimestamp = lastPlayedAt.map(dt -> dt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()).orElse(null);
+    private static Timer ingestStepTimer(MeterRegistry meterRegistry, String step) {
+        return Timer.builder("listening_history.ingest.query")
+            .description("Database work on the listening history ingest path")
+            .tag("step", step)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
 
-            String url = spotifyApiBaseUrl + "/me/player/recently-played?limit=" + RECENTLY_PLAYED_LIMIT;
-            if (afterTimestamp != null) {
-                url += "&after=" + afterTimestamp;
-            }
+    /** Outcome of one poll: how many items Spotify returned and how many of them were new. */
+    public record PollResult(int itemsReturned, int newPlays) {
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
+        static final PollResult EMPTY = new PollResult(0, 0);
 
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(url, HttpMethod.GET, entity, (Class<Map<String, Object>>)(Class<?>)Map.class);
-            
-            if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
-                return;
-            }
+        /** Spotify only returns the last 50 plays, so anything older than the window is gone. */
+        public boolean windowFull() {
+            return itemsReturned >= RECENTLY_PLAYED_LIMIT;
+        }
+    }
 
-            List<Map<String, Object>> items = (List<Map<String, Object>>) response.getBody().get("items");
-            if (items == null || items.isEmpty()) {
-                return;
-            }
-            
-            int newPlaysStored = 0;
-            
-            for (Map<String, Object> item : items) {
-                String playedAtStr = (String) item.get("played_at");
-                LocalDateTime playedAt = LocalDateTime.parse(playedAtStr, DateTimeFormatter.ISO_DATE_TIME);
-                
-                Map<String, Object> track = (Map<String, Object>) item.get("track");
-                String trackId = (String) track.get("id");
-                
-                if (!repository.existsByUserIdAndTrackIdAndPlayedAt(userId, trackId, playedAt)) {
-                    String trackName = (String) track.get("name");
-                    
-                    List<Map<String, Object>> artists = (List<Map<String, Object>>) track.get("artists");
-                    String artistName = artists.isEmpty() ? "Unknown" : (String) artists.get(0).get("name");
-                    
-                    ListeningHistory history = new ListeningHistory(
-                        userId, trackId, trackName, artistName, playedAt
-                    );
-                    repository.save(history);
-                    newPlaysStored++;
-                }
-            }
-            
-            if (newPlaysStored > 0) {
-                logger.info("Stored {} new plays for user {}", newPlaysStored, userId);
+    /**
+     * Fetches the user's recently played tracks and stores the ones we have not seen yet.
+     * Failures propagate: an empty result always means Spotify had nothing new, never that the
+     * poll did not happen.
+     */
+    public PollResult pollRecentlyPlayed(String userId, String accessToken) {
+        Optional<LocalDateTime> lastPlayedAt = cursorQueryTimer.record(() -> latestPlayedAt(userId));
+        Long afterTimestamp = lastPlayedAt.map(dt -> dt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()).orElse(null);
+
+        String url = spotifyApiBaseUrl + "/me/player/recently-played?limit=" + RECENTLY_PLAYED_LIMIT;
+        if (afterTimestamp != null) {
+            url += "&after=" + afterTimestamp;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        HttpEntity<String> entity = new HttpEntity<>(headers);
+
+        ResponseEntity<SpotifyPage<RecentlyPlayedItem>> response =
+            restTemplate.exchange(url, HttpMethod.GET, entity, RECENTLY_PLAYED_TYPE);
+        
+        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+            return PollResult.EMPTY;
+        }
+
+        List<RecentlyPlayedItem> items = response.getBody().items();
+        if (items.isEmpty()) {
+            return PollResult.EMPTY;
+        }
+        if (items.size() >= RECENTLY_PLAYED_LIMIT) {
+            fullWindowCounter.increment();
+            logger.debug("Recently played window was full for user {}, older plays may be missing", userId);
+        }
+        
+        List<ListeningHistory> plays = new ArrayList<>(items.size());
+        for (RecentlyPlayedItem item : items) {
+            SpotifyTrack track = item.track();
+            // local files and unavailable tracks come back without an id
+            if (track == null || track.id() == null) {
+                continue;
             }
-        } catch (Exception e) {
-            logger.error("Error polling recently played for user {}: {}", userId, e.getMessage());
+            LocalDateTime playedAt = LocalDateTime.parse(item.playedAt(), DateTimeFormatter.ISO_DATE_TIME);
+            plays.add(new ListeningHistory(userId, track.id(), track.name(), track.primaryArtistName(), playedAt));
+        }
+
+        List<ListeningHistory> newPlays = transactionTemplate.execute(status -> {
+            List<ListeningHistory> inserted = insertTimer.record(() -> repository.insertIgnoringDuplicates(plays));
+            rollupTimer.record(() -> listeningRollupService.recordPlays(inserted));
+            enqueueTimer.record(() -> trackEnrichmentQueue.enqueue(inserted));
+            return inserted;
+        });
+        int stored = newPlays != null ? newPlays.size() : 0;
+        
+        if (stored > 0) {
+            recordIngestLag(newPlays);
+            logger.info("Stored {} new plays for user {}", stored, userId);
         }
+        return new PollResult(items.size(), stored);
+    }
+
+    /**
+     * The newest stored play, looked up in the current and previous monthly partitions first so
+     * the common case never touches older ones. Only users with nothing that recent pay for a
+     * scan of every partition.
+     */
+    private Optional<LocalDateTime> latestPlayedAt(String userId) {
+        Optional<LocalDateTime> recent = repository.findLatestPlayedAtByUserIdSince(
+            userId, recentWindowStart(YearMonth.now(ZoneOffset.UTC)));
+        return recent.isPresent() ? recent : repository.findLatestPlayedAtByUserId(userId);
+    }
+
+    // start of the previous month, a partition boundary
+    static LocalDateTime recentWindowStart(YearMonth currentMonth) {
+        return currentMonth.minusMonths(1).atDay(1).atStartOfDay();
     }
-}
 
+    // played_at is stored as UTC wall-clock time
+    private void recordIngestLag(List<ListeningHistory> newPlays) {
+        LocalDateTime oldest = newPlays.stream()
+            .map(ListeningHistory::getPlayedAt)
+            .min(LocalDateTime::compareTo)
+            .orElseThrow();
+        Duration lag = Duration.between(oldest, LocalDateTime.now(ZoneOffset.UTC));
+        if (!lag.isNegative()) {
+            ingestLagTimer.record(lag);
+        }
+    }
+}
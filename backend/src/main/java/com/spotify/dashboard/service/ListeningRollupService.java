@@ -0,0 +1,211 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.model.ArtistListeningRollup;
+import com.spotify.dashboard.model.DailyListeningRollup;
+import com.spotify.dashboard.model.HourlyListeningRollup;
+import com.spotify.dashboard.model.ListeningHistory;
+import com.spotify.dashboard.repository.ArtistListeningRollupRepository;
+import com.spotify.dashboard.repository.DailyListeningRollupRepository;
+import com.spotify.dashboard.repository.HourlyListeningRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains per-user play counts by hour of day, by day and by artist.
+ *
+ * Counts are bumped in the same transaction that inserts new plays, so analytics
+ * endpoints read a handful of pre-aggregated rows instead of scanning listening_history.
+ */
+@Service
+public class ListeningRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListeningRollupService.class);
+    private static final int HOURS_PER_DAY = 24;
+    // serialises rebuilds across instances, so each decides whether to rebuild after the previous one committed
+    private static final long REBUILD_LOCK_KEY = 7_316_240_006L;
+
+    private static final String UPSERT_HOURLY_SQL =
+        "INSERT INTO listening_hourly_rollup (user_id, hour_of_day, play_count) VALUES (?, ?, ?) " +
+        "ON CONFLICT (user_id, hour_of_day) DO UPDATE SET play_count = listening_hourly_rollup.play_count + EXCLUDED.play_count";
+    private static final String UPSERT_DAILY_SQL =
+        "INSERT INTO listening_daily_rollup (user_id, play_date, play_count) VALUES (?, ?, ?) " +
+        "ON CONFLICT (user_id, play_date) DO UPDATE SET play_count = listening_daily_rollup.play_count + EXCLUDED.play_count";
+    private static final String UPSERT_ARTIST_SQL =
+        "INSERT INTO listening_artist_rollup (user_id, artist_name, play_count) VALUES (?, ?, ?) " +
+        "ON CONFLICT (user_id, artist_name) DO UPDATE SET play_count = listening_artist_rollup.play_count + EXCLUDED.play_count";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HourlyListeningRollupRepository hourlyRepository;
+    private final DailyListeningRollupRepository dailyRepository;
+    private final ArtistListeningRollupRepository artistRepository;
+    private final String rebuildId;
+
+    public ListeningRollupService(JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  HourlyListeningRollupRepository hourlyRepository,
+                                  DailyListeningRollupRepository dailyRepository,
+                                  ArtistListeningRollupRepository artistRepository,
+                                  @Value("${rollups.rebuild-id:}") String rebuildId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.hourlyRepository = hourlyRepository;
+        this.dailyRepository = dailyRepository;
+        this.artistRepository = artistRepository;
+        this.rebuildId = rebuildId;
+    }
+
+    /** Adds newly inserted plays to the rollups. Must run in the transaction that inserted them. */
+    public void recordPlays(List<ListeningHistory> newPlays) {
+        if (newPlays.isEmpty()) {
+            return;
+        }
+
+        Map<List<Object>, Long> hourly = new HashMap<>();
+        Map<List<Object>, Long> daily = new HashMap<>();
+        Map<List<Object>, Long> artists = new HashMap<>();
+        for (ListeningHistory play : newPlays) {
+            hourly.merge(List.<Object>of(play.getUserId(), play.getPlayedAt().getHour()), 1L, Long::sum);
+            daily.merge(List.<Object>of(play.getUserId(), Date.valueOf(play.getPlayedAt().toLocalDate())), 1L, Long::sum);
+            artists.merge(List.<Object>of(play.getUserId(), play.getArtistName()), 1L, Long::sum);
+        }
+
+        upsert(UPSERT_HOURLY_SQL, hourly);
+        upsert(UPSERT_DAILY_SQL, daily);
+        upsert(UPSERT_ARTIST_SQL, artists);
+    }
+
+    private void upsert(String sql, Map<List<Object>, Long> counts) {
+        List<Object[]> args = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> args.add(new Object[] { key.get(0), key.get(1), count }));
+        jdbcTemplate.batchUpdate(sql, args);
+    }
+
+    /** Play counts for each hour of the day (UTC), always 24 entries. */
+    public long[] getHourlyPlayCounts(String userId) {
+        long[] counts = new long[HOURS_PER_DAY];
+        for (HourlyListeningRollup row : hourlyRepository.findByUserId(userId)) {
+            counts[row.getHourOfDay()] = row.getPlayCount();
+        }
+        return counts;
+    }
+
+    /** Play counts for each of the last {@code days} UTC days, oldest first, with zero-filled gaps. */
+    public Map<LocalDate, Long> getDailyPlayCounts(String userId, int days) {
+        LocalDate endDate = LocalDate.now(ZoneOffset.UTC);
+        LocalDate startDate = endDate.minusDays(days - 1L);
+
+        Map<LocalDate, Long> counts = new LinkedHashMap<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            counts.put(day, 0L);
+        }
+        for (DailyListeningRollup row : dailyRepository.findByUserIdAndPlayDateBetweenOrderByPlayDate(userId, startDate, endDate)) {
+            counts.put(row.getPlayDate(), row.getPlayCount());
+        }
+        return counts;
+    }
+
+    public List<ArtistListeningRollup> getTopArtistsByPlays(String userId, int limit) {
+        return artistRepository.findByUserIdOrderByPlayCountDesc(userId, PageRequest.of(0, limit));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfNeeded() {
+        try {
+            rebuildIfNeeded(rebuildId);
+        } catch (Exception e) {
+            logger.error("Failed to rebuild listening rollups: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Rebuilds the rollups when they are empty, or once for each new {@code rebuildId}: the id is
+     * recorded in listening_rollup_rebuild in the rebuild's own transaction, so replicas and later
+     * restarts configured with the same id skip it. Both checks run under the rebuild lock, so
+     * instances starting together rebuild once between them.
+     *
+     * @return whether the rollups were rebuilt
+     */
+    public boolean rebuildIfNeeded(String rebuildId) {
+        long start = System.currentTimeMillis();
+        String reason = transactionTemplate.execute(status -> {
+            lockForRebuild();
+            String requested = null;
+            if (rebuildId != null && !rebuildId.isBlank()) {
+                int recorded = jdbcTemplate.update(
+                    "INSERT INTO listening_rollup_rebuild (rebuild_id, rebuilt_at) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                    rebuildId, LocalDateTime.now(ZoneOffset.UTC));
+                requested = recorded > 0 ? "requested as " + rebuildId : null;
+            }
+            String needed = requested != null ? requested : rollupsEmpty() ? "rollups empty" : null;
+            if (needed != null) {
+                recompute();
+            }
+            return needed;
+        });
+        if (reason != null) {
+            logger.info("Rebuilt listening rollups ({}) in {} ms", reason, System.currentTimeMillis() - start);
+        }
+        return reason != null;
+    }
+
+    /**
+     * Recomputes every rollup from listening_history. Locks the history table against
+     * writes (and other rebuilds) for the duration so concurrent ingests wait instead of
+     * being double counted. With a history retention window the rebuilt totals only cover
+     * the months still retained.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            lockForRebuild();
+            recompute();
+        });
+        logger.info("Rebuilt listening rollups in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private void lockForRebuild() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + REBUILD_LOCK_KEY + ")");
+        jdbcTemplate.execute("LOCK TABLE listening_history IN SHARE ROW EXCLUSIVE MODE");
+    }
+
+    private boolean rollupsEmpty() {
+        return !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM listening_hourly_rollup)", Boolean.class));
+    }
+
+    private void recompute() {
+        jdbcTemplate.update("DELETE FROM listening_hourly_rollup");
+        jdbcTemplate.update("DELETE FROM listening_daily_rollup");
+        jdbcTemplate.update("DELETE FROM listening_artist_rollup");
+        jdbcTemplate.update(
+            "INSERT INTO listening_hourly_rollup (user_id, hour_of_day, play_count) " +
+            "SELECT user_id, CAST(EXTRACT(HOUR FROM played_at) AS integer), COUNT(*) " +
+            "FROM listening_history GROUP BY 1, 2");
+        jdbcTemplate.update(
+            "INSERT INTO listening_daily_rollup (user_id, play_date, play_count) " +
+            "SELECT user_id, CAST(played_at AS date), COUNT(*) " +
+            "FROM listening_history GROUP BY 1, 2");
+        jdbcTemplate.update(
+            "INSERT INTO listening_artist_rollup (user_id, artist_name, play_count) " +
+            "SELECT user_id, artist_name, COUNT(*) " +
+            "FROM listening_history GROUP BY 1, 2");
+    }
+}
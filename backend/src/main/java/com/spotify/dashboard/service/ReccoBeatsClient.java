@@ -0,0 +1,181 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.dto.ReccoBeatsAudioFeatures;
+import com.spotify.dashboard.dto.ReccoBeatsTrack;
+import com.spotify.dashboard.exception.UpstreamUnavailableException;
+import com.spotify.dashboard.util.CircuitBreaker;
+import com.spotify.dashboard.util.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Thin client for the ReccoBeats API. Every request takes a token from a shared
+ * token bucket, so callers can fan out freely without exceeding the configured rate.
+ *
+ * Calls also go through a bulkhead, which caps how many can be waiting on ReccoBeats at once,
+ * and a circuit breaker: once too many calls fail, ReccoBeats is left alone for a while and
+ * callers get an {@link UpstreamUnavailableException} straight away, then a few probe calls
+ * decide whether it is back.
+ */
+@Service
+public class ReccoBeatsClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReccoBeatsClient.class);
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final HttpEntity<String> entity;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMs;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadFullRejections;
+
+    public ReccoBeatsClient(@Qualifier(AppConfig.RECCOBEATS) RestTemplate restTemplate,
+                            @Value("${reccobeats.base-url:https://api.reccobeats.com/v1}") String baseUrl,
+                            @Value("${reccobeats.rate-limit.permits-per-second:10}") double permitsPerSecond,
+                            @Value("${reccobeats.rate-limit.burst:10}") int burst,
+                            @Value("${reccobeats.circuit-breaker.window-size:20}") int windowSize,
+                            @Value("${reccobeats.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                            @Value("${reccobeats.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                            @Value("${reccobeats.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+                            @Value("${reccobeats.circuit-breaker.probe-calls:3}") int probeCalls,
+                            @Value("${reccobeats.bulkhead.max-concurrent-calls:8}") int maxConcurrentCalls,
+                            @Value("${reccobeats.bulkhead.max-wait-ms:2000}") long bulkheadWaitMs,
+                            MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+        this.rateLimiter = new TokenBucketRateLimiter(permitsPerSecond, burst);
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+            TimeUnit.MILLISECONDS.toNanos(openDurationMs), probeCalls);
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadWaitMs = bulkheadWaitMs;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Accept", "application/json");
+        this.entity = new HttpEntity<>(headers);
+
+        this.circuitOpenRejections = rejectionCounter(meterRegistry, "circuit_open");
+        this.bulkheadFullRejections = rejectionCounter(meterRegistry, "bulkhead_full");
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("reccobeats.circuit.state", circuitBreaker, breaker -> breaker.state() == state ? 1 : 0)
+                .description("1 for the circuit breaker's current state, 0 for the others")
+                .tag("state", state.name().toLowerCase())
+                .register(meterRegistry);
+        }
+        Gauge.builder("reccobeats.bulkhead.in_use", bulkhead, b -> maxConcurrentCalls - b.availablePermits())
+            .description("ReccoBeats calls holding a bulkhead slot")
+            .register(meterRegistry);
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("reccobeats.calls.rejected")
+            .description("ReccoBeats calls refused without being made")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    /** False while the circuit is open; calls made now would be refused. */
+    public boolean isAvailable() {
+        return circuitBreaker.state() != CircuitBreaker.State.OPEN;
+    }
+
+    /** How long until ReccoBeats is probed again, zero unless the circuit is open. */
+    public Duration retryAfter() {
+        return Duration.ofNanos(circuitBreaker.remainingOpenNanos());
+    }
+
+    /** Resolves Spotify track ids to ReccoBeats tracks; unknown ids are simply absent. */
+    public List<ReccoBeatsTrack> lookupTracks(List<String> spotifyIds) {
+        String queryParams = spotifyIds.stream()
+            .map(id -> "ids=" + id)
+            .collect(Collectors.joining("&"));
+        String url = baseUrl + "/track?" + queryParams;
+
+        ResponseEntity<ReccoBeatsTrack.Page> response = exchange(url, ReccoBeatsTrack.Page.class);
+        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            return response.getBody().content();
+        }
+        return List.of();
+    }
+
+    public ReccoBeatsAudioFeatures getAudioFeatures(String reccobeatsId) {
+        String url = baseUrl + "/track/" + reccobeatsId + "/audio-features";
+        ResponseEntity<ReccoBeatsAudioFeatures> response = exchange(url, ReccoBeatsAudioFeatures.class);
+        return response.getStatusCode() == HttpStatus.OK ? response.getBody() : null;
+    }
+
+    private <T> ResponseEntity<T> exchange(String url, Class<T> responseType) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            circuitOpenRejections.increment();
+            throw new UpstreamUnavailableException("ReccoBeats is unavailable, circuit open", retryAfter());
+        }
+        boolean admitted = false;
+        try {
+            admitted = bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS);
+            if (!admitted) {
+                bulkheadFullRejections.increment();
+                circuitBreaker.onIgnored();
+                throw new UpstreamUnavailableException("Too many ReccoBeats calls in flight",
+                    Duration.ofMillis(bulkheadWaitMs));
+            }
+            rateLimiter.acquire();
+        } catch (InterruptedException e) {
+            if (admitted) {
+                bulkhead.release();
+            }
+            circuitBreaker.onIgnored();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ReccoBeats rate limit", e);
+        }
+
+        try {
+            ResponseEntity<T> response = restTemplate.exchange(url, HttpMethod.GET, entity, responseType);
+            circuitBreaker.onSuccess();
+            return response;
+        } catch (HttpClientErrorException e) {
+            // a 404 for an unknown track is ReccoBeats working fine; being throttled is not
+            if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                recordFailure(e);
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void recordFailure(RuntimeException e) {
+        boolean wasOpen = !isAvailable();
+        circuitBreaker.onFailure();
+        if (!wasOpen && !isAvailable()) {
+            logger.warn("ReccoBeats circuit opened for {} s after repeated failures, last: {}",
+                retryAfter().toSeconds(), e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package com.spotify.dashboard.service;
 
+import com.spotify.dashboard.cache.SpotifyUserKeyGenerator;
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.dto.SpotifyArtist;
+import com.spotify.dashboard.dto.SpotifyPage;
+import com.spotify.dashboard.dto.SpotifyTrack;
+import com.spotify.dashboard.util.SingleFlight;
 import com.spotify.dashboard.util.SpotifyAuthUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -10,21 +21,51 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class SpotifyApiService {
 
+    public static final String USER_CACHE = "user";
+    public static final String TOP_TRACKS_CACHE = "topTracks";
+    public static final String TOP_ARTISTS_CACHE = "topArtists";
+    public static final String TOP_TRACK_PAGES_CACHE = "topTrackPages";
+    public static final String TOP_ARTIST_PAGES_CACHE = "topArtistPages";
+    public static final List<String> CACHE_NAMES = List.of(
+        USER_CACHE, TOP_TRACKS_CACHE, TOP_ARTISTS_CACHE, TOP_TRACK_PAGES_CACHE, TOP_ARTIST_PAGES_CACHE);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE =
+        new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<SpotifyPage<SpotifyTrack>> TRACK_PAGE_TYPE =
+        new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<SpotifyPage<SpotifyArtist>> ARTIST_PAGE_TYPE =
+        new ParameterizedTypeReference<>() {};
+
     private final RestTemplate restTemplate;
     private final String spotifyApiBaseUrl;
     private final SpotifyAuthUtil spotifyAuthUtil;
+    private final SpotifyUserResolver spotifyUserResolver;
+
+    // identical GETs already in flight (same token, endpoint and response type) share one upstream call
+    private final SingleFlight<String, Object> inFlightRequests = new SingleFlight<>();
 
-    public SpotifyApiService(RestTemplate restTemplate, 
+    public SpotifyApiService(@Qualifier(AppConfig.SPOTIFY_API) RestTemplate restTemplate, 
                            @Value("${spotify.api.base-url}") String spotifyApiBaseUrl,
-                           SpotifyAuthUtil spotifyAuthUtil) {
+                           SpotifyAuthUtil spotifyAuthUtil,
+                           SpotifyUserResolver spotifyUserResolver,
+                           MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.spotifyApiBaseUrl = spotifyApiBaseUrl;
         this.spotifyAuthUtil = spotifyAuthUtil;
+        this.spotifyUserResolver = spotifyUserResolver;
+
+        FunctionCounter.builder("spotify.api.requests.coalesced", inFlightRequests, SingleFlight::getSharedCalls)
+            .description("Spotify API GETs served by an identical request that was already in flight")
+            .register(meterRegistry);
+        Gauge.builder("spotify.api.requests.in_flight", inFlightRequests, SingleFlight::getInFlight)
+            .description("Distinct Spotify API GETs currently in flight")
+            .register(meterRegistry);
     }
 
     private HttpHeaders createHeaders(String accessToken) {
@@ -33,14 +74,23 @@ public class SpotifyApiService {
         return headers;
     }
 
-    @SuppressWarnings("unchecked")
     private Map<String, Object> makeGetRequest(String endpoint, String accessToken) {
+        return makeGetRequest(endpoint, accessToken, MAP_TYPE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T makeGetRequest(String endpoint, String accessToken, ParameterizedTypeReference<T> responseType) {
+        String key = responseType.getType().getTypeName() + ' ' + endpoint + ' ' + accessToken;
+        return (T) inFlightRequests.execute(key, () -> exchangeGet(endpoint, accessToken, responseType));
+    }
+
+    private <T> T exchangeGet(String endpoint, String accessToken, ParameterizedTypeReference<T> responseType) {
         HttpEntity<String> entity = new HttpEntity<>(createHeaders(accessToken));
-        ResponseEntity<Map<String, Object>> response = restTemplate.exchange( 
+        ResponseEntity<T> response = restTemplate.exchange(
             spotifyApiBaseUrl + endpoint,
             HttpMethod.GET,
             entity,
-            (Class<Map<String, Object>>) (Class<?>) Map.class
+            responseType
         );
         return response.getBody();
     }
@@ -57,28 +107,41 @@ public class SpotifyApiService {
         return response.getBody();
     }
 
-    @Cacheable(value = "user", key = "#accessToken.hashCode()")
+    // cache keys are the Spotify user id behind the token, see SpotifyUserKeyGenerator
+    @Cacheable(value = USER_CACHE, keyGenerator = SpotifyUserKeyGenerator.BEAN_NAME)
     public Map<String, Object> getCurrentUser(String accessToken) {
         return makeGetRequest("/me", accessToken);
     }
 
     public String getUserId(String accessToken) {
-        Map<String, Object> user = getCurrentUser(accessToken);
-        return (String) user.get("id");
+        return spotifyUserResolver.resolveUserId(accessToken);
     }
 
-    @Cacheable(value = "topTracks", key = "#accessToken.hashCode() + '_' + #timeRange + '_' + #limit")
+    @Cacheable(value = TOP_TRACKS_CACHE, keyGenerator = SpotifyUserKeyGenerator.BEAN_NAME)
     public Map<String, Object> getTopTracks(String accessToken, String timeRange, int limit) {
         String endpoint = "/me/top/tracks?time_range=" + timeRange + "&limit=" + limit;
         return makeGetRequest(endpoint, accessToken);
     }
 
-    @Cacheable(value = "topArtists", key = "#accessToken.hashCode() + '_' + #timeRange + '_' + #limit")
+    @Cacheable(value = TOP_ARTISTS_CACHE, keyGenerator = SpotifyUserKeyGenerator.BEAN_NAME)
     public Map<String, Object> getTopArtists(String accessToken, String timeRange, int limit) {
         String endpoint = "/me/top/artists?time_range=" + timeRange + "&limit=" + limit;
         return makeGetRequest(endpoint, accessToken);
     }
 
+    /** Typed top tracks for internal use; the map variant above is passed through to the frontend. */
+    @Cacheable(value = TOP_TRACK_PAGES_CACHE, keyGenerator = SpotifyUserKeyGenerator.BEAN_NAME)
+    public SpotifyPage<SpotifyTrack> getTopTrackPage(String accessToken, String timeRange, int limit) {
+        String endpoint = "/me/top/tracks?time_range=" + timeRange + "&limit=" + limit;
+        return makeGetRequest(endpoint, accessToken, TRACK_PAGE_TYPE);
+    }
+
+    @Cacheable(value = TOP_ARTIST_PAGES_CACHE, keyGenerator = SpotifyUserKeyGenerator.BEAN_NAME)
+    public SpotifyPage<SpotifyArtist> getTopArtistPage(String accessToken, String timeRange, int limit) {
+        String endpoint = "/me/top/artists?time_range=" + timeRange + "&limit=" + limit;
+        return makeGetRequest(endpoint, accessToken, ARTIST_PAGE_TYPE);
+    }
+
     public Map<String, Object> createPlaylist(String accessToken, String userId, Map<String, Object> playlistData) {
         String endpoint = "/users/" + userId + "/playlists";
         return makePostRequest(endpoint, accessToken, playlistData);
@@ -0,0 +1,118 @@
+package com.spotify.dashboard.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.util.SingleFlight;
+import com.spotify.dashboard.util.SpotifyAuthUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Maps access tokens to the Spotify user they belong to. Tokens are held only as SHA-256
+ * digests and forgotten once they would have expired anyway. Resolving an unknown token costs
+ * one {@code /me} call, whose response also seeds the user profile cache.
+ *
+ * The call is made outside the cache rather than from a Caffeine loader: loaders run inside
+ * {@code ConcurrentHashMap.compute}, whose monitor would pin a virtual thread's carrier for the
+ * length of the request. Concurrent lookups of the same token still share one call.
+ */
+@Service
+public class SpotifyUserResolver {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE =
+        new ParameterizedTypeReference<>() {};
+
+    private final RestTemplate restTemplate;
+    private final String spotifyApiBaseUrl;
+    private final SpotifyAuthUtil spotifyAuthUtil;
+    private final CacheManager cacheManager;
+    private final Cache<String, String> userIdsByTokenDigest;
+    private final SingleFlight<String, String> lookups = new SingleFlight<>();
+
+    public SpotifyUserResolver(@Qualifier(AppConfig.SPOTIFY_API) RestTemplate restTemplate,
+                               @Value("${spotify.api.base-url}") String spotifyApiBaseUrl,
+                               SpotifyAuthUtil spotifyAuthUtil,
+                               CacheManager cacheManager,
+                               @Value("${cache.spotify.token-users.max-entries:10000}") long maxEntries,
+                               MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.spotifyApiBaseUrl = spotifyApiBaseUrl;
+        this.spotifyAuthUtil = spotifyAuthUtil;
+        this.cacheManager = cacheManager;
+        // Spotify access tokens are valid for one hour
+        this.userIdsByTokenDigest = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterWrite(Duration.ofHours(1))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userIdsByTokenDigest, "spotifyTokenUsers");
+    }
+
+    public String resolveUserId(String accessToken) {
+        String digest = digest(accessToken);
+        String userId = userIdsByTokenDigest.getIfPresent(digest);
+        if (userId != null) {
+            return userId;
+        }
+        return lookups.execute(digest, () -> rememberDigest(digest, fetchUser(accessToken)));
+    }
+
+    /** The user behind {@code accessToken} if already known, without calling Spotify. */
+    public String cachedUserId(String accessToken) {
+        return userIdsByTokenDigest.getIfPresent(digest(accessToken));
+    }
+
+    /**
+     * Records a {@code /me} response fetched elsewhere, as {@link AsyncSpotifyApiService} does,
+     * exactly as if this resolver had fetched it.
+     *
+     * @return the user's id
+     */
+    public String remember(String accessToken, Map<String, Object> user) {
+        return rememberDigest(digest(accessToken), user);
+    }
+
+    private Map<String, Object> fetchUser(String accessToken) {
+        HttpEntity<String> entity = new HttpEntity<>(spotifyAuthUtil.createBearerAuthHeaders(accessToken));
+        return restTemplate.exchange(spotifyApiBaseUrl + "/me", HttpMethod.GET, entity, MAP_TYPE).getBody();
+    }
+
+    private String rememberDigest(String digest, Map<String, Object> user) {
+        String userId = user != null ? (String) user.get("id") : null;
+        if (userId == null) {
+            throw new RuntimeException("Could not resolve Spotify user for access token");
+        }
+
+        org.springframework.cache.Cache userCache = cacheManager.getCache(SpotifyApiService.USER_CACHE);
+        if (userCache != null) {
+            userCache.put(userId, user);
+        }
+        userIdsByTokenDigest.put(digest, userId);
+        return userId;
+    }
+
+    private static String digest(String accessToken) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(accessToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
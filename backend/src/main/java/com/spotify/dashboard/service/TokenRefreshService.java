@@ -1,6 +1,13 @@
 package com.spotify.dashboard.service;
 
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.util.SingleFlight;
 import com.spotify.dashboard.util.SpotifyAuthUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -9,25 +16,54 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class TokenRefreshService {
 
+    private static final int DEFAULT_EXPIRES_IN_SECONDS = 3600;
+
     private final RestTemplate restTemplate;
     private final UserService userService;
     private final SpotifyAuthUtil spotifyAuthUtil;
+    private final Duration refreshAhead;
+
+    // access tokens keyed by Spotify id; entries are replaced in place on refresh
+    private final ConcurrentHashMap<String, CachedToken> accessTokens = new ConcurrentHashMap<>();
+    private final SingleFlight<String, CachedToken> refreshes = new SingleFlight<>();
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter refreshSuccesses;
+    private final Counter refreshFailures;
 
     @Value("${spotify.client-id}")
     private String clientId;
-    
+
     @Value("${spotify.client-secret}")
     private String clientSecret;
 
-    public TokenRefreshService(RestTemplate restTemplate, UserService userService, SpotifyAuthUtil spotifyAuthUtil) {
+    public TokenRefreshService(@Qualifier(AppConfig.SPOTIFY_ACCOUNTS) RestTemplate restTemplate,
+                               UserService userService,
+                               SpotifyAuthUtil spotifyAuthUtil,
+                               @Value("${spotify.token-cache.refresh-ahead-seconds:300}") long refreshAheadSeconds,
+                               MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.userService = userService;
         this.spotifyAuthUtil = spotifyAuthUtil;
+        this.refreshAhead = Duration.ofSeconds(refreshAheadSeconds);
+
+        this.cacheHits = Counter.builder("spotify.token.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("spotify.token.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.refreshSuccesses = Counter.builder("spotify.token.refresh").tag("outcome", "success").register(meterRegistry);
+        this.refreshFailures = Counter.builder("spotify.token.refresh").tag("outcome", "failure").register(meterRegistry);
+        FunctionCounter.builder("spotify.token.refresh.coalesced", refreshes, SingleFlight::getSharedCalls)
+            .description("Refresh requests that joined another in-flight refresh for the same user")
+            .register(meterRegistry);
+        Gauge.builder("spotify.token.cache.size", accessTokens, Map::size).register(meterRegistry);
     }
 
     @SuppressWarnings("unchecked")
@@ -35,9 +71,9 @@ public class TokenRefreshService {
         HttpHeaders headers = spotifyAuthUtil.createBasicAuthHeaders(clientId, clientSecret);
         String body = "grant_type=refresh_token&refresh_token=" + refreshToken;
         HttpEntity<String> entity = new HttpEntity<>(body, headers);
-        
+
         ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-            SpotifyAuthUtil.SPOTIFY_TOKEN_URL,
+            spotifyAuthUtil.getTokenUrl(),
             HttpMethod.POST,
             entity,
             (Class<Map<String, Object>>) (Class<?>) Map.class
@@ -51,13 +87,75 @@ public class TokenRefreshService {
         if (refreshToken == null) {
             throw new RuntimeException("No refresh token found for user");
         }
-        
+
         Map<String, Object> tokenResponse = refreshAccessToken(refreshToken);
-        
+
         if (tokenResponse.containsKey("refresh_token")) {
             userService.updateRefreshToken(spotifyId, (String) tokenResponse.get("refresh_token"));
         }
-        
+
         return tokenResponse;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a usable access token for the user, refreshing it only when the cached one
+     * is missing or within the refresh-ahead window of its expiry. Concurrent refreshes
+     * for the same user share a single call to the accounts service.
+     */
+    public String getAccessToken(String spotifyId) {
+        CachedToken cached = accessTokens.get(spotifyId);
+        if (cached != null && cached.isUsableAt(Instant.now(), refreshAhead)) {
+            cacheHits.increment();
+            return cached.accessToken();
+        }
+
+        cacheMisses.increment();
+        return refreshes.execute(spotifyId, () -> refreshAndCache(spotifyId)).accessToken();
+    }
+
+    /**
+     * Drops a cached token the Web API rejected before its expiry (revoked, or otherwise answered
+     * with 401), so the next {@link #getAccessToken} refreshes. A token another caller has already
+     * replaced it with is kept.
+     */
+    public void evictAccessToken(String spotifyId, String rejectedAccessToken) {
+        accessTokens.computeIfPresent(spotifyId,
+            (id, cached) -> cached.accessToken().equals(rejectedAccessToken) ? null : cached);
+    }
+
+    private CachedToken refreshAndCache(String spotifyId) {
+        // another caller may have finished a refresh between our cache check and taking the flight
+        CachedToken current = accessTokens.get(spotifyId);
+        if (current != null && current.isUsableAt(Instant.now(), refreshAhead)) {
+            return current;
+        }
+
+        Map<String, Object> tokenResponse;
+        try {
+            tokenResponse = refreshAccessTokenForUser(spotifyId);
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            throw e;
+        }
+
+        String accessToken = tokenResponse != null ? (String) tokenResponse.get("access_token") : null;
+        if (accessToken == null) {
+            refreshFailures.increment();
+            throw new RuntimeException("No access token in refresh response");
+        }
+        refreshSuccesses.increment();
+
+        Object expiresIn = tokenResponse.get("expires_in");
+        int expiresInSeconds = expiresIn instanceof Number number ? number.intValue() : DEFAULT_EXPIRES_IN_SECONDS;
+        CachedToken refreshed = new CachedToken(accessToken, Instant.now().plusSeconds(expiresInSeconds));
+        accessTokens.put(spotifyId, refreshed);
+        return refreshed;
+    }
+
+    private record CachedToken(String accessToken, Instant expiresAt) {
+
+        boolean isUsableAt(Instant now, Duration refreshAhead) {
+            return now.plus(refreshAhead).isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.model.ListeningHistory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable queue of tracks that need audio features, in track_enrichment_queue.
+ *
+ * Features belong to tracks, so a track is queued once however many users play it: ingest adds
+ * newly stored plays in the same transaction, and further plays only raise the row's play count,
+ * which is the order the queue is drained in. Workers claim rows with a lease and
+ * {@code SKIP LOCKED}, so any number of replicas can drain it side by side and rows claimed by a
+ * replica that died become available again when the lease runs out. A track leaves the queue once
+ * it has features, is tombstoned as unresolvable, or has used up its attempts; playing it again
+ * brings it back.
+ */
+@Service
+public class TrackEnrichmentQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackEnrichmentQueue.class);
+
+    // tracks that already have features are never queued, tombstoned ones wait for their re-check
+    private static final String ENQUEUE_SQL =
+        "INSERT INTO track_enrichment_queue AS q " +
+        "(track_id, track_name, artist_name, play_count, attempts, enqueued_at, available_at) " +
+        "SELECT p.track_id, p.track_name, p.artist_name, p.plays, 0, ?, GREATEST(?, u.next_attempt_at) " +
+        "FROM unnest(CAST(? AS text[]), CAST(? AS text[]), CAST(? AS text[]), CAST(? AS integer[])) " +
+        "AS p(track_id, track_name, artist_name, plays) " +
+        "LEFT JOIN unresolved_track u ON u.track_id = p.track_id " +
+        "WHERE NOT EXISTS (SELECT 1 FROM track_features t WHERE t.track_id = p.track_id) " +
+        "ON CONFLICT (track_id) DO UPDATE SET play_count = q.play_count + EXCLUDED.play_count";
+
+    private static final String SEED_SQL =
+        "INSERT INTO track_enrichment_queue " +
+        "(track_id, track_name, artist_name, play_count, attempts, enqueued_at, available_at) " +
+        "SELECT l.track_id, MIN(l.track_name), MIN(l.artist_name), COUNT(*), 0, ?, GREATEST(?, MAX(u.next_attempt_at)) " +
+        "FROM listening_history l LEFT JOIN unresolved_track u ON u.track_id = l.track_id " +
+        "WHERE l.played_at >= ? AND NOT EXISTS (SELECT 1 FROM track_features t WHERE t.track_id = l.track_id) " +
+        "GROUP BY l.track_id " +
+        "ON CONFLICT (track_id) DO NOTHING";
+
+    private static final String CLAIM_SQL =
+        "UPDATE track_enrichment_queue q SET claimed_by = ?, claimed_until = ?, attempts = q.attempts + 1 " +
+        "FROM (SELECT track_id FROM track_enrichment_queue " +
+        "WHERE available_at <= ? AND (claimed_until IS NULL OR claimed_until <= ?) " +
+        "ORDER BY play_count DESC, enqueued_at LIMIT ? FOR UPDATE SKIP LOCKED) next " +
+        "WHERE q.track_id = next.track_id " +
+        "RETURNING q.track_id, q.track_name, q.artist_name";
+
+    private static final String REMOVE_DONE_SQL =
+        "DELETE FROM track_enrichment_queue q WHERE q.claimed_by = ? AND q.track_id = ANY (CAST(? AS text[])) " +
+        "AND (q.attempts >= ? " +
+        "OR EXISTS (SELECT 1 FROM track_features t WHERE t.track_id = q.track_id) " +
+        "OR EXISTS (SELECT 1 FROM unresolved_track u WHERE u.track_id = q.track_id AND u.next_attempt_at > ?))";
+
+    private static final String RELEASE_SQL =
+        "UPDATE track_enrichment_queue SET claimed_by = NULL, claimed_until = NULL, " +
+        "available_at = CAST(? AS timestamp) + attempts * ? * INTERVAL '1 second' " +
+        "WHERE claimed_by = ? AND track_id = ANY (CAST(? AS text[]))";
+
+    private static final String STATS_SQL =
+        "SELECT COUNT(*), COUNT(*) FILTER (WHERE available_at <= ?), MIN(enqueued_at) FILTER (WHERE available_at <= ?) " +
+        "FROM track_enrichment_queue";
+
+    public record Task(String trackId, String trackName, String artistName) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String workerId = UUID.randomUUID().toString();
+    private final Duration claimLease;
+    private final Duration retryDelay;
+    private final int maxAttempts;
+    private final int seedDays;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong ready = new AtomicLong();
+    private final AtomicLong oldestReadyAgeSeconds = new AtomicLong();
+
+    public TrackEnrichmentQueue(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${track-features.enrichment.claim-lease-ms:600000}") long claimLeaseMs,
+                                @Value("${track-features.enrichment.retry-delay-ms:600000}") long retryDelayMs,
+                                @Value("${track-features.enrichment.max-attempts:5}") int maxAttempts,
+                                @Value("${track-features.enrichment.seed-days:30}") int seedDays,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.claimLease = Duration.ofMillis(claimLeaseMs);
+        this.retryDelay = Duration.ofMillis(retryDelayMs);
+        this.maxAttempts = maxAttempts;
+        this.seedDays = seedDays;
+
+        Gauge.builder("track_features.enrichment.queue.depth", depth, AtomicLong::get)
+            .description("Tracks waiting for audio features, including ones backing off")
+            .register(meterRegistry);
+        Gauge.builder("track_features.enrichment.queue.ready", ready, AtomicLong::get)
+            .description("Queued tracks that can be claimed now")
+            .register(meterRegistry);
+        Gauge.builder("track_features.enrichment.queue.oldest_age.seconds", oldestReadyAgeSeconds, AtomicLong::get)
+            .description("How long the oldest claimable track has been queued")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Fills an empty queue from recent history, e.g. on first start; afterwards ingest keeps it
+     * up to date.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedIfEmpty() {
+        if (seedDays <= 0) {
+            return;
+        }
+        try {
+            Integer queued = transactionTemplate.execute(status -> {
+                boolean empty = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM track_enrichment_queue)", Boolean.class);
+                if (!empty) {
+                    return 0;
+                }
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                return jdbcTemplate.update(SEED_SQL, now, now, Timestamp.valueOf(LocalDateTime.now().minusDays(seedDays)));
+            });
+            if (queued != null && queued > 0) {
+                logger.info("Queued {} tracks from the last {} days of history for audio features", queued, seedDays);
+            }
+            refreshStats();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to seed the track enrichment queue: {}", e.getMessage());
+        }
+    }
+
+    /** Queues the tracks of newly stored plays. Joins the caller's transaction. */
+    public void enqueue(List<ListeningHistory> plays) {
+        if (plays.isEmpty()) {
+            return;
+        }
+        // sorted so concurrent ingests lock shared rows in the same order
+        Map<String, ListeningHistory> firstPlay = new TreeMap<>();
+        Map<String, Integer> playCounts = new TreeMap<>();
+        for (ListeningHistory play : plays) {
+            firstPlay.putIfAbsent(play.getTrackId(), play);
+            playCounts.merge(play.getTrackId(), 1, Integer::sum);
+        }
+        String[] trackIds = firstPlay.keySet().toArray(String[]::new);
+        String[] trackNames = firstPlay.values().stream().map(ListeningHistory::getTrackName).toArray(String[]::new);
+        String[] artistNames = firstPlay.values().stream().map(ListeningHistory::getArtistName).toArray(String[]::new);
+        Integer[] counts = playCounts.values().toArray(Integer[]::new);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ENQUEUE_SQL);
+            statement.setTimestamp(1, now);
+            statement.setTimestamp(2, now);
+            statement.setArray(3, connection.createArrayOf("text", trackIds));
+            statement.setArray(4, connection.createArrayOf("text", trackNames));
+            statement.setArray(5, connection.createArrayOf("text", artistNames));
+            statement.setArray(6, connection.createArrayOf("integer", counts));
+            return statement;
+        });
+    }
+
+    /** Claims up to {@code limit} ready tracks, most played first. Each must be {@link #complete completed}. */
+    public List<Task> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+        List<Task> tasks = transactionTemplate.execute(status -> jdbcTemplate.query(CLAIM_SQL,
+            (rs, rowNum) -> new Task(rs.getString(1), rs.getString(2), rs.getString(3)),
+            workerId, Timestamp.valueOf(now.plus(claimLease)), nowTimestamp, nowTimestamp, limit));
+        return tasks != null ? tasks : List.of();
+    }
+
+    /**
+     * Drops the claimed tracks that are done (features stored, tombstoned or out of attempts) and
+     * hands the rest back to be retried after a delay that grows with their attempts.
+     */
+    public void complete(Collection<String> trackIds) {
+        if (trackIds.isEmpty()) {
+            return;
+        }
+        String[] ids = trackIds.toArray(String[]::new);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(REMOVE_DONE_SQL);
+                statement.setString(1, workerId);
+                statement.setArray(2, connection.createArrayOf("text", ids));
+                statement.setInt(3, maxAttempts);
+                statement.setTimestamp(4, now);
+                return statement;
+            });
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(RELEASE_SQL);
+                statement.setTimestamp(1, now);
+                statement.setLong(2, retryDelay.toSeconds());
+                statement.setString(3, workerId);
+                statement.setArray(4, connection.createArrayOf("text", ids));
+                return statement;
+            });
+        });
+    }
+
+    public void refreshStats() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTimestamp = Timestamp.valueOf(now);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(STATS_SQL, (RowCallbackHandler) rs -> {
+            depth.set(rs.getLong(1));
+            ready.set(rs.getLong(2));
+            Timestamp oldest = rs.getTimestamp(3);
+            oldestReadyAgeSeconds.set(oldest != null
+                ? Math.max(0, Duration.between(oldest.toLocalDateTime(), now).toSeconds())
+                : 0);
+        }, nowTimestamp, nowTimestamp));
+    }
+}
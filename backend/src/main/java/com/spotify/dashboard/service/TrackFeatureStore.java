@@ -0,0 +1,428 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.model.TrackFeatures;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read-optimised, in-memory copy of track_features.
+ *
+ * Track ids map to dense int indexes; the five audio features live in primitive float
+ * columns with one null bitmap per column. The store is written through from
+ * TrackFeatures persists/updates and saved as a memory-mapped snapshot file, so a
+ * restarted node loads the snapshot and only queries rows fetched after it was taken.
+ * Warm-up reads those rows as plain column projections rather than entities, so nothing
+ * accumulates in a persistence context however many rows there are.
+ *
+ * Rows saved by other replicas are picked up by a periodic catch-up from the same watermark.
+ * It re-reads an overlap before the watermark, because a row can commit after rows with a
+ * later fetched_at, and replicas' clocks differ. Re-reading a row only rewrites the same values.
+ * Every row read from the database is also marked in {@link KnownTrackIndex}, so the filter
+ * follows other replicas' saves on the same schedule.
+ */
+@Service
+public class TrackFeatureStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrackFeatureStore.class);
+
+    public static final int ACOUSTICNESS = 0;
+    public static final int DANCEABILITY = 1;
+    public static final int ENERGY = 2;
+    public static final int VALENCE = 3;
+    public static final int TEMPO = 4;
+    private static final int COLUMN_COUNT = 5;
+
+    private static final int SNAPSHOT_MAGIC = 0x54465331; // "TFS1"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int WARM_UP_FETCH_SIZE = 1000;
+    private static final String WARM_UP_SQL =
+        "SELECT track_id, acousticness, danceability, energy, valence, tempo, fetched_at FROM track_features";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KnownTrackIndex knownTrackIndex;
+    private final Path snapshotPath;
+    private final Duration catchUpOverlap;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> indexByTrackId = new HashMap<>();
+    private String[] trackIds = new String[INITIAL_CAPACITY];
+    private float[][] columns = new float[COLUMN_COUNT][INITIAL_CAPACITY];
+    private long[][] nullBits = new long[COLUMN_COUNT][words(INITIAL_CAPACITY)];
+    private int size;
+    private LocalDateTime highWatermark;
+    private volatile boolean dirty;
+    private volatile boolean ready;
+
+    public TrackFeatureStore(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             KnownTrackIndex knownTrackIndex,
+                             @Value("${track-features.store.snapshot-path:data/track-features.snapshot}") String snapshotPath,
+                             @Value("${track-features.store.catch-up-overlap-ms:300000}") long catchUpOverlapMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.knownTrackIndex = knownTrackIndex;
+        this.snapshotPath = Paths.get(snapshotPath);
+        this.catchUpOverlap = Duration.ofMillis(catchUpOverlapMs);
+    }
+
+    public record FeatureAverages(int tracksWithFeatures, double acousticness, double danceability,
+                                  double energy, double valence, double tempo) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        boolean fromSnapshot = loadSnapshot();
+        long loaded = loadFetchedSince(currentWatermark());
+
+        ready = true;
+        logger.info("Track feature store ready with {} tracks in {} ms ({} from snapshot, {} from database)",
+            size(), System.currentTimeMillis() - start, fromSnapshot ? "loaded" : "nothing", loaded);
+    }
+
+    @Scheduled(fixedDelayString = "${track-features.store.catch-up-interval-ms:60000}",
+               initialDelayString = "${track-features.store.catch-up-interval-ms:60000}")
+    public void catchUp() {
+        if (!ready) {
+            return;
+        }
+        try {
+            LocalDateTime watermark = currentWatermark();
+            long loaded = loadFetchedSince(watermark != null ? watermark.minus(catchUpOverlap) : null);
+            logger.debug("Track feature store caught up on {} rows", loaded);
+        } catch (RuntimeException e) {
+            logger.warn("Track feature store catch-up failed, retrying on the next run: {}", e.getMessage());
+        }
+    }
+
+    private LocalDateTime currentWatermark() {
+        lock.readLock().lock();
+        try {
+            return highWatermark;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long loadFetchedSince(LocalDateTime since) {
+        long[] loaded = {0};
+        RowCallbackHandler loadRow = rs -> {
+            putRow(rs);
+            loaded[0]++;
+        };
+        // Postgres only streams through a cursor inside a transaction
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                since != null ? WARM_UP_SQL + " WHERE fetched_at >= ?" : WARM_UP_SQL);
+            statement.setFetchSize(WARM_UP_FETCH_SIZE);
+            if (since != null) {
+                statement.setObject(1, since);
+            }
+            return statement;
+        }, loadRow));
+        return loaded[0];
+    }
+
+    public void put(TrackFeatures trackFeatures) {
+        put(trackFeatures.getTrackId(), trackFeatures.getAcousticness(), trackFeatures.getDanceability(),
+            trackFeatures.getEnergy(), trackFeatures.getValence(), trackFeatures.getTempo(), trackFeatures.getFetchedAt());
+    }
+
+    private void putRow(ResultSet rs) throws SQLException {
+        String trackId = rs.getString("track_id");
+        knownTrackIndex.markKnown(trackId);
+        put(trackId, rs.getObject("acousticness", Float.class), rs.getObject("danceability", Float.class),
+            rs.getObject("energy", Float.class), rs.getObject("valence", Float.class), rs.getObject("tempo", Float.class),
+            rs.getObject("fetched_at", LocalDateTime.class));
+    }
+
+    private void put(String trackId, Float acousticness, Float danceability, Float energy, Float valence, Float tempo,
+                     LocalDateTime fetchedAt) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = indexByTrackId.get(trackId);
+            int index;
+            if (existing != null) {
+                index = existing;
+            } else {
+                index = size++;
+                ensureCapacity(size);
+                trackIds[index] = trackId;
+                indexByTrackId.put(trackId, index);
+            }
+            setValue(ACOUSTICNESS, index, acousticness);
+            setValue(DANCEABILITY, index, danceability);
+            setValue(ENERGY, index, energy);
+            setValue(VALENCE, index, valence);
+            setValue(TEMPO, index, tempo);
+
+            if (fetchedAt != null && (highWatermark == null || fetchedAt.isAfter(highWatermark))) {
+                highWatermark = fetchedAt;
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(String trackId) {
+        lock.readLock().lock();
+        try {
+            return indexByTrackId.containsKey(trackId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Averages each feature over the given tracks that are in the store. Every distinct
+     * track counts once and a missing feature value counts as zero.
+     */
+    public FeatureAverages averages(Collection<String> trackIds) {
+        double[] sums = new double[COLUMN_COUNT];
+        int matched = 0;
+
+        lock.readLock().lock();
+        try {
+            for (String trackId : new LinkedHashSet<>(trackIds)) {
+                Integer index = indexByTrackId.get(trackId);
+                if (index == null) {
+                    continue;
+                }
+                matched++;
+                for (int column = 0; column < COLUMN_COUNT; column++) {
+                    if (!isNull(column, index)) {
+                        sums[column] += columns[column][index];
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (matched == 0) {
+            return new FeatureAverages(0, 0, 0, 0, 0, 0);
+        }
+        return new FeatureAverages(matched,
+            sums[ACOUSTICNESS] / matched,
+            sums[DANCEABILITY] / matched,
+            sums[ENERGY] / matched,
+            sums[VALENCE] / matched,
+            sums[TEMPO] / matched);
+    }
+
+    @Scheduled(fixedDelayString = "${track-features.store.snapshot-interval-ms:600000}")
+    public void snapshotIfDirty() {
+        // never overwrite a good snapshot with the partial state that exists before warm-up
+        if (ready && dirty) {
+            writeSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshotIfDirty();
+    }
+
+    /**
+     * Snapshot layout (big-endian): magic, version, high-watermark epoch millis, size,
+     * column count, then each track id as a length-prefixed UTF-8 string, each float
+     * column, and finally each column's null bitmap as longs.
+     */
+    void writeSnapshot() {
+        lock.readLock().lock();
+        try {
+            byte[][] encodedIds = new byte[size][];
+            long idBytes = 0;
+            for (int i = 0; i < size; i++) {
+                encodedIds[i] = trackIds[i].getBytes(StandardCharsets.UTF_8);
+                idBytes += Short.BYTES + encodedIds[i].length;
+            }
+            int wordCount = words(size);
+            long totalBytes = Integer.BYTES * 2L + Long.BYTES + Integer.BYTES * 2L
+                + idBytes
+                + (long) COLUMN_COUNT * size * Float.BYTES
+                + (long) COLUMN_COUNT * wordCount * Long.BYTES;
+
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, totalBytes);
+                buffer.putInt(SNAPSHOT_MAGIC);
+                buffer.putInt(SNAPSHOT_VERSION);
+                buffer.putLong(highWatermark != null ? highWatermark.toInstant(ZoneOffset.UTC).toEpochMilli() : -1L);
+                buffer.putInt(size);
+                buffer.putInt(COLUMN_COUNT);
+                for (byte[] encodedId : encodedIds) {
+                    buffer.putShort((short) encodedId.length);
+                    buffer.put(encodedId);
+                }
+                for (int column = 0; column < COLUMN_COUNT; column++) {
+                    buffer.asFloatBuffer().put(columns[column], 0, size);
+                    buffer.position(buffer.position() + size * Float.BYTES);
+                }
+                for (int column = 0; column < COLUMN_COUNT; column++) {
+                    buffer.asLongBuffer().put(nullBits[column], 0, wordCount);
+                    buffer.position(buffer.position() + wordCount * Long.BYTES);
+                }
+                buffer.force();
+            }
+            Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            logger.info("Wrote track feature snapshot with {} tracks to {}", size, snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Failed to write track feature snapshot to {}: {}", snapshotPath, e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean loadSnapshot() {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                logger.warn("Ignoring track feature snapshot {} with unknown format", snapshotPath);
+                return false;
+            }
+            long watermarkMillis = buffer.getLong();
+            int count = buffer.getInt();
+            if (buffer.getInt() != COLUMN_COUNT) {
+                logger.warn("Ignoring track feature snapshot {} with unexpected column count", snapshotPath);
+                return false;
+            }
+
+            String[] loadedIds = new String[Math.max(count, INITIAL_CAPACITY)];
+            Map<String, Integer> loadedIndex = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                byte[] encodedId = new byte[buffer.getShort()];
+                buffer.get(encodedId);
+                loadedIds[i] = new String(encodedId, StandardCharsets.UTF_8);
+                loadedIndex.put(loadedIds[i], i);
+            }
+            float[][] loadedColumns = new float[COLUMN_COUNT][loadedIds.length];
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                buffer.asFloatBuffer().get(loadedColumns[column], 0, count);
+                buffer.position(buffer.position() + count * Float.BYTES);
+            }
+            int wordCount = words(count);
+            long[][] loadedNulls = new long[COLUMN_COUNT][words(loadedIds.length)];
+            for (int column = 0; column < COLUMN_COUNT; column++) {
+                buffer.asLongBuffer().get(loadedNulls[column], 0, wordCount);
+                buffer.position(buffer.position() + wordCount * Long.BYTES);
+            }
+
+            indexByTrackId.clear();
+            indexByTrackId.putAll(loadedIndex);
+            trackIds = loadedIds;
+            columns = loadedColumns;
+            nullBits = loadedNulls;
+            size = count;
+            highWatermark = watermarkMillis >= 0
+                ? LocalDateTime.ofEpochSecond(Math.floorDiv(watermarkMillis, 1000L),
+                    (int) Math.floorMod(watermarkMillis, 1000L) * 1_000_000, ZoneOffset.UTC)
+                : null;
+            dirty = false;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load track feature snapshot {}: {}", snapshotPath, e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Track ids from the input that the store has no entry for. */
+    public List<String> findMissing(Collection<String> trackIds) {
+        lock.readLock().lock();
+        try {
+            return trackIds.stream()
+                .distinct()
+                .filter(trackId -> !indexByTrackId.containsKey(trackId))
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setValue(int column, int index, Float value) {
+        long mask = 1L << index;
+        if (value == null) {
+            columns[column][index] = 0f;
+            nullBits[column][index >>> 6] |= mask;
+        } else {
+            columns[column][index] = value;
+            nullBits[column][index >>> 6] &= ~mask;
+        }
+    }
+
+    private boolean isNull(int column, int index) {
+        return (nullBits[column][index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= trackIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, trackIds.length * 2);
+        trackIds = Arrays.copyOf(trackIds, capacity);
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            columns[column] = Arrays.copyOf(columns[column], capacity);
+            nullBits[column] = Arrays.copyOf(nullBits[column], words(capacity));
+        }
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+}
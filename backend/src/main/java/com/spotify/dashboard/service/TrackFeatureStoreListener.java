@@ -0,0 +1,40 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.model.TrackFeatures;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that writes every persisted or updated TrackFeatures row through
+ * to the in-memory {@link TrackFeatureStore} once its transaction has committed.
+ */
+@Component
+public class TrackFeatureStoreListener {
+
+    private final TrackFeatureStore trackFeatureStore;
+
+    // lazy: Hibernate resolves entity listeners while the EntityManagerFactory (and thus the store's repository) is still being built
+    public TrackFeatureStoreListener(@Lazy TrackFeatureStore trackFeatureStore) {
+        this.trackFeatureStore = trackFeatureStore;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(TrackFeatures trackFeatures) {
+        // the callbacks run before the flush commits, and a rolled-back row must never reach the store
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            trackFeatureStore.put(trackFeatures);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                trackFeatureStore.put(trackFeatures);
+            }
+        });
+    }
+}
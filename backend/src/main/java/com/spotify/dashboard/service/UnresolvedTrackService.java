@@ -0,0 +1,107 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.model.UnresolvedTrack;
+import com.spotify.dashboard.repository.UnresolvedTrackRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tombstones for tracks ReccoBeats could not give features for, so they stop being fetched
+ * on every run for every user who played them. Each miss pushes the next attempt further out,
+ * starting at {@code initial-backoff-hours} and doubling up to {@code max-backoff-days}, since
+ * ReccoBeats does add tracks over time. A track whose features are saved loses its tombstone.
+ */
+@Service
+public class UnresolvedTrackService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnresolvedTrackService.class);
+    private static final long COUNT_REFRESH_INTERVAL_MS = 60_000;
+
+    private final UnresolvedTrackRepository repository;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Map<UnresolvedTrack.Reason, AtomicLong> counts = new EnumMap<>(UnresolvedTrack.Reason.class);
+    private volatile long countsRefreshedAt;
+
+    public UnresolvedTrackService(UnresolvedTrackRepository repository,
+                                  @Value("${track-features.unresolved.initial-backoff-hours:24}") long initialBackoffHours,
+                                  @Value("${track-features.unresolved.max-backoff-days:30}") long maxBackoffDays,
+                                  MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.initialBackoff = Duration.ofHours(initialBackoffHours);
+        this.maxBackoff = Duration.ofDays(maxBackoffDays);
+        for (UnresolvedTrack.Reason reason : UnresolvedTrack.Reason.values()) {
+            AtomicLong count = new AtomicLong();
+            counts.put(reason, count);
+            Gauge.builder("track_features.unresolved", count, AtomicLong::get)
+                .description("Tracks ReccoBeats could not resolve, skipped until their next re-check")
+                .tag("reason", reason.name().toLowerCase())
+                .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCounts() {
+        refreshCounts();
+    }
+
+    /** The given tracks minus those still waiting for their next re-check. */
+    public List<String> filterDeferred(List<String> trackIds) {
+        if (trackIds.isEmpty()) {
+            return trackIds;
+        }
+        Set<String> deferred = new HashSet<>(repository.findDeferredTrackIds(trackIds, LocalDateTime.now()));
+        if (deferred.isEmpty()) {
+            return trackIds;
+        }
+        return trackIds.stream()
+            .filter(trackId -> !deferred.contains(trackId))
+            .toList();
+    }
+
+    public void recordMisses(Collection<String> trackIds, UnresolvedTrack.Reason reason) {
+        if (trackIds.isEmpty()) {
+            return;
+        }
+        repository.recordMisses(trackIds, reason, LocalDateTime.now(), initialBackoff, maxBackoff);
+        logger.debug("Deferred {} tracks: {}", trackIds.size(), reason);
+        if (System.currentTimeMillis() - countsRefreshedAt > COUNT_REFRESH_INTERVAL_MS) {
+            refreshCounts();
+        }
+    }
+
+    public void markResolved(Collection<String> trackIds) {
+        if (!trackIds.isEmpty()) {
+            repository.deleteByTrackIdIn(trackIds);
+        }
+    }
+
+    private void refreshCounts() {
+        countsRefreshedAt = System.currentTimeMillis();
+        try {
+            Map<UnresolvedTrack.Reason, Long> current = new EnumMap<>(UnresolvedTrack.Reason.class);
+            for (Object[] row : repository.countByReason()) {
+                current.put((UnresolvedTrack.Reason) row[0], (Long) row[1]);
+            }
+            counts.forEach((reason, count) -> count.set(current.getOrDefault(reason, 0L)));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to count unresolved tracks: {}", e.getMessage());
+        }
+    }
+}
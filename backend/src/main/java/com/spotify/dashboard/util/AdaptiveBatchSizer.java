@@ -0,0 +1,47 @@
+package com.spotify.dashboard.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD controller for request batch sizes: grows additively while batches come back
+ * fast and clean, shrinks multiplicatively on slow responses and errors.
+ */
+public class AdaptiveBatchSizer {
+
+    private static final int ADDITIVE_STEP = 5;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetLatencyMs;
+    private final AtomicInteger current;
+
+    public AdaptiveBatchSizer(int minSize, int maxSize, int initialSize, long targetLatencyMs) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid batch size bounds");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetLatencyMs = targetLatencyMs;
+        this.current = new AtomicInteger(clamp(initialSize));
+    }
+
+    public int currentSize() {
+        return current.get();
+    }
+
+    public void onSuccess(long latencyMs) {
+        if (latencyMs > targetLatencyMs) {
+            current.updateAndGet(size -> clamp(size * 3 / 4));
+        } else {
+            current.updateAndGet(size -> clamp(size + ADDITIVE_STEP));
+        }
+    }
+
+    public void onFailure() {
+        current.updateAndGet(size -> clamp(size / 2));
+    }
+
+    private int clamp(int size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+}
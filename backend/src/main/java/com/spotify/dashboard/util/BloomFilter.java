@@ -0,0 +1,91 @@
+package com.spotify.dashboard.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings. {@link #mightContain} never returns a false
+ * negative; false positives occur at roughly the configured rate while the number of
+ * insertions stays within the expected count.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.words = new AtomicLongArray((int) ((bitCount + 63) / 64));
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing");
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        return new BloomFilter(Math.max(64, bits), hashes);
+    }
+
+    public void put(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            setBit(index(h1 + i * h2));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            if (!getBit(index(h1 + i * h2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitCount;
+    }
+
+    private long index(int combinedHash) {
+        return (combinedHash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    private void setBit(long bitIndex) {
+        int wordIndex = (int) (bitIndex >>> 6);
+        long mask = 1L << bitIndex;
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ((word & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word | mask));
+    }
+
+    private boolean getBit(long bitIndex) {
+        return (words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) != 0;
+    }
+
+    // FNV-1a over the UTF-8 bytes followed by a murmur3 finalizer to spread the bits
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
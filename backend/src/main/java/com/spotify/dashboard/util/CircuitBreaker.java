@@ -0,0 +1,179 @@
+package com.spotify.dashboard.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker.
+ *
+ * While closed it tracks the outcome of the last {@code windowSize} calls and opens once at
+ * least {@code minimumCalls} have been seen and the failure rate reaches the threshold. While
+ * open every call is refused. After {@code openNanos} it goes half-open and lets
+ * {@code probeCalls} calls through: if they all succeed it closes with a clean window, the first
+ * failure opens it again for another full period.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int probeCalls;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openNanos, int probeCalls) {
+        this(windowSize, minimumCalls, failureRateThreshold, openNanos, probeCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                   long openNanos, int probeCalls, LongSupplier nanoClock) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || probeCalls < 1
+                || failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+        this.probeCalls = probeCalls;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Asks to make a call. Every permitted call must be followed by exactly one of
+     * {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (nanoClock.getAsLong() - openedAtNanos < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probesStarted = 0;
+                probesSucceeded = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesStarted >= probeCalls) {
+                    return false;
+                }
+                probesStarted++;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                probesSucceeded++;
+                if (probesSucceeded >= probeCalls) {
+                    state = State.CLOSED;
+                    resetWindow();
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                    open();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The call was not made or says nothing about the dependency's health; hands back a probe slot. */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+                probesStarted--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= openNanos) {
+                // reported as half-open as soon as the next call would be let through
+                return State.HALF_OPEN;
+            }
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Time left until probing starts, zero unless open. */
+    public long remainingOpenNanos() {
+        lock.lock();
+        try {
+            return state == State.OPEN ? Math.max(0, openNanos - (nanoClock.getAsLong() - openedAtNanos)) : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = nanoClock.getAsLong();
+        resetWindow();
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
@@ -0,0 +1,420 @@
+package com.spotify.dashboard.util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for calls to a rate-limited upstream.
+ *
+ * Concurrency is an AIMD limit: every clean response raises it by about one per limit's worth of
+ * responses, and overload or throttling halves it, at most once per round of requests. A
+ * throttling response also pauses all admissions until the upstream's retry time has passed.
+ *
+ * Callers over the limit queue by key (normally one per user) and are admitted round-robin
+ * across keys, so a user with hundreds of queued calls waits behind their own calls rather than
+ * everyone else's. Interactive calls go ahead of background ones, with one background call let
+ * through after every {@value #INTERACTIVE_BURST} interactive ones so background work keeps moving.
+ *
+ * Callers either block in {@link #acquire} or get a future from {@link #acquireAsync}; both wait
+ * in the same queues.
+ */
+public class OutboundGovernor {
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    public enum Outcome {
+        /** The upstream handled the call normally; the limit grows. */
+        SUCCESS,
+        /** Server errors and timeouts; the limit shrinks. */
+        OVERLOADED,
+        /** Says nothing about upstream load, e.g. a 404 or a cancelled call. */
+        IGNORED
+    }
+
+    private static final int INTERACTIVE_BURST = 4;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FairQueue interactive = new FairQueue();
+    private final FairQueue background = new FairQueue();
+    // async waiters granted under the lock, completed once it is released
+    private final ConcurrentLinkedQueue<Waiter> grantedAsync = new ConcurrentLinkedQueue<>();
+
+    private double limit;
+    private int inFlight;
+    private int interactiveStreak;
+    private long pausedUntilNanos;
+    private long lastDecreaseNanos;
+
+    public OutboundGovernor(int minLimit, int maxLimit, int initialLimit) {
+        this(minLimit, maxLimit, initialLimit, System::nanoTime);
+    }
+
+    OutboundGovernor(int minLimit, int maxLimit, int initialLimit, LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limit bounds");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        long now = nanoClock.getAsLong();
+        this.pausedUntilNanos = now;
+        this.lastDecreaseNanos = now;
+    }
+
+    /**
+     * Waits up to {@code maxWaitNanos} for a slot. Gives up at once when the current pause
+     * alone outlasts the wait.
+     *
+     * @return the permit, to be completed exactly once, or null if none was granted in time
+     */
+    public Permit acquire(String key, Priority priority, long maxWaitNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            long deadline = now + maxWaitNanos;
+            if (pausedUntilNanos - deadline > 0) {
+                return null;
+            }
+            if (interactive.isEmpty() && background.isEmpty() && canAdmit(now)) {
+                inFlight++;
+                return new Permit(now);
+            }
+
+            FairQueue queue = priority == Priority.INTERACTIVE ? interactive : background;
+            Waiter waiter = new Waiter(key, lock.newCondition(), null);
+            queue.add(waiter);
+            try {
+                while (true) {
+                    dispatch();
+                    if (waiter.granted) {
+                        return new Permit(nanoClock.getAsLong());
+                    }
+                    if (!grantedAsync.isEmpty()) {
+                        // hand out what this dispatch granted before parking
+                        lock.unlock();
+                        try {
+                            completeGranted();
+                        } finally {
+                            lock.lock();
+                        }
+                        continue;
+                    }
+                    now = nanoClock.getAsLong();
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        queue.remove(waiter);
+                        return null;
+                    }
+                    // wake up when the pause ends to admit whoever is first in line
+                    long pauseRemaining = pausedUntilNanos - now;
+                    waiter.condition.awaitNanos(pauseRemaining > 0 ? Math.min(remaining, pauseRemaining) : remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    inFlight--;
+                    dispatch();
+                } else {
+                    queue.remove(waiter);
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+            completeGranted();
+        }
+    }
+
+    /**
+     * Non-blocking {@link #acquire}: the future completes with the permit once one is granted,
+     * or with null if none was granted within {@code maxWaitNanos}. It is completed by whichever
+     * thread frees the slot, or by a timer thread, never while the governor's lock is held. A
+     * future cancelled by the caller gives its permit straight back.
+     */
+    public CompletableFuture<Permit> acquireAsync(String key, Priority priority, long maxWaitNanos) {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            if (pausedUntilNanos - (now + maxWaitNanos) > 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (interactive.isEmpty() && background.isEmpty() && canAdmit(now)) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit(now));
+            }
+
+            FairQueue queue = priority == Priority.INTERACTIVE ? interactive : background;
+            Waiter waiter = new Waiter(key, null, new CompletableFuture<>());
+            queue.add(waiter);
+            dispatch();
+            if (!waiter.granted) {
+                schedule(maxWaitNanos, () -> expire(waiter, queue));
+                // nobody is blocked in acquire to wake up when a pause ends
+                wakeAfterPause(now);
+            }
+            return waiter.future;
+        } finally {
+            lock.unlock();
+            completeGranted();
+        }
+    }
+
+    public int currentLimit() {
+        lock.lock();
+        try {
+            return effectiveLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued(Priority priority) {
+        lock.lock();
+        try {
+            return (priority == Priority.INTERACTIVE ? interactive : background).size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long pauseRemainingNanos() {
+        lock.lock();
+        try {
+            return Math.max(0, pausedUntilNanos - nanoClock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(Permit permit, Outcome outcome, long pauseNanos) {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            inFlight--;
+            if (pauseNanos > 0 && now + pauseNanos - pausedUntilNanos > 0) {
+                pausedUntilNanos = now + pauseNanos;
+                wakeAfterPause(now);
+            }
+            if (outcome == Outcome.SUCCESS) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            } else if (outcome == Outcome.OVERLOADED && permit.acquiredAtNanos - lastDecreaseNanos >= 0) {
+                // calls admitted before the last decrease were sent at the old limit, so their
+                // failures are already accounted for
+                limit = Math.max(minLimit, limit / 2);
+                lastDecreaseNanos = now;
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+            completeGranted();
+        }
+    }
+
+    private void expire(Waiter waiter, FairQueue queue) {
+        lock.lock();
+        try {
+            if (waiter.granted) {
+                return;
+            }
+            queue.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+        waiter.future.complete(null);
+    }
+
+    // called with the lock held
+    private void wakeAfterPause(long now) {
+        long pauseRemaining = pausedUntilNanos - now;
+        if (pauseRemaining > 0 && !(interactive.isEmpty() && background.isEmpty())) {
+            schedule(pauseRemaining, () -> {
+                lock.lock();
+                try {
+                    dispatch();
+                } finally {
+                    lock.unlock();
+                    completeGranted();
+                }
+            });
+        }
+    }
+
+    private static void schedule(long delayNanos, Runnable task) {
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(task);
+    }
+
+    // completing a future runs the caller's continuation, so never under the lock
+    private void completeGranted() {
+        if (lock.isHeldByCurrentThread()) {
+            return;
+        }
+        Waiter waiter;
+        while ((waiter = grantedAsync.poll()) != null) {
+            if (!waiter.future.complete(waiter.permit)) {
+                waiter.permit.release(Outcome.IGNORED);
+            }
+        }
+    }
+
+    // called with the lock held
+    private void dispatch() {
+        long now = nanoClock.getAsLong();
+        while (canAdmit(now)) {
+            Waiter next = nextWaiter();
+            if (next == null) {
+                return;
+            }
+            next.granted = true;
+            inFlight++;
+            if (next.future != null) {
+                next.permit = new Permit(now);
+                grantedAsync.add(next);
+            } else {
+                next.condition.signal();
+            }
+        }
+    }
+
+    private Waiter nextWaiter() {
+        boolean backgroundTurn = interactive.isEmpty() || interactiveStreak >= INTERACTIVE_BURST;
+        if (backgroundTurn && !background.isEmpty()) {
+            interactiveStreak = 0;
+            return background.poll();
+        }
+        if (!interactive.isEmpty()) {
+            interactiveStreak++;
+            return interactive.poll();
+        }
+        return null;
+    }
+
+    private boolean canAdmit(long now) {
+        return inFlight < effectiveLimit() && pausedUntilNanos - now <= 0;
+    }
+
+    private int effectiveLimit() {
+        return (int) limit;
+    }
+
+    /** A granted slot. Complete it once the response (or failure) is in. */
+    public final class Permit {
+
+        private final long acquiredAtNanos;
+        private boolean completed;
+
+        private Permit(long acquiredAtNanos) {
+            this.acquiredAtNanos = acquiredAtNanos;
+        }
+
+        public void release(Outcome outcome) {
+            if (markCompleted()) {
+                complete(this, outcome, 0);
+            }
+        }
+
+        /** The upstream throttled the call: pause everyone for {@code retryAfterNanos} and shrink the limit. */
+        public void throttled(long retryAfterNanos) {
+            if (markCompleted()) {
+                complete(this, Outcome.OVERLOADED, Math.max(1, retryAfterNanos));
+            }
+        }
+
+        private boolean markCompleted() {
+            lock.lock();
+            try {
+                boolean first = !completed;
+                completed = true;
+                return first;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final String key;
+        // one or the other: a blocked thread or a future to complete
+        private final Condition condition;
+        private final CompletableFuture<Permit> future;
+        private boolean granted;
+        private Permit permit;
+
+        private Waiter(String key, Condition condition, CompletableFuture<Permit> future) {
+            this.key = key;
+            this.condition = condition;
+            this.future = future;
+        }
+    }
+
+    /** Per-key FIFO queues served round-robin. */
+    private static final class FairQueue {
+        private final Map<String, ArrayDeque<Waiter>> byKey = new HashMap<>();
+        private final ArrayDeque<String> rotation = new ArrayDeque<>();
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(Waiter waiter) {
+            ArrayDeque<Waiter> waiters = byKey.get(waiter.key);
+            if (waiters == null) {
+                waiters = new ArrayDeque<>();
+                byKey.put(waiter.key, waiters);
+                rotation.addLast(waiter.key);
+            }
+            waiters.addLast(waiter);
+            size++;
+        }
+
+        Waiter poll() {
+            String key = rotation.pollFirst();
+            if (key == null) {
+                return null;
+            }
+            ArrayDeque<Waiter> waiters = byKey.get(key);
+            Waiter waiter = waiters.pollFirst();
+            size--;
+            if (waiters.isEmpty()) {
+                byKey.remove(key);
+            } else {
+                rotation.addLast(key);
+            }
+            return waiter;
+        }
+
+        void remove(Waiter waiter) {
+            ArrayDeque<Waiter> waiters = byKey.get(waiter.key);
+            if (waiters == null || !waiters.remove(waiter)) {
+                return;
+            }
+            size--;
+            if (waiters.isEmpty()) {
+                byKey.remove(waiter.key);
+                rotation.remove(waiter.key);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.spotify.dashboard.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into a single execution.
+ *
+ * The first caller for a key runs the loader; callers that arrive while it is
+ * still running wait for and share its result (or exception).
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder sharedCalls = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            sharedCalls.increment();
+            return await(existing);
+        }
+
+        try {
+            V value = loader.get();
+            created.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors and sneaky checked exceptions too: waiters join without a timeout
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * {@link #execute} for loaders that are themselves asynchronous: the key stays in flight
+     * until the loader's future completes. Each caller gets its own copy of the shared future,
+     * so cancelling one does not cancel the call for the others.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            sharedCalls.increment();
+            return existing.copy();
+        }
+
+        CompletableFuture<V> loading;
+        try {
+            loading = loader.get();
+        } catch (Throwable e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            return created.copy();
+        }
+        loading.whenComplete((value, error) -> {
+            inFlight.remove(key, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(value);
+            }
+        });
+        return created.copy();
+    }
+
+    /** Number of calls that were served by another caller's in-flight execution. */
+    public long getSharedCalls() {
+        return sharedCalls.sum();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
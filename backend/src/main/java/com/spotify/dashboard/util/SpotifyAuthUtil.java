@@ -1,12 +1,18 @@
 package com.spotify.dashboard.util;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
 @Component
 public class SpotifyAuthUtil {
 
-    public static final String SPOTIFY_TOKEN_URL = "https://accounts.spotify.com/api/token";
+    @Value("${spotify.accounts.token-url:https://accounts.spotify.com/api/token}")
+    private String tokenUrl;
+
+    public String getTokenUrl() {
+        return tokenUrl;
+    }
 
     public HttpHeaders createBasicAuthHeaders(String clientId, String clientSecret) {
         String credentials = clientId + ":" + clientSecret;
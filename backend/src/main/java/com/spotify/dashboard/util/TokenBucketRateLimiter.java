@@ -0,0 +1,74 @@
+package com.spotify.dashboard.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Blocking token-bucket rate limiter. Tokens refill continuously at the configured
+ * rate up to {@code burst}; each call consumes one token.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.capacity = burst;
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /** Waits until a token is available and takes it. */
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos = tryReserve();
+            if (waitNanos == 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    public boolean tryAcquire() {
+        return tryReserve() == 0;
+    }
+
+    /** Takes a token and returns 0, or returns how long to wait before one is available. */
+    private long tryReserve() {
+        lock.lock();
+        try {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.spotify.dashboard.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TwoTierCache Tests")
+class TwoTierCacheTest {
+
+    private static TwoTierCache cache(Cache l2) {
+        return new TwoTierCache("test",
+            Caffeine.newBuilder().maximumSize(100).expireAfterWrite(Duration.ofMinutes(5)).recordStats().build(),
+            l2, new TwoTierCache.L2Availability(30));
+    }
+
+    @Test
+    @DisplayName("Should write through to both tiers and serve repeat reads from L1")
+    void shouldWriteThroughAndServeFromL1() {
+        // given
+        ConcurrentMapCache l2 = new ConcurrentMapCache("test");
+        TwoTierCache cache = cache(l2);
+
+        // when
+        cache.put("user1_medium_term_50", "tracks");
+        Cache.ValueWrapper value = cache.get("user1_medium_term_50");
+
+        // then
+        assertNotNull(value);
+        assertEquals("tracks", value.get());
+        assertEquals("tracks", l2.get("user1_medium_term_50").get());
+        assertEquals(1, cache.getL1HitCount());
+        assertEquals(0, cache.getL2HitCount());
+    }
+
+    @Test
+    @DisplayName("Should promote L2 hits into L1")
+    void shouldPromoteL2HitsIntoL1() {
+        // given
+        ConcurrentMapCache l2 = new ConcurrentMapCache("test");
+        l2.put("user1", "profile");
+        TwoTierCache cache = cache(l2);
+
+        // when
+        cache.get("user1");
+        cache.get("user1");
+
+        // then
+        assertEquals(1, cache.getL2HitCount());
+        assertEquals(1, cache.getL1HitCount());
+        assertEquals(1, cache.getL1Size());
+    }
+
+    @Test
+    @DisplayName("Should keep serving from L1 and stop calling L2 after an L2 failure")
+    void shouldFallBackToL1WhenL2Fails() {
+        // given
+        Cache l2 = mock(Cache.class);
+        when(l2.get(any())).thenThrow(new RuntimeException("connection refused"));
+        TwoTierCache cache = cache(l2);
+
+        // when
+        Cache.ValueWrapper miss = cache.get("user1");
+        cache.put("user1", "profile");
+        Cache.ValueWrapper hit = cache.get("user1");
+
+        // then
+        assertNull(miss);
+        assertEquals("profile", hit.get());
+        assertEquals(1, cache.getL2ErrorCount());
+        verify(l2, never()).put(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should load and cache a value on a miss")
+    void shouldLoadOnMiss() {
+        // given
+        TwoTierCache cache = cache(null);
+
+        // when
+        String first = cache.get("user1", () -> "loaded");
+        String second = cache.get("user1", () -> "reloaded");
+
+        // then
+        assertEquals("loaded", first);
+        assertEquals("loaded", second);
+        assertEquals(1, cache.getMissCount());
+    }
+}
@@ -0,0 +1,60 @@
+package com.spotify.dashboard.cluster;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/** Local stand-in for the Postgres lease tables, so several coordinators can share it in one JVM. */
+class InMemoryShardLeaseStore implements ShardLeaseStore {
+
+    private record Lease(String owner, long expiresAtNanos) {}
+
+    private final LongSupplier nanoTime;
+    private final Map<String, Long> nodes = new HashMap<>();
+    private final Map<Integer, Lease> leases = new HashMap<>();
+
+    InMemoryShardLeaseStore(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public synchronized List<String> heartbeat(String nodeId, Duration ttl) {
+        long now = nanoTime.getAsLong();
+        nodes.put(nodeId, now + ttl.toNanos());
+        return nodes.entrySet().stream()
+            .filter(node -> node.getValue() - now > 0)
+            .map(Map.Entry::getKey)
+            .sorted()
+            .toList();
+    }
+
+    @Override
+    public synchronized Set<Integer> acquire(String nodeId, Collection<Integer> shards, Duration ttl) {
+        long now = nanoTime.getAsLong();
+        Set<Integer> held = new HashSet<>();
+        for (Integer shard : shards) {
+            Lease lease = leases.get(shard);
+            if (lease == null || lease.owner().equals(nodeId) || lease.expiresAtNanos() - now <= 0) {
+                leases.put(shard, new Lease(nodeId, now + ttl.toNanos()));
+                held.add(shard);
+            }
+        }
+        return held;
+    }
+
+    @Override
+    public synchronized void release(String nodeId, Collection<Integer> shards) {
+        shards.forEach(shard -> leases.computeIfPresent(shard, (key, lease) -> lease.owner().equals(nodeId) ? null : lease));
+    }
+
+    @Override
+    public synchronized void leave(String nodeId) {
+        nodes.remove(nodeId);
+        leases.values().removeIf(lease -> lease.owner().equals(nodeId));
+    }
+}
@@ -0,0 +1,151 @@
+package com.spotify.dashboard.cluster;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ShardCoordinator Tests")
+class ShardCoordinatorTest {
+
+    private static final Duration LEASE_TTL = Duration.ofSeconds(30);
+    private static final List<String> USERS = IntStream.range(0, 2000).mapToObj(i -> "user" + i).toList();
+
+    private final AtomicLong clock = new AtomicLong();
+    private InMemoryShardLeaseStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryShardLeaseStore(clock::get);
+    }
+
+    private ShardCoordinator node(String nodeId) {
+        return new ShardCoordinator(store, nodeId, 256, 64, LEASE_TTL, clock::get);
+    }
+
+    private void advanceSeconds(long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    private static Map<String, String> ownersOrFail(List<ShardCoordinator> nodes) {
+        Map<String, String> owners = new HashMap<>();
+        for (String user : USERS) {
+            List<String> owning = nodes.stream().filter(node -> node.ownsUser(user)).map(ShardCoordinator::getNodeId).toList();
+            assertTrue(owning.size() <= 1, () -> user + " is owned by " + owning);
+            if (!owning.isEmpty()) {
+                owners.put(user, owning.get(0));
+            }
+        }
+        return owners;
+    }
+
+    private static void heartbeatRound(List<ShardCoordinator> nodes) {
+        for (ShardCoordinator node : nodes) {
+            node.rebalance();
+            ownersOrFail(nodes);
+        }
+    }
+
+    @Test
+    @DisplayName("Should give every user to exactly one of several nodes")
+    void shouldAssignEveryUserToExactlyOneNode() {
+        // given
+        List<ShardCoordinator> nodes = List.of(node("a"), node("b"), node("c"));
+
+        // when
+        heartbeatRound(nodes);
+        heartbeatRound(nodes);
+        heartbeatRound(nodes);
+
+        // then
+        Map<String, String> owners = ownersOrFail(nodes);
+        assertEquals(USERS.size(), owners.size());
+        for (ShardCoordinator node : nodes) {
+            long owned = owners.values().stream().filter(node.getNodeId()::equals).count();
+            assertTrue(owned > USERS.size() / 6, () -> node.getNodeId() + " owns only " + owned + " users");
+        }
+    }
+
+    @Test
+    @DisplayName("Should move only a share of users to a joining node without double ownership")
+    void shouldRebalanceWhenNodeJoins() {
+        // given
+        List<ShardCoordinator> nodes = new ArrayList<>(List.of(node("a"), node("b"), node("c")));
+        heartbeatRound(nodes);
+        heartbeatRound(nodes);
+        Map<String, String> before = ownersOrFail(nodes);
+
+        // when
+        nodes.add(node("d"));
+        for (int round = 0; round < 3; round++) {
+            advanceSeconds(10);
+            heartbeatRound(nodes);
+        }
+
+        // then
+        Map<String, String> after = ownersOrFail(nodes);
+        assertEquals(USERS.size(), after.size());
+        long moved = USERS.stream().filter(user -> !before.get(user).equals(after.get(user))).count();
+        assertTrue(moved > 0 && moved < USERS.size() / 2, "moved " + moved + " users");
+        assertTrue(USERS.stream().filter(user -> !before.get(user).equals(after.get(user)))
+            .allMatch(user -> after.get(user).equals("d")));
+    }
+
+    @Test
+    @DisplayName("Should hand a crashed node's users to the others only after its lease lapses")
+    void shouldTakeOverAfterNodeStopsHeartbeating() {
+        // given
+        ShardCoordinator a = node("a");
+        ShardCoordinator b = node("b");
+        ShardCoordinator c = node("c");
+        List<ShardCoordinator> all = List.of(a, b, c);
+        heartbeatRound(all);
+        heartbeatRound(all);
+        int crashedShards = c.ownedShardCount();
+
+        // when
+        List<ShardCoordinator> survivors = List.of(a, b);
+        advanceSeconds(10);
+        heartbeatRound(survivors);
+        int survivorShardsBeforeExpiry = a.ownedShardCount() + b.ownedShardCount();
+        for (int round = 0; round < 4; round++) {
+            advanceSeconds(10);
+            heartbeatRound(survivors);
+            ownersOrFail(all);
+        }
+
+        // then
+        assertTrue(crashedShards > 0);
+        assertEquals(256 - crashedShards, survivorShardsBeforeExpiry);
+        assertEquals(0, c.ownedShardCount());
+        assertEquals(USERS.size(), ownersOrFail(survivors).size());
+    }
+
+    @Test
+    @DisplayName("Should release all users at once when a node leaves cleanly")
+    void shouldHandOverImmediatelyOnLeave() {
+        // given
+        ShardCoordinator a = node("a");
+        ShardCoordinator b = node("b");
+        heartbeatRound(List.of(a, b));
+        heartbeatRound(List.of(a, b));
+
+        // when
+        b.close();
+        a.rebalance();
+
+        // then
+        assertEquals(256, a.ownedShardCount());
+        assertEquals(0, b.ownedShardCount());
+    }
+}
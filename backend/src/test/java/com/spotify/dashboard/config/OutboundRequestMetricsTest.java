@@ -0,0 +1,52 @@
+package com.spotify.dashboard.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("OutboundRequestMetrics Tests")
+class OutboundRequestMetricsTest {
+
+    @Test
+    @DisplayName("Should collapse ids and query strings into a bounded endpoint")
+    void shouldNormaliseEndpoints() {
+        assertEquals("/v1/me/top/tracks",
+            OutboundRequestMetrics.endpoint(URI.create("https://api.spotify.com/v1/me/top/tracks?time_range=short_term&limit=50")));
+        assertEquals("/v1/users/{id}/playlists",
+            OutboundRequestMetrics.endpoint(URI.create("https://api.spotify.com/v1/users/johnsmith/playlists")));
+        assertEquals("/v1/playlists/{id}/tracks",
+            OutboundRequestMetrics.endpoint(URI.create("https://api.spotify.com/v1/playlists/37i9dQZF1DXcBWIGoYBM5M/tracks")));
+        assertEquals("/v1/track/{id}/audio-features",
+            OutboundRequestMetrics.endpoint(URI.create("https://api.reccobeats.com/v1/track/5f1c2a9e-3b7d-4e0a-9c1f-2d8e6b4a7c3d/audio-features")));
+        assertEquals("/api/token", OutboundRequestMetrics.endpoint(URI.create("https://accounts.spotify.com/api/token")));
+    }
+
+    @Test
+    @DisplayName("Should time calls tagged by client, endpoint and status")
+    void shouldRecordStatusTags() throws Exception {
+        // given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OutboundRequestMetrics metrics = new OutboundRequestMetrics("spotify-api", registry);
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET,
+            URI.create("https://api.spotify.com/v1/me/player/recently-played?limit=50&after=1700000000000"));
+
+        // when
+        metrics.intercept(request, new byte[0], (req, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.TOO_MANY_REQUESTS));
+
+        // then
+        assertEquals(1, registry.get("outbound.requests")
+            .tag("client", "spotify-api")
+            .tag("endpoint", "/v1/me/player/recently-played")
+            .tag("status", "429")
+            .tag("outcome", "CLIENT_ERROR")
+            .timer().count());
+    }
+}
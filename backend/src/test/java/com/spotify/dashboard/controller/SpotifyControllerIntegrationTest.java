@@ -1,7 +1,14 @@
 package com.spotify.dashboard.controller;
 
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.dto.SpotifyPage;
+import com.spotify.dashboard.dto.SpotifyTrack;
+import com.spotify.dashboard.service.AsyncSpotifyApiService;
 import com.spotify.dashboard.service.AudioFeaturesService;
+import com.spotify.dashboard.service.GenreAnalyticsService;
+import com.spotify.dashboard.service.ListeningHistoryExportService;
 import com.spotify.dashboard.service.ListeningHistoryService;
+import com.spotify.dashboard.service.ListeningRollupService;
 import com.spotify.dashboard.service.SpotifyApiService;
 import com.spotify.dashboard.service.UserService;
 import com.spotify.dashboard.util.TokenUtil;
@@ -14,14 +21,22 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = {SpotifyController.class}, excludeAutoConfiguration = {
@@ -33,8 +48,8 @@ class SpotifyControllerIntegrationTest {
 
     @TestConfiguration
     static class TestConfig {
-        @Bean
-        public RestTemplate restTemplate() {
+        @Bean(AppConfig.SPOTIFY_ACCOUNTS)
+        public RestTemplate spotifyAccountsRestTemplate() {
             return new RestTemplate();
         }
     }
@@ -45,6 +60,9 @@ class SpotifyControllerIntegrationTest {
     @MockitoBean
     private SpotifyApiService spotifyApiService;
 
+    @MockitoBean
+    private AsyncSpotifyApiService asyncSpotifyApiService;
+
     @MockitoBean
     private UserService userService;
 
@@ -54,6 +72,15 @@ class SpotifyControllerIntegrationTest {
     @MockitoBean
     private AudioFeaturesService audioFeaturesService;
 
+    @MockitoBean
+    private ListeningRollupService listeningRollupService;
+
+    @MockitoBean
+    private GenreAnalyticsService genreAnalyticsService;
+
+    @MockitoBean
+    private ListeningHistoryExportService listeningHistoryExportService;
+
     @MockitoBean
     private TokenUtil tokenUtil;
 
@@ -104,4 +131,37 @@ class SpotifyControllerIntegrationTest {
                 .andExpect(jsonPath("$.items").isArray())
                 .andExpect(jsonPath("$.items[0].id").value("track1"));
     }
+
+    @Test
+    @DisplayName("Should generate a playlist from top tracks without blocking the request")
+    void shouldGeneratePlaylistAsynchronously() throws Exception {
+        // given
+        SpotifyTrack track = new SpotifyTrack("track1", "Test Track", "spotify:track:track1", List.of());
+        Map<String, Object> playlist = Map.of(
+            "id", "playlist1", "name", "Mix", "description", "Top tracks",
+            "external_urls", Map.of("spotify", "https://open.spotify.com/playlist/playlist1"));
+
+        when(tokenUtil.extractAccessToken(BEARER_TOKEN)).thenReturn(VALID_TOKEN);
+        when(asyncSpotifyApiService.getUserId(VALID_TOKEN)).thenReturn(CompletableFuture.completedFuture("user123"));
+        when(asyncSpotifyApiService.getTopTrackPage(VALID_TOKEN, "short_term", 50))
+            .thenReturn(CompletableFuture.completedFuture(new SpotifyPage<>(List.of(track))));
+        when(asyncSpotifyApiService.createPlaylist(eq(VALID_TOKEN), eq("user123"), any()))
+            .thenReturn(CompletableFuture.completedFuture(playlist));
+        when(asyncSpotifyApiService.addTracksToPlaylist(VALID_TOKEN, "playlist1", Map.of("uris", List.of("spotify:track:track1"))))
+            .thenReturn(CompletableFuture.completedFuture(Map.of("snapshot_id", "s1")));
+
+        // when
+        MvcResult started = mockMvc.perform(post("/api/v1/spotify/playlists/generate")
+                .header("Authorization", BEARER_TOKEN)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"time_range\":\"short_term\",\"name\":\"Mix\",\"description\":\"Top tracks\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("playlist1"))
+                .andExpect(jsonPath("$.tracks_added").value(1));
+    }
 }
@@ -0,0 +1,78 @@
+package com.spotify.dashboard.dto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Spotify payload decoding Tests")
+class SpotifyPayloadDecodingTest {
+
+    private static final TypeReference<SpotifyPage<SpotifyTrack>> TRACK_PAGE = new TypeReference<>() {};
+    private static final TypeReference<SpotifyPage<RecentlyPlayedItem>> RECENTLY_PLAYED_PAGE = new TypeReference<>() {};
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static byte[] topTracksJson;
+    private static byte[] recentlyPlayedJson;
+
+    @BeforeAll
+    static void loadFixtures() throws IOException {
+        topTracksJson = readFixture("top-tracks.json");
+        recentlyPlayedJson = readFixture("recently-played.json");
+    }
+
+    @Test
+    @DisplayName("Should decode the fields we use from top tracks")
+    void shouldDecodeTopTracks() throws Exception {
+        // when
+        SpotifyPage<SpotifyTrack> page = objectMapper.readValue(topTracksJson, TRACK_PAGE);
+
+        // then
+        assertEquals(50, page.items().size());
+        SpotifyTrack first = page.items().get(0);
+        assertNotNull(first.id());
+        assertEquals("spotify:track:" + first.id(), first.uri());
+        assertFalse(first.artists().isEmpty());
+        assertNotNull(first.primaryArtistName());
+    }
+
+    @Test
+    @DisplayName("Should decode play timestamps and tracks from recently played")
+    void shouldDecodeRecentlyPlayed() throws Exception {
+        // when
+        SpotifyPage<RecentlyPlayedItem> page = objectMapper.readValue(recentlyPlayedJson, RECENTLY_PLAYED_PAGE);
+
+        // then
+        assertEquals(50, page.items().size());
+        RecentlyPlayedItem item = page.items().get(0);
+        assertTrue(item.playedAt().endsWith("Z"));
+        assertNotNull(item.track().id());
+    }
+
+    @Test
+    @DisplayName("Should extract the Spotify id from a ReccoBeats href")
+    void shouldExtractSpotifyIdFromReccoBeatsHref() throws Exception {
+        // given
+        String json = "{\"content\":[{\"id\":\"rb-1\",\"href\":\"https://open.spotify.com/track/abc123\",\"isrc\":\"X\"}]}";
+
+        // when
+        ReccoBeatsTrack.Page page = objectMapper.readValue(json, ReccoBeatsTrack.Page.class);
+
+        // then
+        assertEquals("abc123", page.content().get(0).spotifyId());
+        assertNull(new ReccoBeatsTrack("rb-2", "https://open.spotify.com/album/abc123").spotifyId());
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream in = SpotifyPayloadDecodingTest.class.getResourceAsStream("/fixtures/spotify/" + name)) {
+            assertNotNull(in, "missing fixture " + name);
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.ListeningHistory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ListeningHistoryRepositoryCustomImpl Tests")
+@EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")
+class ListeningHistoryRepositoryCustomImplTest {
+
+    private static final LocalDateTime PLAYED_AT = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private PostgresTestDatabase database;
+    private ListeningHistoryRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        database = new PostgresTestDatabase(PostgresTestDatabase.LISTENING_HISTORY);
+        repository = new ListeningHistoryRepositoryCustomImpl(database.jdbcTemplate());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Should return only the rows of a mixed batch that were new, in batch order")
+    void shouldReturnOnlyNewRows() {
+        // given
+        ListeningHistory stored = play("alice", "t1", 0);
+        repository.insertIgnoringDuplicates(List.of(stored));
+        ListeningHistory storedAgain = play("alice", "t1", 0);
+        ListeningHistory newPlay = play("alice", "t2", 1);
+        ListeningHistory sameTrackOtherTime = play("alice", "t1", 2);
+        ListeningHistory sameTimeOtherUser = play("bob", "t1", 0);
+        ListeningHistory repeatedInBatch = play("alice", "t2", 1);
+
+        // when
+        List<ListeningHistory> inserted = repository.insertIgnoringDuplicates(
+            List.of(storedAgain, newPlay, sameTrackOtherTime, sameTimeOtherUser, repeatedInBatch));
+
+        // then
+        assertEquals(3, inserted.size());
+        assertSame(newPlay, inserted.get(0));
+        assertSame(sameTrackOtherTime, inserted.get(1));
+        assertSame(sameTimeOtherUser, inserted.get(2));
+        assertEquals(4, database.jdbcTemplate().queryForObject("SELECT COUNT(*) FROM listening_history", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should return nothing when every row of the batch is already stored")
+    void shouldReturnNothingForAllDuplicates() {
+        // given
+        List<ListeningHistory> plays = List.of(play("alice", "t1", 0), play("alice", "t2", 1));
+        repository.insertIgnoringDuplicates(plays);
+
+        // when
+        List<ListeningHistory> inserted = repository.insertIgnoringDuplicates(
+            List.of(play("alice", "t2", 1), play("alice", "t1", 0)));
+
+        // then
+        assertTrue(inserted.isEmpty());
+        assertTrue(repository.insertIgnoringDuplicates(List.of()).isEmpty());
+    }
+
+    private static ListeningHistory play(String userId, String trackId, int minute) {
+        return new ListeningHistory(userId, trackId, "Track " + trackId, "Artist", PLAYED_AT.plusMinutes(minute));
+    }
+}
@@ -0,0 +1,100 @@
+package com.spotify.dashboard.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * A throwaway schema on the Postgres named by {@value #URL_VARIABLE} (credentials from
+ * TEST_POSTGRES_USER and TEST_POSTGRES_PASSWORD), for SQL that H2 cannot stand in for: parameter
+ * typing, ON CONFLICT, SKIP LOCKED. Tests using it are annotated with
+ * {@code @EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")}
+ * and skipped when no database is configured.
+ *
+ * The tables are created from the DDL below, which mirrors the entity mappings Hibernate
+ * creates them from.
+ */
+public final class PostgresTestDatabase implements AutoCloseable {
+
+    public static final String URL_VARIABLE = "TEST_POSTGRES_URL";
+
+    public static final String LISTENING_HISTORY =
+        "CREATE TABLE listening_history (id bigserial PRIMARY KEY, user_id varchar(255) NOT NULL, " +
+        "track_id varchar(255) NOT NULL, track_name varchar(255) NOT NULL, artist_name varchar(255) NOT NULL, " +
+        "played_at timestamp(6) NOT NULL, " +
+        "CONSTRAINT uk_listening_history_play UNIQUE (user_id, played_at, track_id))";
+
+    public static final String TRACK_FEATURES =
+        "CREATE TABLE track_features (id bigserial PRIMARY KEY, track_id varchar(255) NOT NULL UNIQUE, " +
+        "track_name varchar(255), artist_name varchar(255), acousticness real, danceability real, energy real, " +
+        "valence real, tempo real, fetched_at timestamp(6) NOT NULL)";
+
+    public static final String UNRESOLVED_TRACK =
+        "CREATE TABLE unresolved_track (track_id varchar(255) PRIMARY KEY, reason varchar(32) NOT NULL, " +
+        "attempts integer NOT NULL, first_attempt_at timestamp(6) NOT NULL, last_attempt_at timestamp(6) NOT NULL, " +
+        "next_attempt_at timestamp(6) NOT NULL)";
+
+    public static final String TRACK_ENRICHMENT_QUEUE =
+        "CREATE TABLE track_enrichment_queue (track_id varchar(255) PRIMARY KEY, track_name varchar(255), " +
+        "artist_name varchar(255), play_count bigint NOT NULL, attempts integer NOT NULL, " +
+        "enqueued_at timestamp(6) NOT NULL, available_at timestamp(6) NOT NULL, claimed_by varchar(255), " +
+        "claimed_until timestamp(6))";
+
+    public static final String LISTENING_HOURLY_ROLLUP =
+        "CREATE TABLE listening_hourly_rollup (user_id varchar(255) NOT NULL, hour_of_day integer NOT NULL, " +
+        "play_count bigint NOT NULL, PRIMARY KEY (user_id, hour_of_day))";
+
+    public static final String LISTENING_DAILY_ROLLUP =
+        "CREATE TABLE listening_daily_rollup (user_id varchar(255) NOT NULL, play_date date NOT NULL, " +
+        "play_count bigint NOT NULL, PRIMARY KEY (user_id, play_date))";
+
+    public static final String LISTENING_ARTIST_ROLLUP =
+        "CREATE TABLE listening_artist_rollup (user_id varchar(255) NOT NULL, artist_name varchar(255) NOT NULL, " +
+        "play_count bigint NOT NULL, PRIMARY KEY (user_id, artist_name))";
+
+    public static final String LISTENING_ROLLUP_REBUILD =
+        "CREATE TABLE listening_rollup_rebuild (rebuild_id varchar(255) PRIMARY KEY, rebuilt_at timestamp(6) NOT NULL)";
+
+    private final DriverManagerDataSource adminDataSource;
+    private final DriverManagerDataSource dataSource;
+    private final String schema = "test_" + UUID.randomUUID().toString().replace("-", "").toLowerCase(Locale.ROOT);
+
+    public PostgresTestDatabase(String... ddl) {
+        String url = System.getenv(URL_VARIABLE);
+        String user = System.getenv("TEST_POSTGRES_USER");
+        String password = System.getenv("TEST_POSTGRES_PASSWORD");
+        this.adminDataSource = new DriverManagerDataSource(url, user, password);
+        new JdbcTemplate(adminDataSource).execute("CREATE SCHEMA " + schema);
+
+        this.dataSource = new DriverManagerDataSource(url, user, password);
+        Properties properties = new Properties();
+        properties.setProperty("currentSchema", schema);
+        this.dataSource.setConnectionProperties(properties);
+        JdbcTemplate jdbcTemplate = jdbcTemplate();
+        for (String statement : ddl) {
+            jdbcTemplate.execute(statement);
+        }
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(dataSource);
+    }
+
+    public DataSourceTransactionManager transactionManager() {
+        return new DataSourceTransactionManager(dataSource);
+    }
+
+    @Override
+    public void close() {
+        new JdbcTemplate(adminDataSource).execute("DROP SCHEMA " + schema + " CASCADE");
+    }
+}
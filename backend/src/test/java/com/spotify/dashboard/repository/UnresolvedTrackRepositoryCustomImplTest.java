@@ -0,0 +1,88 @@
+package com.spotify.dashboard.repository;
+
+import com.spotify.dashboard.model.UnresolvedTrack;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("UnresolvedTrackRepositoryCustomImpl Tests")
+@EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")
+class UnresolvedTrackRepositoryCustomImplTest {
+
+    private static final LocalDateTime FIRST_MISS = LocalDateTime.of(2026, 3, 1, 12, 0);
+    private static final Duration INITIAL_BACKOFF = Duration.ofHours(24);
+    private static final Duration MAX_BACKOFF = Duration.ofDays(3);
+
+    private PostgresTestDatabase database;
+    private UnresolvedTrackRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        database = new PostgresTestDatabase(PostgresTestDatabase.UNRESOLVED_TRACK);
+        repository = new UnresolvedTrackRepositoryCustomImpl(database.jdbcTemplate());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Should defer a first miss by the initial backoff")
+    void shouldDeferFirstMiss() {
+        // when
+        repository.recordMisses(List.of("t2", "t1"), UnresolvedTrack.Reason.NOT_IN_RECCOBEATS, FIRST_MISS,
+            INITIAL_BACKOFF, MAX_BACKOFF);
+
+        // then
+        Map<String, Object> row = row("t1");
+        assertEquals(1, row.get("attempts"));
+        assertEquals("NOT_IN_RECCOBEATS", row.get("reason"));
+        assertEquals(FIRST_MISS, timestamp(row, "first_attempt_at"));
+        assertEquals(FIRST_MISS.plusHours(24), timestamp(row, "next_attempt_at"));
+        assertEquals(1, row("t2").get("attempts"));
+    }
+
+    @Test
+    @DisplayName("Should double the backoff with each further miss up to the maximum")
+    void shouldDoubleBackoffUpToMaximum() {
+        // given
+        LocalDateTime secondMiss = FIRST_MISS.plusDays(1);
+        LocalDateTime thirdMiss = FIRST_MISS.plusDays(3);
+        LocalDateTime fourthMiss = FIRST_MISS.plusDays(7);
+
+        // when
+        repository.recordMisses(List.of("t1"), UnresolvedTrack.Reason.NOT_IN_RECCOBEATS, FIRST_MISS, INITIAL_BACKOFF, MAX_BACKOFF);
+        repository.recordMisses(List.of("t1"), UnresolvedTrack.Reason.NO_AUDIO_FEATURES, secondMiss, INITIAL_BACKOFF, MAX_BACKOFF);
+        LocalDateTime afterSecond = timestamp(row("t1"), "next_attempt_at");
+        repository.recordMisses(List.of("t1"), UnresolvedTrack.Reason.NO_AUDIO_FEATURES, thirdMiss, INITIAL_BACKOFF, MAX_BACKOFF);
+        repository.recordMisses(List.of("t1"), UnresolvedTrack.Reason.NO_AUDIO_FEATURES, fourthMiss, INITIAL_BACKOFF, MAX_BACKOFF);
+
+        // then
+        Map<String, Object> row = row("t1");
+        assertEquals(secondMiss.plusHours(48), afterSecond);
+        assertEquals(4, row.get("attempts"));
+        assertEquals("NO_AUDIO_FEATURES", row.get("reason"));
+        assertEquals(FIRST_MISS, timestamp(row, "first_attempt_at"));
+        assertEquals(fourthMiss, timestamp(row, "last_attempt_at"));
+        assertEquals(fourthMiss.plusDays(3), timestamp(row, "next_attempt_at"), "8 days capped at 3");
+    }
+
+    private Map<String, Object> row(String trackId) {
+        return database.jdbcTemplate().queryForMap("SELECT * FROM unresolved_track WHERE track_id = ?", trackId);
+    }
+
+    private static LocalDateTime timestamp(Map<String, Object> row, String column) {
+        return ((Timestamp) row.get(column)).toLocalDateTime();
+    }
+}
@@ -0,0 +1,109 @@
+package com.spotify.dashboard.scheduler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("UserPollSchedule Tests")
+class UserPollScheduleTest {
+
+    private static final long MINUTE_MS = 60_000;
+
+    private static UserPollSchedule schedule() {
+        return new UserPollSchedule(Duration.ofMinutes(5), Duration.ofMinutes(30), Duration.ofMinutes(360), 0.5, 50);
+    }
+
+    @Test
+    @DisplayName("Should poll heavy listeners sooner and back idle users off to the maximum")
+    void shouldAdaptIntervalToPlayRate() {
+        // given
+        UserPollSchedule schedule = schedule();
+        schedule.sync(List.of("heavy", "steady", "idle"), 0);
+        schedule.takeDue(0, 10);
+        schedule.record("heavy", 50, true, 0);
+        schedule.record("steady", 10, false, 0);
+        schedule.record("idle", 0, false, 0);
+
+        // when
+        long heavy = schedule.record("heavy", 50, true, 5 * MINUTE_MS);
+        // 10 plays in 30 minutes is 20 plays an hour, so 25 plays take 75 minutes
+        long steady = schedule.record("steady", 10, false, 30 * MINUTE_MS);
+        long idle = 0;
+        for (long now = 30 * MINUTE_MS; now < 24 * 60 * MINUTE_MS; now += idle) {
+            idle = schedule.record("idle", 0, false, now);
+        }
+
+        // then
+        assertEquals(5 * MINUTE_MS, heavy);
+        assertEquals(75 * MINUTE_MS, steady);
+        assertEquals(360 * MINUTE_MS, idle);
+    }
+
+    @Test
+    @DisplayName("Should keep a heavy listener's interval and play rate through failed polls")
+    void shouldKeepIntervalWhenPollsFail() {
+        // given
+        UserPollSchedule schedule = schedule();
+        schedule.sync(List.of("heavy"), 0);
+        schedule.takeDue(0, 10);
+        schedule.record("heavy", 50, true, 0);
+        schedule.takeDue(5 * MINUTE_MS, 10);
+        schedule.record("heavy", 50, true, 5 * MINUTE_MS);
+
+        // when
+        List<String> retried = new ArrayList<>();
+        for (long now = 10 * MINUTE_MS; now <= 30 * MINUTE_MS; now += 5 * MINUTE_MS) {
+            retried.addAll(schedule.takeDue(now, 10));
+            schedule.skip("heavy", now);
+        }
+        schedule.takeDue(35 * MINUTE_MS, 10);
+        long afterOutage = schedule.record("heavy", 50, true, 35 * MINUTE_MS);
+
+        // then
+        assertEquals(List.of("heavy", "heavy", "heavy", "heavy", "heavy"), retried);
+        assertEquals(5 * MINUTE_MS, afterOutage);
+    }
+
+    @Test
+    @DisplayName("Should hand out at most the budget per tick, most overdue first")
+    void shouldRespectBudgetAndOrder() {
+        // given
+        UserPollSchedule schedule = schedule();
+        schedule.sync(List.of("a"), 0);
+        schedule.sync(List.of("a", "b"), MINUTE_MS);
+        schedule.sync(List.of("a", "b", "c"), 2 * MINUTE_MS);
+
+        // when
+        List<String> first = schedule.takeDue(3 * MINUTE_MS, 2);
+        List<String> second = schedule.takeDue(3 * MINUTE_MS, 2);
+        List<String> third = schedule.takeDue(3 * MINUTE_MS, 2);
+
+        // then
+        assertEquals(List.of("a", "b"), first);
+        assertEquals(List.of("c"), second);
+        assertTrue(third.isEmpty());
+        assertEquals(0, schedule.overdueCount(3 * MINUTE_MS));
+    }
+
+    @Test
+    @DisplayName("Should drop users that are no longer synced, even while they are being polled")
+    void shouldForgetRemovedUsers() {
+        // given
+        UserPollSchedule schedule = schedule();
+        schedule.sync(List.of("a", "b"), 0);
+        schedule.takeDue(0, 10);
+
+        // when
+        schedule.sync(List.of("b"), MINUTE_MS);
+        long removed = schedule.record("a", 3, false, MINUTE_MS);
+
+        // then
+        assertEquals(-1, removed);
+        assertEquals(1, schedule.size());
+    }
+}
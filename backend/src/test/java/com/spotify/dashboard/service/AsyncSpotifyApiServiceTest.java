@@ -0,0 +1,103 @@
+package com.spotify.dashboard.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.dashboard.config.AppConfig;
+import com.spotify.dashboard.config.GovernedAsyncClient;
+import com.spotify.dashboard.config.WorkerThreads;
+import com.spotify.dashboard.dto.SpotifyPage;
+import com.spotify.dashboard.dto.SpotifyTrack;
+import com.spotify.dashboard.exception.UpstreamThrottledException;
+import com.spotify.dashboard.standin.SpotifyStandIn;
+import com.spotify.dashboard.util.SpotifyAuthUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AsyncSpotifyApiService Tests")
+class AsyncSpotifyApiServiceTest {
+
+    @Test
+    @DisplayName("Should resolve the user once, then serve repeats from the caches the blocking service uses")
+    void shouldShareCachesWithBlockingService() throws Exception {
+        // given
+        try (SpotifyStandIn standIn = SpotifyStandIn.start(settings(Map.of()));
+             GovernedAsyncClient client = asyncClient()) {
+            CacheManager cacheManager = new ConcurrentMapCacheManager(SpotifyApiService.CACHE_NAMES.toArray(String[]::new));
+            AsyncSpotifyApiService service = service(standIn, client, cacheManager);
+            String accessToken = standIn.accessToken(0);
+
+            // when
+            CompletableFuture<String> userId = service.getUserId(accessToken);
+            CompletableFuture<SpotifyPage<SpotifyTrack>> first = service.getTopTrackPage(accessToken, "short_term", 50);
+            SpotifyPage<SpotifyTrack> firstPage = first.get(5, TimeUnit.SECONDS);
+            SpotifyPage<SpotifyTrack> repeat = service.getTopTrackPage(accessToken, "short_term", 50).get(5, TimeUnit.SECONDS);
+            Map<String, Object> playlist = service.createPlaylist(accessToken, userId.get(5, TimeUnit.SECONDS),
+                Map.of("name", "Mix", "description", "Top tracks", "public", false)).get(5, TimeUnit.SECONDS);
+
+            // then
+            assertEquals("standin-user-0", userId.get());
+            assertEquals(50, firstPage.items().size());
+            assertSame(firstPage, repeat);
+            assertSame(firstPage, cacheManager.getCache(SpotifyApiService.TOP_TRACK_PAGES_CACHE)
+                .get("standin-user-0_short_term_50").get(), "keyed as SpotifyUserKeyGenerator keys it");
+            assertNotNull(cacheManager.getCache(SpotifyApiService.USER_CACHE).get("standin-user-0"));
+            assertEquals("Mix", playlist.get("name"));
+            assertEquals(1L, standIn.requestCounts().get("GET /v1/me"), "concurrent lookups share one call");
+            assertEquals(1L, standIn.requestCounts().get("GET /v1/me/top/tracks"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail with UpstreamThrottledException when Spotify asks to back off for too long")
+    void shouldSurfaceThrottling() throws Exception {
+        // given
+        try (SpotifyStandIn standIn = SpotifyStandIn.start(settings(Map.of("api-throttle-rate", "1", "retry-after-seconds", "7")));
+             GovernedAsyncClient client = asyncClient()) {
+            AsyncSpotifyApiService service = service(standIn, client, new ConcurrentMapCacheManager());
+
+            // when
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> service.getUserId(standIn.accessToken(0)).get(5, TimeUnit.SECONDS));
+
+            // then
+            UpstreamThrottledException cause = assertInstanceOf(UpstreamThrottledException.class, failure.getCause());
+            assertEquals(7, cause.getRetryAfter().toSeconds());
+        }
+    }
+
+    private static GovernedAsyncClient asyncClient() {
+        MockEnvironment environment = new MockEnvironment();
+        return new AppConfig(environment, new SimpleMeterRegistry(), new RestTemplateBuilder(), new WorkerThreads(environment))
+            .spotifyApiAsyncClient();
+    }
+
+    private static AsyncSpotifyApiService service(SpotifyStandIn standIn, GovernedAsyncClient client,
+                                                  CacheManager cacheManager) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SpotifyUserResolver resolver = new SpotifyUserResolver(new RestTemplate(), standIn.apiBaseUrl(),
+            new SpotifyAuthUtil(), cacheManager, 100, meterRegistry);
+        return new AsyncSpotifyApiService(client, standIn.apiBaseUrl(), new SpotifyAuthUtil(), resolver,
+            cacheManager, new ObjectMapper(), meterRegistry);
+    }
+
+    private static SpotifyStandIn.Settings settings(Map<String, String> overrides) {
+        Map<String, String> options = new HashMap<>(Map.of(
+            "api-latency", "fixed:20", "accounts-latency", "none", "reccobeats-latency", "none"));
+        options.putAll(overrides);
+        return SpotifyStandIn.Settings.parse(options);
+    }
+}
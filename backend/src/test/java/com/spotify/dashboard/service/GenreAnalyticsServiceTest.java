@@ -0,0 +1,61 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.dto.SpotifyArtist;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("GenreAnalyticsService Tests")
+class GenreAnalyticsServiceTest {
+
+    private static SpotifyArtist artist(String id, String... genres) {
+        return new SpotifyArtist(id, id, List.of(genres));
+    }
+
+    @Test
+    @DisplayName("Should keep the top genres of each range in count order")
+    void shouldKeepTopGenresPerRange() {
+        // given
+        List<SpotifyArtist> shortTerm = List.of(
+            artist("a", "pop", "dance pop"), artist("b", "pop"), artist("c", "indie", "pop"), artist("d", "jazz"));
+        List<SpotifyArtist> mediumTerm = List.of(artist("e", "indie"), artist("f", "indie", "rock"));
+        List<SpotifyArtist> longTerm = List.of();
+
+        // when
+        GenreAnalyticsService.Distributions distributions = GenreAnalyticsService.computeDistributions(
+            0L, List.of(shortTerm, mediumTerm, longTerm), 2);
+
+        // then
+        List<GenreAnalyticsService.GenreShare> top = distributions.byRange().get("short_term");
+        assertEquals(2, top.size());
+        assertEquals(new GenreAnalyticsService.GenreShare("pop", 3, 75.0), top.get(0));
+        // ties on count fall back to name order
+        assertEquals("dance pop", top.get(1).name());
+        assertEquals("indie", distributions.byRange().get("medium_term").get(0).name());
+        assertTrue(distributions.byRange().get("long_term").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should report genres rising and falling between ranges")
+    @SuppressWarnings("unchecked")
+    void shouldReportDriftBetweenRanges() {
+        // given
+        List<SpotifyArtist> shortTerm = List.of(artist("a", "hyperpop"), artist("b", "hyperpop"));
+        List<SpotifyArtist> longTerm = List.of(artist("c", "emo"), artist("d", "hyperpop"));
+
+        // when
+        Map<String, Object> drift = GenreAnalyticsService.computeDistributions(
+            0L, List.of(shortTerm, shortTerm, longTerm), 10).drift().get("short_term_vs_long_term");
+
+        // then
+        assertEquals(0.5, drift.get("distance"));
+        List<Map<String, Object>> rising = (List<Map<String, Object>>) drift.get("rising");
+        List<Map<String, Object>> falling = (List<Map<String, Object>>) drift.get("falling");
+        assertEquals(Map.of("name", "hyperpop", "change", 50.0), rising.get(0));
+        assertEquals(Map.of("name", "emo", "change", -50.0), falling.get(0));
+    }
+}
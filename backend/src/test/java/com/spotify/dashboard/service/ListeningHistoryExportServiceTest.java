@@ -0,0 +1,111 @@
+package com.spotify.dashboard.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.dashboard.exception.ExportLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ListeningHistoryExportService Tests")
+class ListeningHistoryExportServiceTest {
+
+    private static final LocalDateTime FIRST_PLAY = LocalDateTime.of(2024, 3, 1, 12, 0, 5);
+    private static final LocalDateTime SECOND_PLAY = LocalDateTime.of(2024, 3, 1, 12, 4, 0);
+
+    @Test
+    @DisplayName("Should quote CSV fields containing separators, quotes or line breaks as RFC 4180 requires")
+    void shouldQuoteCsvFields() throws Exception {
+        // given
+        ListeningHistoryExportService service = service(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        service.reserve("user", ListeningHistoryExportService.Format.CSV).writeTo(out);
+
+        // then
+        assertEquals("""
+            played_at,track_id,track_name,artist_name
+            2024-03-01T12:00:05,t1,"Say ""Hello"", Goodbye",Plain Artist
+            2024-03-01T12:04,t2,"Two
+            Lines",Artist
+            """,
+            out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should write one JSON object per line, escaping line breaks inside values")
+    void shouldFrameNdjsonByLine() throws Exception {
+        // given
+        ListeningHistoryExportService service = service(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        service.reserve("user", ListeningHistoryExportService.Format.NDJSON).writeTo(out);
+
+        // then
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        assertTrue(ndjson.endsWith("}\n"));
+        String[] lines = ndjson.split("\n");
+        assertEquals(2, lines.length);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode first = objectMapper.readTree(lines[0]);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertEquals("2024-03-01T12:00:05", first.get("playedAt").asText());
+        assertEquals("Say \"Hello\", Goodbye", first.get("trackName").asText());
+        assertEquals("Two\nLines", second.get("trackName").asText());
+        assertEquals("Artist", second.get("artistName").asText());
+    }
+
+    @Test
+    @DisplayName("Should refuse exports beyond the limit until a running one finishes")
+    void shouldCapConcurrentExports() throws Exception {
+        // given
+        ListeningHistoryExportService service = service(1);
+        ListeningHistoryExportService.Export running = service.reserve("user", ListeningHistoryExportService.Format.CSV);
+
+        // when
+        assertThrows(ExportLimitExceededException.class,
+            () -> service.reserve("other", ListeningHistoryExportService.Format.CSV));
+        running.writeTo(new ByteArrayOutputStream());
+
+        // then
+        assertNotNull(service.reserve("other", ListeningHistoryExportService.Format.CSV));
+    }
+
+    private static ListeningHistoryExportService service(int maxConcurrent) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject("played_at", LocalDateTime.class)).thenReturn(FIRST_PLAY, SECOND_PLAY);
+        when(rs.getString("track_id")).thenReturn("t1", "t2");
+        when(rs.getString("track_name")).thenReturn("Say \"Hello\", Goodbye", "Two\nLines");
+        when(rs.getString("artist_name")).thenReturn("Plain Artist", "Artist");
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        return new ListeningHistoryExportService(jdbcTemplate, transactionManager, new ObjectMapper(), 1000,
+            maxConcurrent, 300, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,130 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.repository.PostgresTestDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ListeningHistoryPartitionService Tests")
+class ListeningHistoryPartitionServiceTest {
+
+    private static final LocalDateTime PLAYED_AT = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @Test
+    @DisplayName("Should round-trip partition names and ignore other tables")
+    void shouldRoundTripPartitionNames() {
+        // given
+        YearMonth month = YearMonth.of(2026, 3);
+
+        // when
+        String name = ListeningHistoryPartitionService.partitionName(month);
+
+        // then
+        assertEquals("listening_history_p202603", name);
+        assertEquals(month, ListeningHistoryPartitionService.partitionMonth(name));
+        assertNull(ListeningHistoryPartitionService.partitionMonth("listening_history_default"));
+        assertNull(ListeningHistoryPartitionService.partitionMonth("listening_history_pold"));
+    }
+
+    @Test
+    @DisplayName("Should list only the months without a partition across a year boundary")
+    void shouldFindMissingMonths() {
+        // given
+        Set<YearMonth> existing = Set.of(YearMonth.of(2026, 11), YearMonth.of(2027, 1));
+
+        // when
+        List<YearMonth> missing = ListeningHistoryPartitionService.missingMonths(
+            existing, YearMonth.of(2026, 10), YearMonth.of(2027, 1));
+
+        // then
+        assertEquals(List.of(YearMonth.of(2026, 10), YearMonth.of(2026, 12)), missing);
+    }
+
+    @Test
+    @DisplayName("Should expire only months before the retention window")
+    void shouldExpireMonthsBeforeRetentionWindow() {
+        // given
+        Set<YearMonth> existing = Set.of(YearMonth.of(2026, 6), YearMonth.of(2026, 7),
+            YearMonth.of(2026, 8), YearMonth.of(2026, 10), YearMonth.of(2026, 12));
+
+        // when
+        List<YearMonth> expired = ListeningHistoryPartitionService.expiredMonths(existing, YearMonth.of(2026, 10), 2);
+
+        // then
+        assertEquals(List.of(YearMonth.of(2026, 6), YearMonth.of(2026, 7)), expired);
+    }
+
+    @Test
+    @DisplayName("Should drop duplicate plays, keeping the oldest, when converting a plain table")
+    @EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")
+    void shouldDeduplicateBeforeConverting() {
+        // stored before uk_listening_history_play existed
+        try (PostgresTestDatabase database = new PostgresTestDatabase(
+                "CREATE TABLE listening_history (id bigserial PRIMARY KEY, user_id varchar(255) NOT NULL, " +
+                "track_id varchar(255) NOT NULL, track_name varchar(255) NOT NULL, " +
+                "artist_name varchar(255) NOT NULL, played_at timestamp(6) NOT NULL)",
+                PostgresTestDatabase.LISTENING_HOURLY_ROLLUP)) {
+            // given
+            JdbcTemplate jdbcTemplate = database.jdbcTemplate();
+            insertPlay(jdbcTemplate, "alice", "t1", PLAYED_AT);
+            insertPlay(jdbcTemplate, "alice", "t1", PLAYED_AT);
+            insertPlay(jdbcTemplate, "alice", "t2", PLAYED_AT);
+            insertPlay(jdbcTemplate, "alice", "t1", PLAYED_AT);
+            jdbcTemplate.update("INSERT INTO listening_hourly_rollup VALUES ('alice', 12, 4)");
+
+            // when
+            new ListeningHistoryPartitionService(jdbcTemplate, database.dataSource(), 1, 0).maintain();
+
+            // then
+            assertEquals("p", relkind(jdbcTemplate));
+            assertEquals(List.of(1L, 3L), jdbcTemplate.queryForList("SELECT id FROM listening_history ORDER BY id", Long.class));
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM listening_hourly_rollup", Integer.class),
+                "rollups that counted the duplicates are left to be rebuilt");
+            assertThrows(DuplicateKeyException.class, () -> insertPlay(jdbcTemplate, "alice", "t1", PLAYED_AT));
+        }
+    }
+
+    @Test
+    @DisplayName("Should deduplicate and restore the play constraint on a partitioned table missing it")
+    @EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")
+    void shouldRestoreMissingPlayConstraint() {
+        try (PostgresTestDatabase database = new PostgresTestDatabase()) {
+            // given
+            JdbcTemplate jdbcTemplate = database.jdbcTemplate();
+            ListeningHistoryPartitionService service =
+                new ListeningHistoryPartitionService(jdbcTemplate, database.dataSource(), 1, 0);
+            service.maintain();
+            jdbcTemplate.execute("ALTER TABLE listening_history DROP CONSTRAINT uk_listening_history_play");
+            insertPlay(jdbcTemplate, "alice", "t1", PLAYED_AT);
+            insertPlay(jdbcTemplate, "alice", "t1", PLAYED_AT);
+
+            // when
+            service.maintain();
+
+            // then
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM listening_history", Integer.class));
+            assertThrows(DuplicateKeyException.class, () -> insertPlay(jdbcTemplate, "alice", "t1", PLAYED_AT));
+        }
+    }
+
+    private static void insertPlay(JdbcTemplate jdbcTemplate, String userId, String trackId, LocalDateTime playedAt) {
+        jdbcTemplate.update(
+            "INSERT INTO listening_history (user_id, track_id, track_name, artist_name, played_at) VALUES (?, ?, 'Track', 'Artist', ?)",
+            userId, trackId, Timestamp.valueOf(playedAt));
+    }
+
+    private static String relkind(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject(
+            "SELECT relkind FROM pg_class WHERE oid = to_regclass('listening_history')", String.class);
+    }
+}
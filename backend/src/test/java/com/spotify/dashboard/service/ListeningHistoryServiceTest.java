@@ -0,0 +1,110 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.dto.RecentlyPlayedItem;
+import com.spotify.dashboard.dto.SpotifyArtist;
+import com.spotify.dashboard.dto.SpotifyPage;
+import com.spotify.dashboard.dto.SpotifyTrack;
+import com.spotify.dashboard.model.ListeningHistory;
+import com.spotify.dashboard.repository.ListeningHistoryRepository;
+import com.spotify.dashboard.repository.ListeningHistoryRepositoryCustomImpl;
+import com.spotify.dashboard.repository.PostgresTestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ListeningHistoryService Tests")
+@EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")
+class ListeningHistoryServiceTest {
+
+    private PostgresTestDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private RestTemplate restTemplate;
+    private TrackEnrichmentQueue trackEnrichmentQueue;
+    private ListeningHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        database = new PostgresTestDatabase(PostgresTestDatabase.LISTENING_HISTORY,
+            PostgresTestDatabase.LISTENING_HOURLY_ROLLUP, PostgresTestDatabase.LISTENING_DAILY_ROLLUP,
+            PostgresTestDatabase.LISTENING_ARTIST_ROLLUP);
+        jdbcTemplate = database.jdbcTemplate();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(database.transactionManager());
+
+        ListeningHistoryRepositoryCustomImpl inserts = new ListeningHistoryRepositoryCustomImpl(jdbcTemplate);
+        ListeningHistoryRepository repository = mock(ListeningHistoryRepository.class);
+        when(repository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> inserts.insertIgnoringDuplicates(invocation.getArgument(0)));
+        restTemplate = mock(RestTemplate.class);
+        trackEnrichmentQueue = mock(TrackEnrichmentQueue.class);
+        ListeningRollupService rollupService = new ListeningRollupService(jdbcTemplate, transactionTemplate,
+            null, null, null, "");
+        service = new ListeningHistoryService(repository, restTemplate, transactionTemplate, rollupService,
+            trackEnrichmentQueue, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Should count, roll up and enqueue only the plays the batch insert reported as new")
+    @SuppressWarnings("unchecked")
+    void shouldReportOnlyNewPlays() {
+        // given
+        respondWith(item("t1", "2026-03-01T12:00:00Z"));
+        service.pollRecentlyPlayed("alice", "token");
+        respondWith(
+            item("t1", "2026-03-01T12:00:00Z"),
+            item("t2", "2026-03-01T12:05:00Z"),
+            item(null, "2026-03-01T12:09:00Z"));
+
+        // when
+        ListeningHistoryService.PollResult result = service.pollRecentlyPlayed("alice", "token");
+
+        // then
+        assertEquals(3, result.itemsReturned());
+        assertEquals(1, result.newPlays());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM listening_history", Integer.class));
+        assertEquals(2L, jdbcTemplate.queryForObject(
+            "SELECT play_count FROM listening_artist_rollup WHERE user_id = 'alice'", Long.class));
+        ArgumentCaptor<List<ListeningHistory>> enqueued = ArgumentCaptor.forClass(List.class);
+        verify(trackEnrichmentQueue, times(2)).enqueue(enqueued.capture());
+        assertEquals(List.of("t2"), enqueued.getValue().stream().map(ListeningHistory::getTrackId).toList());
+        assertEquals(LocalDateTime.of(2026, 3, 1, 12, 5), enqueued.getValue().get(0).getPlayedAt());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respondWith(RecentlyPlayedItem... items) {
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), any(ParameterizedTypeReference.class)))
+            .thenReturn(ResponseEntity.ok(new SpotifyPage<>(List.of(items))));
+    }
+
+    // a null id stands for a local file
+    private static RecentlyPlayedItem item(String trackId, String playedAt) {
+        SpotifyTrack track = new SpotifyTrack(trackId, "Track " + trackId, null,
+            List.of(new SpotifyArtist("a1", "Artist", List.of())));
+        return new RecentlyPlayedItem(playedAt, track);
+    }
+}
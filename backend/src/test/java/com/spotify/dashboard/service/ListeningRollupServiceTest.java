@@ -0,0 +1,160 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.model.ListeningHistory;
+import com.spotify.dashboard.repository.PostgresTestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ListeningRollupService Tests")
+@EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")
+class ListeningRollupServiceTest {
+
+    private static final LocalDateTime MORNING = LocalDateTime.of(2026, 3, 1, 9, 15);
+
+    private PostgresTestDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ListeningRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        database = new PostgresTestDatabase(PostgresTestDatabase.LISTENING_HISTORY,
+            PostgresTestDatabase.LISTENING_HOURLY_ROLLUP, PostgresTestDatabase.LISTENING_DAILY_ROLLUP,
+            PostgresTestDatabase.LISTENING_ARTIST_ROLLUP, PostgresTestDatabase.LISTENING_ROLLUP_REBUILD);
+        jdbcTemplate = database.jdbcTemplate();
+        // the read side goes through the JPA repositories, which these tests do not use
+        service = new ListeningRollupService(jdbcTemplate, new TransactionTemplate(database.transactionManager()),
+            null, null, null, "");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Should add each batch of new plays to the hourly, daily and artist counts")
+    void shouldAccumulatePlays() {
+        // given
+        List<ListeningHistory> first = List.of(
+            play("alice", "Artist A", MORNING),
+            play("alice", "Artist A", MORNING.plusMinutes(4)),
+            play("alice", "Artist B", MORNING.plusDays(1)),
+            play("bob", "Artist A", MORNING.plusHours(12)));
+        List<ListeningHistory> second = List.of(play("alice", "Artist B", MORNING.plusMinutes(30)));
+
+        // when
+        service.recordPlays(first);
+        service.recordPlays(List.of());
+        service.recordPlays(second);
+
+        // then
+        assertEquals(Map.of("alice|9", 4L, "bob|21", 1L), counts("listening_hourly_rollup", "hour_of_day"));
+        assertEquals(Map.of("alice|2026-03-01", 3L, "alice|2026-03-02", 1L, "bob|2026-03-01", 1L),
+            counts("listening_daily_rollup", "play_date"));
+        assertEquals(Map.of("alice|Artist A", 2L, "alice|Artist B", 2L, "bob|Artist A", 1L),
+            counts("listening_artist_rollup", "artist_name"));
+    }
+
+    @Test
+    @DisplayName("Should replace drifted rollups with counts recomputed from listening history")
+    void shouldRebuildFromHistory() {
+        // given
+        insertHistory("alice", "Artist A", MORNING);
+        insertHistory("alice", "Artist A", MORNING.plusDays(1));
+        insertHistory("bob", "Artist B", MORNING.plusHours(1));
+        service.recordPlays(List.of(play("alice", "Artist A", MORNING), play("carol", "Gone", MORNING)));
+
+        // when
+        service.rebuild();
+
+        // then
+        assertEquals(Map.of("alice|9", 2L, "bob|10", 1L), counts("listening_hourly_rollup", "hour_of_day"));
+        assertEquals(Map.of("alice|2026-03-01", 1L, "alice|2026-03-02", 1L, "bob|2026-03-01", 1L),
+            counts("listening_daily_rollup", "play_date"));
+        assertEquals(Map.of("alice|Artist A", 2L, "bob|Artist B", 1L), counts("listening_artist_rollup", "artist_name"));
+    }
+
+    @Test
+    @DisplayName("Should rebuild when rollups are empty and once per requested rebuild id")
+    void shouldRebuildOnlyWhenEmptyOrNewlyRequested() {
+        // given
+        insertHistory("alice", "Artist A", MORNING);
+
+        // when
+        boolean whenEmpty = service.rebuildIfNeeded("");
+        boolean whenFilled = service.rebuildIfNeeded(null);
+        insertHistory("alice", "Artist A", MORNING.plusDays(1));
+        boolean requested = service.rebuildIfNeeded("2026-03-02");
+        boolean requestedAgain = service.rebuildIfNeeded("2026-03-02");
+
+        // then
+        assertTrue(whenEmpty);
+        assertFalse(whenFilled);
+        assertTrue(requested);
+        assertFalse(requestedAgain, "a restart with the same id does not rebuild again");
+        assertEquals(Map.of("alice|Artist A", 2L), counts("listening_artist_rollup", "artist_name"));
+        assertEquals(List.of("2026-03-02"),
+            jdbcTemplate.queryForList("SELECT rebuild_id FROM listening_rollup_rebuild", String.class));
+    }
+
+    @Test
+    @DisplayName("Should rebuild empty rollups once when several instances start together")
+    void shouldRebuildOnceAcrossConcurrentStarts() throws Exception {
+        // given
+        insertHistory("alice", "Artist A", MORNING);
+        int instances = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(instances);
+
+        // when
+        List<Future<Boolean>> results;
+        try {
+            results = executor.invokeAll(Collections.nCopies(instances, () -> service.rebuildIfNeeded("")));
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        // then
+        int rebuilt = 0;
+        for (Future<Boolean> result : results) {
+            rebuilt += result.get() ? 1 : 0;
+        }
+        assertEquals(1, rebuilt);
+        assertEquals(Map.of("alice|Artist A", 1L), counts("listening_artist_rollup", "artist_name"));
+    }
+
+    private void insertHistory(String userId, String artistName, LocalDateTime playedAt) {
+        jdbcTemplate.update(
+            "INSERT INTO listening_history (user_id, track_id, track_name, artist_name, played_at) VALUES (?, 't', 'Track', ?, ?)",
+            userId, artistName, Timestamp.valueOf(playedAt));
+    }
+
+    private Map<String, Long> counts(String table, String keyColumn) {
+        return jdbcTemplate.queryForList("SELECT user_id, " + keyColumn + ", play_count FROM " + table).stream()
+            .collect(Collectors.toMap(
+                row -> row.get("user_id") + "|" + row.get(keyColumn),
+                row -> ((Number) row.get("play_count")).longValue()));
+    }
+
+    private static ListeningHistory play(String userId, String artistName, LocalDateTime playedAt) {
+        return new ListeningHistory(userId, "t", "Track", artistName, playedAt);
+    }
+}
@@ -0,0 +1,64 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.util.SpotifyAuthUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("SpotifyApiService Tests")
+class SpotifyApiServiceTest {
+
+    @Test
+    @DisplayName("Should share one upstream call between identical concurrent requests")
+    @SuppressWarnings("unchecked")
+    void shouldCoalesceIdenticalConcurrentRequests() throws Exception {
+        // given
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        CountDownLatch upstreamStarted = new CountDownLatch(1);
+        CountDownLatch releaseUpstream = new CountDownLatch(1);
+        when(restTemplate.exchange(any(String.class), eq(HttpMethod.GET), any(HttpEntity.class),
+                any(ParameterizedTypeReference.class)))
+            .thenAnswer(invocation -> {
+                upstreamStarted.countDown();
+                releaseUpstream.await(5, TimeUnit.SECONDS);
+                return ResponseEntity.ok(Map.of("items", java.util.List.of()));
+            });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SpotifyApiService service = new SpotifyApiService(restTemplate, "https://api.spotify.test/v1",
+            new SpotifyAuthUtil(), mock(SpotifyUserResolver.class), meterRegistry);
+
+        // when
+        CompletableFuture<Map<String, Object>> first =
+            CompletableFuture.supplyAsync(() -> service.getTopTracks("token", "medium_term", 50));
+        assertTrue(upstreamStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Map<String, Object>> second =
+            CompletableFuture.supplyAsync(() -> service.getTopTracks("token", "medium_term", 50));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("spotify.api.requests.coalesced").functionCounter().count() < 1
+                && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        releaseUpstream.countDown();
+
+        // then
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        verify(restTemplate, times(1)).exchange(any(String.class), eq(HttpMethod.GET), any(HttpEntity.class),
+            any(ParameterizedTypeReference.class));
+        assertEquals(0, meterRegistry.get("spotify.api.requests.in_flight").gauge().value());
+    }
+}
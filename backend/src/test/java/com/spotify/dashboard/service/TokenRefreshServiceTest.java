@@ -0,0 +1,51 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.util.SpotifyAuthUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TokenRefreshService Tests")
+class TokenRefreshServiceTest {
+
+    @Test
+    @DisplayName("Should refresh after a rejected token is evicted, but keep a token that already replaced it")
+    @SuppressWarnings("unchecked")
+    void shouldEvictOnlyTheRejectedToken() {
+        // given
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.exchange((String) any(), eq(HttpMethod.POST), any(HttpEntity.class), any(Class.class)))
+            .thenReturn(ResponseEntity.ok(Map.of("access_token", "at-1", "expires_in", 3600)))
+            .thenReturn(ResponseEntity.ok(Map.of("access_token", "at-2", "expires_in", 3600)));
+        UserService userService = mock(UserService.class);
+        when(userService.getRefreshToken("user")).thenReturn("rt");
+        TokenRefreshService service = new TokenRefreshService(restTemplate, userService, new SpotifyAuthUtil(),
+            300, new SimpleMeterRegistry());
+
+        // when
+        String first = service.getAccessToken("user");
+        String cached = service.getAccessToken("user");
+        service.evictAccessToken("user", "at-1");
+        String refreshed = service.getAccessToken("user");
+        service.evictAccessToken("user", "at-1");
+        String afterStaleEviction = service.getAccessToken("user");
+
+        // then
+        assertEquals("at-1", first);
+        assertEquals("at-1", cached);
+        assertEquals("at-2", refreshed);
+        assertEquals("at-2", afterStaleEviction, "a late eviction of the old token leaves the new one alone");
+        verify(restTemplate, times(2)).exchange((String) any(), eq(HttpMethod.POST), any(HttpEntity.class), any(Class.class));
+    }
+}
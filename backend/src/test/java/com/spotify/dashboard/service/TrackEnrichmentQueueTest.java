@@ -0,0 +1,138 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.model.ListeningHistory;
+import com.spotify.dashboard.repository.PostgresTestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TrackEnrichmentQueue Tests")
+@EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")
+class TrackEnrichmentQueueTest {
+
+    private static final LocalDateTime PLAYED_AT = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    private PostgresTestDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new PostgresTestDatabase(PostgresTestDatabase.TRACK_FEATURES, PostgresTestDatabase.UNRESOLVED_TRACK,
+            PostgresTestDatabase.TRACK_ENRICHMENT_QUEUE);
+        jdbcTemplate = database.jdbcTemplate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    @DisplayName("Should queue each track once, most played first, and skip tracks that have features")
+    void shouldQueueByPlayCount() {
+        // given
+        TrackEnrichmentQueue queue = queue(600_000, 5);
+        jdbcTemplate.update("INSERT INTO track_features (track_id, fetched_at) VALUES ('known', ?)", Timestamp.valueOf(PLAYED_AT));
+
+        // when
+        queue.enqueue(List.of(play("a", 0), play("b", 1), play("b", 2), play("known", 3)));
+        queue.enqueue(List.of(play("a", 4), play("a", 5)));
+        List<TrackEnrichmentQueue.Task> first = queue.claim(1);
+        List<TrackEnrichmentQueue.Task> rest = queue.claim(10);
+
+        // then
+        assertEquals(List.of(new TrackEnrichmentQueue.Task("a", "Track a", "Artist")), first);
+        assertEquals(List.of("b"), rest.stream().map(TrackEnrichmentQueue.Task::trackId).toList());
+        assertEquals(3L, row("a").get("play_count"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM track_enrichment_queue WHERE track_id = 'known'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should drop done tracks on completion and release the rest after a delay growing with attempts")
+    void shouldRemoveDoneAndReleaseTheRest() {
+        // given
+        TrackEnrichmentQueue queue = queue(600_000, 5);
+        queue.enqueue(List.of(play("fetched", 0), play("tombstoned", 1), play("retry", 2)));
+        List<TrackEnrichmentQueue.Task> claimed = queue.claim(10);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO track_features (track_id, fetched_at) VALUES ('fetched', ?)", now);
+        jdbcTemplate.update("INSERT INTO unresolved_track VALUES ('tombstoned', 'NOT_IN_RECCOBEATS', 1, ?, ?, ?)",
+            now, now, Timestamp.valueOf(LocalDateTime.now().plusDays(1)));
+
+        // when
+        LocalDateTime before = LocalDateTime.now();
+        queue.complete(claimed.stream().map(TrackEnrichmentQueue.Task::trackId).toList());
+        LocalDateTime after = LocalDateTime.now();
+
+        // then
+        assertEquals(3, claimed.size());
+        assertEquals(List.of("retry"), jdbcTemplate.queryForList("SELECT track_id FROM track_enrichment_queue", String.class));
+        Map<String, Object> retry = row("retry");
+        assertNull(retry.get("claimed_by"));
+        assertNull(retry.get("claimed_until"));
+        assertEquals(1, retry.get("attempts"));
+        LocalDateTime availableAt = ((Timestamp) retry.get("available_at")).toLocalDateTime();
+        assertFalse(availableAt.isBefore(before.plusMinutes(10).withNano(0)));
+        assertFalse(availableAt.isAfter(after.plusMinutes(10).plusSeconds(1)));
+        assertTrue(queue.claim(10).isEmpty(), "released tracks wait out their retry delay");
+    }
+
+    @Test
+    @DisplayName("Should drop a track that has used up its attempts")
+    void shouldDropTrackOutOfAttempts() {
+        // given
+        TrackEnrichmentQueue queue = queue(600_000, 1);
+        queue.enqueue(List.of(play("a", 0)));
+
+        // when
+        queue.complete(queue.claim(10).stream().map(TrackEnrichmentQueue.Task::trackId).toList());
+
+        // then
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM track_enrichment_queue", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should let another worker claim a track once its lease has run out, and ignore the stale completion")
+    void shouldReclaimAfterLeaseExpires() throws Exception {
+        // given
+        TrackEnrichmentQueue crashed = queue(0, 5);
+        TrackEnrichmentQueue survivor = queue(600_000, 5);
+        crashed.enqueue(List.of(play("a", 0)));
+        assertEquals(1, crashed.claim(10).size());
+        Thread.sleep(5);
+
+        // when
+        List<TrackEnrichmentQueue.Task> reclaimed = survivor.claim(10);
+        crashed.complete(List.of("a"));
+
+        // then
+        assertEquals(List.of("a"), reclaimed.stream().map(TrackEnrichmentQueue.Task::trackId).toList());
+        assertEquals(2, row("a").get("attempts"));
+        assertNotNull(row("a").get("claimed_by"), "the stale worker's completion leaves the new claim alone");
+    }
+
+    private TrackEnrichmentQueue queue(long claimLeaseMs, int maxAttempts) {
+        return new TrackEnrichmentQueue(jdbcTemplate, database.transactionManager(), claimLeaseMs, 600_000, maxAttempts,
+            0, new SimpleMeterRegistry());
+    }
+
+    private Map<String, Object> row(String trackId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM track_enrichment_queue WHERE track_id = ?", trackId);
+    }
+
+    private static ListeningHistory play(String trackId, int minute) {
+        return new ListeningHistory("user", trackId, "Track " + trackId, "Artist", PLAYED_AT.plusMinutes(minute));
+    }
+}
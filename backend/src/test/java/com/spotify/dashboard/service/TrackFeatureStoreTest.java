@@ -0,0 +1,176 @@
+package com.spotify.dashboard.service;
+
+import com.spotify.dashboard.model.TrackFeatures;
+import com.spotify.dashboard.repository.PostgresTestDatabase;
+import com.spotify.dashboard.repository.TrackFeaturesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("TrackFeatureStore Tests")
+class TrackFeatureStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should average null features as zero over every matched track, as the per-row path did")
+    void shouldMatchPerRowAveragesWithNullColumns() {
+        // given
+        List<TrackFeatures> rows = List.of(
+            features("t1", 0.2f, 0.5f, 0.9f, 0.1f, 120f),
+            features("t2", null, 0.7f, null, 0.3f, null),
+            features("t3", 0.8f, null, 0.4f, null, 90f));
+        TrackFeatureStore store = store("unused.snapshot");
+        rows.forEach(store::put);
+
+        // when
+        TrackFeatureStore.FeatureAverages averages = store.averages(List.of("t1", "t2", "t3", "t2", "unknown"));
+
+        // then
+        assertEquals(3, averages.tracksWithFeatures());
+        assertEquals(perRowAverage(rows, TrackFeatures::getAcousticness), averages.acousticness(), 1e-6);
+        assertEquals(perRowAverage(rows, TrackFeatures::getDanceability), averages.danceability(), 1e-6);
+        assertEquals(perRowAverage(rows, TrackFeatures::getEnergy), averages.energy(), 1e-6);
+        assertEquals(perRowAverage(rows, TrackFeatures::getValence), averages.valence(), 1e-6);
+        assertEquals(perRowAverage(rows, TrackFeatures::getTempo), averages.tempo(), 1e-4);
+    }
+
+    @Test
+    @DisplayName("Should restore every track and the same averages from a snapshot file")
+    void shouldRoundTripSnapshot() {
+        // given
+        List<TrackFeatures> rows = new ArrayList<>();
+        // more than one 64-bit word of null bitmap per column
+        for (int i = 0; i < 70; i++) {
+            rows.add(features("t" + i, i % 3 == 0 ? null : i / 100f, 0.5f, i % 7 == 0 ? null : 0.25f, 0.75f, 100f + i));
+        }
+        TrackFeatureStore written = store("features.snapshot");
+        rows.forEach(written::put);
+        List<String> trackIds = rows.stream().map(TrackFeatures::getTrackId).toList();
+
+        // when
+        written.writeSnapshot();
+        TrackFeatureStore loaded = store("features.snapshot");
+        boolean restored = loaded.loadSnapshot();
+
+        // then
+        assertTrue(restored);
+        assertEquals(70, loaded.size());
+        assertTrue(loaded.findMissing(trackIds).isEmpty());
+        assertEquals(written.averages(trackIds), loaded.averages(trackIds));
+        assertEquals(written.averages(List.of("t3", "t7")), loaded.averages(List.of("t3", "t7")));
+    }
+
+    @Test
+    @DisplayName("Should reject a truncated or corrupt snapshot and stay empty")
+    void shouldIgnoreDamagedSnapshot() throws Exception {
+        // given
+        TrackFeatureStore written = store("features.snapshot");
+        for (int i = 0; i < 10; i++) {
+            written.put(features("t" + i, 0.1f, 0.2f, 0.3f, 0.4f, 100f));
+        }
+        written.writeSnapshot();
+        Path snapshot = tempDir.resolve("features.snapshot");
+        Path corrupt = tempDir.resolve("corrupt.snapshot");
+        Files.write(corrupt, new byte[] {'n', 'o', 't', ' ', 'a', ' ', 's', 'n', 'a', 'p'});
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+
+        // when
+        TrackFeatureStore fromTruncated = store("features.snapshot");
+        TrackFeatureStore fromCorrupt = store("corrupt.snapshot");
+
+        // then
+        assertFalse(fromTruncated.loadSnapshot());
+        assertFalse(fromCorrupt.loadSnapshot());
+        assertEquals(0, fromTruncated.size());
+        assertEquals(0, fromCorrupt.size());
+        assertFalse(fromTruncated.contains("t0"));
+    }
+
+    @Test
+    @DisplayName("Should catch up store and known-id filter on rows other replicas saved, including late commits")
+    @EnabledIfEnvironmentVariable(named = PostgresTestDatabase.URL_VARIABLE, matches = ".+")
+    void shouldCatchUpOnRowsFromOtherReplicas() {
+        try (PostgresTestDatabase database = new PostgresTestDatabase(PostgresTestDatabase.TRACK_FEATURES)) {
+            // given
+            JdbcTemplate jdbcTemplate = database.jdbcTemplate();
+            LocalDateTime fetchedAt = LocalDateTime.of(2026, 3, 1, 12, 0);
+            insert(jdbcTemplate, "t1", fetchedAt);
+            TransactionTemplate transactionTemplate = new TransactionTemplate(database.transactionManager());
+            TrackFeaturesRepository repository = mock(TrackFeaturesRepository.class);
+            when(repository.streamAllTrackIds()).thenReturn(Stream.of("t1"));
+            KnownTrackIndex knownTrackIndex = new KnownTrackIndex(repository, transactionTemplate, 1000, 0.01,
+                new SimpleMeterRegistry());
+            knownTrackIndex.warmUp();
+            TrackFeatureStore store = new TrackFeatureStore(jdbcTemplate, transactionTemplate, knownTrackIndex,
+                tempDir.resolve("db.snapshot").toString(), 300_000);
+            store.warmUp();
+
+            // when
+            insert(jdbcTemplate, "t2", fetchedAt.plusMinutes(1));
+            // committed late by a replica whose clock runs behind
+            insert(jdbcTemplate, "t3", fetchedAt.minusMinutes(2));
+            store.catchUp();
+
+            // then
+            assertEquals(3, store.size());
+            assertTrue(store.findMissing(List.of("t1", "t2", "t3")).isEmpty());
+            assertEquals(0.5, store.averages(List.of("t3")).energy(), 1e-6);
+            assertTrue(knownTrackIndex.mightBeKnown("t2"));
+            assertTrue(knownTrackIndex.mightBeKnown("t3"));
+        }
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, String trackId, LocalDateTime fetchedAt) {
+        jdbcTemplate.update("INSERT INTO track_features (track_id, energy, fetched_at) VALUES (?, 0.5, ?)",
+            trackId, Timestamp.valueOf(fetchedAt));
+    }
+
+    private TrackFeatureStore store(String snapshotName) {
+        return new TrackFeatureStore(null, null, null, tempDir.resolve(snapshotName).toString(), 300_000);
+    }
+
+    // the per-row averaging audio insights used before the store: each distinct row counts once, null as zero
+    private static double perRowAverage(List<TrackFeatures> rows, Function<TrackFeatures, Float> extractor) {
+        return rows.stream()
+            .mapToDouble(row -> {
+                Float value = extractor.apply(row);
+                return value != null ? value : 0.0;
+            })
+            .average()
+            .orElse(0.0);
+    }
+
+    private static TrackFeatures features(String trackId, Float acousticness, Float danceability, Float energy,
+                                          Float valence, Float tempo) {
+        TrackFeatures trackFeatures = new TrackFeatures(trackId, "Track " + trackId, "Artist");
+        trackFeatures.setAcousticness(acousticness);
+        trackFeatures.setDanceability(danceability);
+        trackFeatures.setEnergy(energy);
+        trackFeatures.setValence(valence);
+        trackFeatures.setTempo(tempo);
+        return trackFeatures;
+    }
+}
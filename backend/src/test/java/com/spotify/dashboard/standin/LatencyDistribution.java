@@ -0,0 +1,56 @@
+package com.spotify.dashboard.standin;
+
+import java.util.Random;
+
+/**
+ * How long the stand-in takes to answer, sampled per request.
+ *
+ * Parsed from {@code fixed:80}, {@code uniform:50-150} or {@code lognormal:80/400} (median / p99),
+ * all in milliseconds; a bare number is fixed and {@code none} answers at once. Log-normal is
+ * the usual shape of real upstream latency: most calls near the median and a long right tail.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    LatencyDistribution NONE = random -> 0;
+
+    /** Standard normal quantile of 0.99. */
+    double Z_99 = 2.3263;
+
+    long sampleMillis(Random random);
+
+    static LatencyDistribution fixed(long millis) {
+        return random -> millis;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return random -> minMillis + (maxMillis > minMillis ? (long) (random.nextDouble() * (maxMillis - minMillis + 1)) : 0);
+    }
+
+    static LatencyDistribution logNormal(double medianMillis, double p99Millis) {
+        double sigma = Math.log(p99Millis / medianMillis) / Z_99;
+        return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    static LatencyDistribution parse(String spec) {
+        if (spec.equals("none")) {
+            return NONE;
+        }
+        String[] parts = spec.split(":", 2);
+        if (parts.length == 1) {
+            return fixed(Long.parseLong(parts[0]));
+        }
+        return switch (parts[0]) {
+            case "fixed" -> fixed(Long.parseLong(parts[1]));
+            case "uniform" -> {
+                String[] bounds = parts[1].split("-", 2);
+                yield uniform(Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+            }
+            case "lognormal" -> {
+                String[] quantiles = parts[1].split("/", 2);
+                yield logNormal(Double.parseDouble(quantiles[0]), Double.parseDouble(quantiles[1]));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        };
+    }
+}
@@ -0,0 +1,428 @@
+package com.spotify.dashboard.standin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Spotify Web API, the Spotify accounts service and ReccoBeats, for load
+ * and capacity tests that must not touch the real services. Serves the endpoints the backend
+ * calls with payloads shaped like the real ones, for a {@link SyntheticCatalog} of users.
+ *
+ * Each upstream has its own {@link LatencyDistribution} and share of requests answered with a
+ * 429 and {@code Retry-After}. Users sign in with the code {@code standin-code-<n>}; access tokens
+ * expire after {@code token-expires-seconds} and are renewed with the refresh token, as with
+ * Spotify. Request and throttle counts per route are kept for reports.
+ *
+ * Runs embedded through {@link #start(Settings)} or standalone through {@link #main}, with the
+ * same {@code key=value} options {@link Settings#parse} reads.
+ */
+public class SpotifyStandIn implements AutoCloseable {
+
+    public enum Upstream { API, ACCOUNTS, RECCOBEATS }
+
+    /**
+     * @param latency       per upstream; missing ones answer at once
+     * @param throttleRate  per upstream, the share of requests answered with a 429; missing ones are never throttled
+     */
+    public record Settings(int port, int users, int tracks, int unknownTrackPercent, long seed,
+                           Map<Upstream, LatencyDistribution> latency, Map<Upstream, Double> throttleRate,
+                           int retryAfterSeconds, int tokenExpiresSeconds) {
+
+        public static Settings defaults() {
+            return parse(Map.of());
+        }
+
+        /**
+         * Reads {@code port users tracks unknown-track-percent seed retry-after-seconds
+         * token-expires-seconds} and, per upstream ({@code api accounts reccobeats}),
+         * {@code <upstream>-latency} and {@code <upstream>-throttle-rate}.
+         */
+        public static Settings parse(Map<String, String> options) {
+            Map<Upstream, LatencyDistribution> latency = new EnumMap<>(Upstream.class);
+            Map<Upstream, Double> throttleRate = new EnumMap<>(Upstream.class);
+            for (Upstream upstream : Upstream.values()) {
+                String prefix = upstream.name().toLowerCase();
+                latency.put(upstream, LatencyDistribution.parse(options.getOrDefault(prefix + "-latency",
+                    upstream == Upstream.RECCOBEATS ? "lognormal:120/800" : "lognormal:60/400")));
+                throttleRate.put(upstream, Double.parseDouble(options.getOrDefault(prefix + "-throttle-rate", "0")));
+            }
+            return new Settings(
+                Integer.parseInt(options.getOrDefault("port", "0")),
+                Integer.parseInt(options.getOrDefault("users", "200")),
+                Integer.parseInt(options.getOrDefault("tracks", "50000")),
+                Integer.parseInt(options.getOrDefault("unknown-track-percent", "5")),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                latency, throttleRate,
+                Integer.parseInt(options.getOrDefault("retry-after-seconds", "1")),
+                Integer.parseInt(options.getOrDefault("token-expires-seconds", "3600")));
+        }
+    }
+
+    private static final Pattern USER_PLAYLISTS = Pattern.compile("/v1/users/([^/]+)/playlists");
+    private static final Pattern PLAYLIST_TRACKS = Pattern.compile("/v1/playlists/([^/]+)/tracks");
+    private static final Pattern AUDIO_FEATURES = Pattern.compile("/reccobeats/v1/track/rb-([^/]+)/audio-features");
+    private static final String ACCESS_TOKEN_PREFIX = "standin-at.";
+    private static final String REFRESH_TOKEN_PREFIX = "standin-rt.";
+    private static final String CODE_PREFIX = "standin-code-";
+
+    private final Settings settings;
+    private final SyntheticCatalog catalog;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong playlistIds = new AtomicLong();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> throttled = new ConcurrentHashMap<>();
+
+    private SpotifyStandIn(Settings settings, HttpServer server) {
+        this.settings = settings;
+        // plays go back a day, so the first poll of a user finds a full window
+        this.catalog = new SyntheticCatalog(settings.users(), settings.tracks(), settings.unknownTrackPercent(),
+            settings.seed(), Instant.now().minusSeconds(86_400));
+        this.server = server;
+        this.executor = Executors.newCachedThreadPool();
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static SpotifyStandIn start(Settings settings) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", settings.port()), 4096);
+        SpotifyStandIn standIn = new SpotifyStandIn(settings, server);
+        server.start();
+        return standIn;
+    }
+
+    public static void main(String[] args) throws IOException {
+        SpotifyStandIn standIn = start(Settings.parse(parseOptions(args)));
+        System.out.println("Stand-in listening; point the backend at it with:");
+        System.out.println("  SPOTIFY_API_BASE_URL=" + standIn.apiBaseUrl());
+        System.out.println("  SPOTIFY_TOKEN_URL=" + standIn.tokenUrl());
+        System.out.println("  RECCOBEATS_BASE_URL=" + standIn.reccoBeatsBaseUrl());
+        System.out.println("and sign users in with the codes " + CODE_PREFIX + "0 to " + CODE_PREFIX
+            + (standIn.settings.users() - 1));
+        Runtime.getRuntime().addShutdownHook(new Thread(standIn::close));
+    }
+
+    /** Parses {@code key=value} arguments; a leading {@code --} is allowed. */
+    public static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            options.put(pair[0].replaceFirst("^--", ""), pair.length > 1 ? pair[1] : "true");
+        }
+        return options;
+    }
+
+    public String apiBaseUrl() {
+        return baseUrl() + "/v1";
+    }
+
+    public String tokenUrl() {
+        return baseUrl() + "/api/token";
+    }
+
+    public String reccoBeatsBaseUrl() {
+        return baseUrl() + "/reccobeats/v1";
+    }
+
+    public int users() {
+        return settings.users();
+    }
+
+    public static String authorizationCode(int user) {
+        return CODE_PREFIX + user;
+    }
+
+    /** A valid access token for the user, as if they had just signed in. */
+    public String accessToken(int user) {
+        return ACCESS_TOKEN_PREFIX + user + "." + System.currentTimeMillis();
+    }
+
+    /** Requests served per route, e.g. {@code GET /v1/me/top/tracks}, including throttled ones. */
+    public Map<String, Long> requestCounts() {
+        return snapshot(requests);
+    }
+
+    /** Requests answered with an injected 429, per route. */
+    public Map<String, Long> throttledCounts() {
+        return snapshot(throttled);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            Upstream upstream = path.startsWith("/reccobeats/") ? Upstream.RECCOBEATS
+                : path.equals("/api/token") ? Upstream.ACCOUNTS
+                : Upstream.API;
+            String route = exchange.getRequestMethod() + " " + routeOf(path);
+            requests.computeIfAbsent(route, ignored -> new LongAdder()).increment();
+
+            Random random = ThreadLocalRandom.current();
+            long delay = settings.latency().getOrDefault(upstream, LatencyDistribution.NONE).sampleMillis(random);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            if (random.nextDouble() < settings.throttleRate().getOrDefault(upstream, 0.0)) {
+                throttled.computeIfAbsent(route, ignored -> new LongAdder()).increment();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(settings.retryAfterSeconds()));
+                respond(exchange, 429, error(429, "API rate limit exceeded"));
+                return;
+            }
+
+            switch (upstream) {
+                case ACCOUNTS -> token(exchange);
+                case RECCOBEATS -> reccoBeats(exchange, path);
+                case API -> api(exchange, path);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            respond(exchange, 500, error(500, e.toString()));
+        }
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        Map<String, String> form = parseQuery(new String(readBody(exchange), StandardCharsets.UTF_8));
+        int user = switch (form.getOrDefault("grant_type", "")) {
+            case "authorization_code" -> userFrom(form.get("code"), CODE_PREFIX);
+            case "refresh_token" -> userFrom(form.get("refresh_token"), REFRESH_TOKEN_PREFIX);
+            default -> -1;
+        };
+        if (!catalog.isUser(user)) {
+            respond(exchange, 400, Map.of("error", "invalid_grant"));
+            return;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("access_token", accessToken(user));
+        body.put("token_type", "Bearer");
+        body.put("expires_in", settings.tokenExpiresSeconds());
+        body.put("scope", "user-read-private user-read-email user-top-read user-read-recently-played");
+        if ("authorization_code".equals(form.get("grant_type"))) {
+            body.put("refresh_token", REFRESH_TOKEN_PREFIX + user);
+        }
+        respond(exchange, 200, body);
+    }
+
+    private void api(HttpExchange exchange, String path) throws IOException {
+        int user = authenticatedUser(exchange);
+        if (user < 0) {
+            respond(exchange, 401, error(401, "The access token expired"));
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Matcher matcher;
+        if (path.equals("/v1/me")) {
+            respond(exchange, 200, catalog.profile(user));
+        } else if (path.equals("/v1/me/top/tracks")) {
+            List<Object> items = new ArrayList<>();
+            for (int track : catalog.topTracks(user, query.getOrDefault("time_range", "medium_term"), limit(query, 20))) {
+                items.add(catalog.track(track));
+            }
+            respond(exchange, 200, page(items));
+        } else if (path.equals("/v1/me/top/artists")) {
+            List<Object> items = new ArrayList<>();
+            for (int artist : catalog.topArtists(user, query.getOrDefault("time_range", "medium_term"), limit(query, 20))) {
+                items.add(catalog.artist(artist));
+            }
+            respond(exchange, 200, page(items));
+        } else if (path.equals("/v1/me/player/recently-played")) {
+            Long after = query.containsKey("after") ? Long.valueOf(query.get("after")) : null;
+            List<Object> items = new ArrayList<>();
+            for (SyntheticCatalog.Play play : catalog.recentPlays(user, after, System.currentTimeMillis(), limit(query, 20))) {
+                items.add(Map.of(
+                    "track", catalog.track(play.track()),
+                    "played_at", DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(play.playedAtMillis())),
+                    "context", Map.of("type", "playlist")));
+            }
+            respond(exchange, 200, page(items));
+        } else if ((matcher = USER_PLAYLISTS.matcher(path)).matches() && exchange.getRequestMethod().equals("POST")) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> request = objectMapper.readValue(readBody(exchange), Map.class);
+            String playlistId = "standin-playlist-" + playlistIds.incrementAndGet();
+            Map<String, Object> playlist = new LinkedHashMap<>();
+            playlist.put("id", playlistId);
+            playlist.put("name", request.get("name"));
+            playlist.put("description", request.get("description"));
+            playlist.put("public", request.get("public"));
+            playlist.put("owner", Map.of("id", matcher.group(1)));
+            playlist.put("external_urls", Map.of("spotify", "https://open.spotify.com/playlist/" + playlistId));
+            respond(exchange, 201, playlist);
+        } else if (PLAYLIST_TRACKS.matcher(path).matches() && exchange.getRequestMethod().equals("POST")) {
+            readBody(exchange);
+            respond(exchange, 201, Map.of("snapshot_id", "standin-snapshot-" + System.nanoTime()));
+        } else {
+            respond(exchange, 404, error(404, "Service not found"));
+        }
+    }
+
+    private void reccoBeats(HttpExchange exchange, String path) throws IOException {
+        Matcher matcher;
+        if (path.equals("/reccobeats/v1/track")) {
+            List<Object> content = new ArrayList<>();
+            for (String id : queryValues(exchange.getRequestURI().getRawQuery(), "ids")) {
+                int track = catalog.trackIndex(id);
+                if (track >= 0 && catalog.inReccoBeats(track)) {
+                    content.add(Map.of(
+                        "id", "rb-" + id,
+                        "trackTitle", "Track " + track,
+                        "href", "https://open.spotify.com/track/" + id));
+                }
+            }
+            respond(exchange, 200, Map.of("content", content));
+        } else if ((matcher = AUDIO_FEATURES.matcher(path)).matches()) {
+            int track = catalog.trackIndex(matcher.group(1));
+            Map<String, Object> features = track >= 0 && catalog.inReccoBeats(track) ? catalog.audioFeatures(track) : null;
+            if (features == null) {
+                respond(exchange, 404, Map.of("error", "Not found"));
+            } else {
+                respond(exchange, 200, features);
+            }
+        } else {
+            respond(exchange, 404, Map.of("error", "Not found"));
+        }
+    }
+
+    private int authenticatedUser(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer " + ACCESS_TOKEN_PREFIX)) {
+            return -1;
+        }
+        String[] parts = authorization.substring(("Bearer " + ACCESS_TOKEN_PREFIX).length()).split("\\.");
+        try {
+            int user = Integer.parseInt(parts[0]);
+            long issuedAt = Long.parseLong(parts[1]);
+            boolean expired = System.currentTimeMillis() - issuedAt > settings.tokenExpiresSeconds() * 1000L;
+            return catalog.isUser(user) && !expired ? user : -1;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static int userFrom(String value, String prefix) {
+        if (value == null || !value.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int limit(Map<String, String> query, int defaultLimit) {
+        return Math.min(50, Integer.parseInt(query.getOrDefault("limit", String.valueOf(defaultLimit))));
+    }
+
+    private static Map<String, Object> page(List<Object> items) {
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", items);
+        page.put("limit", items.size());
+        page.put("total", items.size());
+        page.put("next", null);
+        return page;
+    }
+
+    private static Map<String, Object> error(int status, String message) {
+        return Map.of("error", Map.of("status", status, "message", message));
+    }
+
+    // ids in the path are collapsed so counts group by endpoint
+    private static String routeOf(String path) {
+        if (USER_PLAYLISTS.matcher(path).matches()) {
+            return "/v1/users/{id}/playlists";
+        }
+        if (PLAYLIST_TRACKS.matcher(path).matches()) {
+            return "/v1/playlists/{id}/tracks";
+        }
+        if (AUDIO_FEATURES.matcher(path).matches()) {
+            return "/reccobeats/v1/track/{id}/audio-features";
+        }
+        return path;
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> values = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return values;
+        }
+        for (String pair : query.split("&")) {
+            String[] keyValue = pair.split("=", 2);
+            values.putIfAbsent(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                keyValue.length > 1 ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8) : "");
+        }
+        return values;
+    }
+
+    private static List<String> queryValues(String query, String key) {
+        if (query == null || query.isEmpty()) {
+            return List.of();
+        }
+        List<String> values = new ArrayList<>();
+        for (String pair : query.split("&")) {
+            String[] keyValue = pair.split("=", 2);
+            if (keyValue.length == 2 && keyValue[0].equals(key)) {
+                // ReccoBeats also accepts comma-separated ids
+                Collections.addAll(values, URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8).split(","));
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((route, count) -> snapshot.put(route, count.sum()));
+        return snapshot;
+    }
+}
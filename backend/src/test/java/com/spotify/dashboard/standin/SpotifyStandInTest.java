@@ -0,0 +1,107 @@
+package com.spotify.dashboard.standin;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.dashboard.dto.ReccoBeatsTrack;
+import com.spotify.dashboard.dto.RecentlyPlayedItem;
+import com.spotify.dashboard.dto.SpotifyPage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SpotifyStandIn Tests")
+class SpotifyStandInTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("Should sign a user in and serve only plays after the cursor, in the shape the backend parses")
+    void shouldServeRecentlyPlayedAfterCursor() throws Exception {
+        // given
+        try (SpotifyStandIn standIn = SpotifyStandIn.start(settings(Map.of()))) {
+            HttpResponse<String> token = client.send(HttpRequest.newBuilder(URI.create(standIn.tokenUrl()))
+                .POST(HttpRequest.BodyPublishers.ofString("grant_type=authorization_code&code="
+                    + SpotifyStandIn.authorizationCode(3) + "&redirect_uri=x"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            String accessToken = (String) objectMapper.readValue(token.body(), Map.class).get("access_token");
+
+            // when
+            SpotifyPage<RecentlyPlayedItem> window = recentlyPlayed(standIn, accessToken, null);
+            Instant newest = Instant.parse(window.items().get(0).playedAt());
+            Instant second = Instant.parse(window.items().get(1).playedAt());
+            SpotifyPage<RecentlyPlayedItem> sinceSecond = recentlyPlayed(standIn, accessToken, second.toEpochMilli());
+
+            // then
+            assertEquals(200, token.statusCode());
+            assertEquals(50, window.items().size(), "a day of plays fills the window");
+            assertTrue(newest.isAfter(second), "newest first");
+            assertNotNull(window.items().get(0).track().id());
+            assertEquals(1, sinceSecond.items().size());
+            assertEquals(newest.toString(), Instant.parse(sinceSecond.items().get(0).playedAt()).toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer with 429 and Retry-After at the configured throttle rate")
+    void shouldInjectThrottling() throws Exception {
+        // given
+        try (SpotifyStandIn standIn = SpotifyStandIn.start(settings(Map.of("api-throttle-rate", "1", "retry-after-seconds", "7")))) {
+
+            // when
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(standIn.apiBaseUrl() + "/me"))
+                .header("Authorization", "Bearer " + standIn.accessToken(0))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+            // then
+            assertEquals(429, response.statusCode());
+            assertEquals("7", response.headers().firstValue("Retry-After").orElseThrow());
+            assertEquals(1L, standIn.throttledCounts().get("GET /v1/me"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should resolve known tracks on ReccoBeats and leave unknown ones out")
+    void shouldResolveTracksOnReccoBeats() throws Exception {
+        // given
+        try (SpotifyStandIn standIn = SpotifyStandIn.start(settings(Map.of("unknown-track-percent", "0")))) {
+            String known = SyntheticCatalog.trackId(7);
+
+            // when
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                URI.create(standIn.reccoBeatsBaseUrl() + "/track?ids=" + known + "&ids=not-a-track")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            ReccoBeatsTrack.Page page = objectMapper.readValue(response.body(), ReccoBeatsTrack.Page.class);
+
+            // then
+            assertEquals(List.of(known), page.content().stream().map(ReccoBeatsTrack::spotifyId).toList());
+        }
+    }
+
+    private SpotifyPage<RecentlyPlayedItem> recentlyPlayed(SpotifyStandIn standIn, String accessToken, Long after)
+            throws Exception {
+        String url = standIn.apiBaseUrl() + "/me/player/recently-played?limit=50" + (after != null ? "&after=" + after : "");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url))
+            .header("Authorization", "Bearer " + accessToken)
+            .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<>() {});
+    }
+
+    private static SpotifyStandIn.Settings settings(Map<String, String> overrides) {
+        Map<String, String> options = new HashMap<>(Map.of(
+            "api-latency", "none", "accounts-latency", "none", "reccobeats-latency", "none"));
+        options.putAll(overrides);
+        return SpotifyStandIn.Settings.parse(options);
+    }
+}
@@ -0,0 +1,209 @@
+package com.spotify.dashboard.standin;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic users, tracks and plays for the stand-in, derived from a seed rather than stored,
+ * so any number of users costs nothing and concurrent requests need no locking.
+ *
+ * Track popularity is heavily skewed: every user's plays and top lists draw from the same cubic
+ * distribution over track indexes, so popular tracks are shared across users the way they are in
+ * real listening data and the enrichment queue sees realistic overlap. Each user plays one track
+ * every 2 to 10 minutes, from {@code start} on.
+ */
+final class SyntheticCatalog {
+
+    private static final String[] GENRES = {
+        "pop", "rock", "indie", "hip hop", "rap", "r&b", "electronic", "house", "techno", "jazz",
+        "soul", "folk", "metal", "punk", "classical", "country", "latin", "k-pop", "ambient", "reggae"
+    };
+    private static final List<String> TIME_RANGES = List.of("short_term", "medium_term", "long_term");
+    private static final long MIN_PLAY_INTERVAL_MS = 120_000;
+    private static final long MAX_PLAY_INTERVAL_MS = 600_000;
+
+    private final int users;
+    private final int tracks;
+    private final int artists;
+    private final int unknownTrackPercent;
+    private final long seed;
+    private final long startMillis;
+
+    SyntheticCatalog(int users, int tracks, int unknownTrackPercent, long seed, Instant start) {
+        this.users = users;
+        this.tracks = tracks;
+        this.artists = Math.max(1, tracks / 10);
+        this.unknownTrackPercent = unknownTrackPercent;
+        this.seed = seed;
+        this.startMillis = start.toEpochMilli();
+    }
+
+    int users() {
+        return users;
+    }
+
+    boolean isUser(int user) {
+        return user >= 0 && user < users;
+    }
+
+    static String userId(int user) {
+        return "standin-user-" + user;
+    }
+
+    static String trackId(int track) {
+        return String.format("st%020d", track);
+    }
+
+    /** Index of a {@link #trackId}, or -1 for ids this catalogue never hands out. */
+    int trackIndex(String trackId) {
+        if (trackId.length() != 22 || !trackId.startsWith("st")) {
+            return -1;
+        }
+        try {
+            int track = Integer.parseInt(trackId.substring(2));
+            return track < tracks ? track : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    Map<String, Object> profile(int user) {
+        return Map.of(
+            "id", userId(user),
+            "display_name", "Stand-in User " + user,
+            "email", userId(user) + "@example.com",
+            "product", user % 3 == 0 ? "free" : "premium",
+            "country", "GB",
+            "images", List.of(),
+            "type", "user",
+            "uri", "spotify:user:" + userId(user));
+    }
+
+    Map<String, Object> track(int track) {
+        int artist = artistOf(track);
+        return Map.of(
+            "id", trackId(track),
+            "name", "Track " + track,
+            "uri", "spotify:track:" + trackId(track),
+            "duration_ms", 150_000 + hash(track, 1) % 120_000,
+            "artists", List.of(Map.of("id", artistId(artist), "name", artistName(artist))));
+    }
+
+    Map<String, Object> artist(int artist) {
+        return Map.of(
+            "id", artistId(artist),
+            "name", artistName(artist),
+            "uri", "spotify:artist:" + artistId(artist),
+            "genres", genresOf(artist));
+    }
+
+    /** A user's top tracks for a time range, most listened first; ranges overlap but differ. */
+    List<Integer> topTracks(int user, String timeRange, int limit) {
+        SplittableRandom random = new SplittableRandom(seed ^ (31L * user + TIME_RANGES.indexOf(timeRange)));
+        Set<Integer> picked = new LinkedHashSet<>();
+        int wanted = Math.min(limit, tracks);
+        while (picked.size() < wanted) {
+            picked.add(popularTrack(random.nextDouble()));
+        }
+        return new ArrayList<>(picked);
+    }
+
+    List<Integer> topArtists(int user, String timeRange, int limit) {
+        Set<Integer> picked = new LinkedHashSet<>();
+        for (int track : topTracks(user, timeRange, Math.min(tracks, limit * 4))) {
+            picked.add(artistOf(track));
+            if (picked.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(picked);
+    }
+
+    /** A play of {@code track} at {@code playedAtMillis}. */
+    record Play(int track, long playedAtMillis) {}
+
+    /**
+     * Up to {@code limit} plays after {@code afterMillis} (exclusive, null for none) and up to
+     * {@code nowMillis}, newest first, as {@code /me/player/recently-played} returns them.
+     */
+    List<Play> recentPlays(int user, Long afterMillis, long nowMillis, int limit) {
+        long interval = playInterval(user);
+        long first = startMillis + hash(user, 2) % interval;
+        if (nowMillis < first) {
+            return List.of();
+        }
+        long newest = (nowMillis - first) / interval;
+        long oldest = afterMillis == null ? 0 : Math.max(0, Math.floorDiv(afterMillis - first, interval) + 1);
+        List<Play> plays = new ArrayList<>(limit);
+        for (long play = newest; play >= oldest && plays.size() < limit; play--) {
+            double draw = (hash(user, play) >>> 11) / (double) (1L << 53);
+            plays.add(new Play(popularTrack(draw), first + play * interval));
+        }
+        return plays;
+    }
+
+    /** False for the share of tracks ReccoBeats does not know. */
+    boolean inReccoBeats(int track) {
+        return hash(track, 3) % 100 >= unknownTrackPercent;
+    }
+
+    /** Audio features for a known track; about 2% of them come back empty. */
+    Map<String, Object> audioFeatures(int track) {
+        if (hash(track, 4) % 50 == 0) {
+            return null;
+        }
+        SplittableRandom random = new SplittableRandom(seed ^ track);
+        return Map.of(
+            "id", "rb-" + trackId(track),
+            "acousticness", random.nextDouble(),
+            "danceability", random.nextDouble(),
+            "energy", random.nextDouble(),
+            "valence", random.nextDouble(),
+            "tempo", 60 + random.nextDouble() * 120);
+    }
+
+    private int popularTrack(double draw) {
+        return Math.min(tracks - 1, (int) (tracks * draw * draw * draw));
+    }
+
+    private int artistOf(int track) {
+        return (int) (hash(track, 5) % artists);
+    }
+
+    private static String artistId(int artist) {
+        return String.format("sa%020d", artist);
+    }
+
+    private static String artistName(int artist) {
+        return "Artist " + artist;
+    }
+
+    private List<String> genresOf(int artist) {
+        int count = 1 + (int) (hash(artist, 6) % 3);
+        List<String> genres = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String genre = GENRES[(int) (hash(artist, 7 + i) % GENRES.length)];
+            if (!genres.contains(genre)) {
+                genres.add(genre);
+            }
+        }
+        return genres;
+    }
+
+    private long playInterval(int user) {
+        return MIN_PLAY_INTERVAL_MS + hash(user, 8) % (MAX_PLAY_INTERVAL_MS - MIN_PLAY_INTERVAL_MS);
+    }
+
+    /** Non-negative mix of the seed and two values (SplitMix64 finaliser). */
+    private long hash(long a, long b) {
+        long z = seed + a * 0x9E3779B97F4A7C15L + b * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (z ^ (z >>> 31)) >>> 1;
+    }
+}
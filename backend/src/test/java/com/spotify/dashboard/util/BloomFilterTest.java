@@ -0,0 +1,66 @@
+package com.spotify.dashboard.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BloomFilter Unit Tests")
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Should never report an inserted value as missing")
+    void shouldHaveNoFalseNegatives() {
+        // given
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+
+        // when
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("track" + i);
+        }
+
+        // then
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("track" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep false positive rate near the configured target")
+    void shouldKeepFalsePositiveRateNearTarget() {
+        // given
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("track" + i);
+        }
+
+        // when
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("unknown" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // then
+        assertTrue(falsePositives < 2_000, "false positive rate too high: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Should report values as missing on an empty filter")
+    void shouldReportMissingOnEmptyFilter() {
+        // given
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+
+        // when & then
+        assertFalse(filter.mightContain("track1"));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid sizing")
+    void shouldRejectInvalidSizing() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(100, 1.0));
+    }
+}
@@ -0,0 +1,85 @@
+package com.spotify.dashboard.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CircuitBreaker Tests")
+class CircuitBreakerTest {
+
+    private static final long OPEN_NANOS = 1_000;
+
+    @Test
+    @DisplayName("Should open once the failure rate over the window reaches the threshold")
+    void shouldOpenOnFailureRate() {
+        // given
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, OPEN_NANOS, 2, clock::get);
+
+        // when
+        call(breaker, true);
+        call(breaker, false);
+        call(breaker, true);
+        CircuitBreaker.State afterThreeCalls = breaker.state();
+        call(breaker, false);
+
+        // then
+        assertEquals(CircuitBreaker.State.CLOSED, afterThreeCalls, "too few calls to judge");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(OPEN_NANOS, breaker.remainingOpenNanos());
+    }
+
+    @Test
+    @DisplayName("Should let a limited number of probes through once the open period ends")
+    void shouldProbeWhenHalfOpen() {
+        // given
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, 1.0, OPEN_NANOS, 2, clock::get);
+        call(breaker, false);
+
+        // when
+        clock.addAndGet(OPEN_NANOS);
+        boolean firstProbe = breaker.tryAcquirePermission();
+        boolean secondProbe = breaker.tryAcquirePermission();
+        boolean thirdCall = breaker.tryAcquirePermission();
+        breaker.onSuccess();
+        breaker.onSuccess();
+
+        // then
+        assertTrue(firstProbe);
+        assertTrue(secondProbe);
+        assertFalse(thirdCall, "only the probes get through while half-open");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    @DisplayName("Should reopen for a full period when a probe fails")
+    void shouldReopenOnFailedProbe() {
+        // given
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, 1.0, OPEN_NANOS, 2, clock::get);
+        call(breaker, false);
+        clock.addAndGet(OPEN_NANOS);
+
+        // when
+        call(breaker, false);
+
+        // then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        clock.addAndGet(OPEN_NANOS - 1);
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    private static void call(CircuitBreaker breaker, boolean succeeds) {
+        assertTrue(breaker.tryAcquirePermission());
+        if (succeeds) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.spotify.dashboard.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("OutboundGovernor Tests")
+class OutboundGovernorTest {
+
+    private static final long WAIT = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    @DisplayName("Should grow the limit additively and halve it once per round of overload")
+    void shouldAdjustLimitAimd() throws Exception {
+        // given
+        AtomicLong clock = new AtomicLong();
+        OutboundGovernor governor = new OutboundGovernor(1, 16, 4, clock::get);
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            clock.addAndGet(1);
+            governor.acquire("user", OutboundGovernor.Priority.BACKGROUND, WAIT).release(OutboundGovernor.Outcome.SUCCESS);
+        }
+        int grown = governor.currentLimit();
+        clock.addAndGet(1);
+        OutboundGovernor.Permit first = governor.acquire("user", OutboundGovernor.Priority.BACKGROUND, WAIT);
+        OutboundGovernor.Permit second = governor.acquire("user", OutboundGovernor.Priority.BACKGROUND, WAIT);
+        clock.addAndGet(1);
+        first.release(OutboundGovernor.Outcome.OVERLOADED);
+        second.release(OutboundGovernor.Outcome.OVERLOADED);
+
+        // then
+        assertEquals(5, grown);
+        assertEquals(2, governor.currentLimit(), "both failures were sent at the old limit, so only one halving");
+    }
+
+    @Test
+    @DisplayName("Should pause every caller for the Retry-After of a throttled call")
+    void shouldPauseOnThrottle() throws Exception {
+        // given
+        AtomicLong clock = new AtomicLong();
+        OutboundGovernor governor = new OutboundGovernor(1, 16, 8, clock::get);
+        long retryAfter = TimeUnit.SECONDS.toNanos(30);
+
+        // when
+        governor.acquire("a", OutboundGovernor.Priority.INTERACTIVE, WAIT).throttled(retryAfter);
+
+        // then
+        assertNull(governor.acquire("b", OutboundGovernor.Priority.INTERACTIVE, WAIT),
+            "a pause longer than the caller's wait fails fast");
+        assertEquals(retryAfter, governor.pauseRemainingNanos());
+        assertEquals(4, governor.currentLimit());
+
+        clock.addAndGet(retryAfter);
+        assertNotNull(governor.acquire("b", OutboundGovernor.Priority.INTERACTIVE, WAIT));
+    }
+
+    @Test
+    @DisplayName("Should serve queued users round-robin with interactive calls first")
+    void shouldQueueFairly() throws Exception {
+        // given
+        OutboundGovernor governor = new OutboundGovernor(1, 1, 1, () -> 0L);
+        OutboundGovernor.Permit held = governor.acquire("holder", OutboundGovernor.Priority.INTERACTIVE, WAIT);
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+
+        // when
+        for (String key : List.of("backfill", "backfill", "backfill", "other")) {
+            startWaiter(governor, key, OutboundGovernor.Priority.BACKGROUND, order, threads);
+        }
+        startWaiter(governor, "dashboard", OutboundGovernor.Priority.INTERACTIVE, order, threads);
+        held.release(OutboundGovernor.Outcome.IGNORED);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        // then
+        assertEquals(List.of("dashboard", "backfill", "other", "backfill", "backfill"), order);
+    }
+
+    @Test
+    @DisplayName("Should hand async callers a permit when a slot frees, and null once their wait runs out")
+    void shouldQueueAsyncCallers() throws Exception {
+        // given
+        OutboundGovernor governor = new OutboundGovernor(1, 1, 1, System::nanoTime);
+        OutboundGovernor.Permit held = governor.acquire("holder", OutboundGovernor.Priority.INTERACTIVE, WAIT);
+
+        // when
+        CompletableFuture<OutboundGovernor.Permit> next =
+            governor.acquireAsync("dashboard", OutboundGovernor.Priority.INTERACTIVE, WAIT);
+        CompletableFuture<OutboundGovernor.Permit> impatient =
+            governor.acquireAsync("backfill", OutboundGovernor.Priority.BACKGROUND, TimeUnit.MILLISECONDS.toNanos(50));
+        boolean queued = !next.isDone();
+        held.release(OutboundGovernor.Outcome.IGNORED);
+
+        // then
+        assertTrue(queued, "no slot was free");
+        assertNotNull(next.get(5, TimeUnit.SECONDS));
+        assertNull(impatient.get(5, TimeUnit.SECONDS), "the slot stayed taken for longer than its wait");
+        assertEquals(0, governor.queued(OutboundGovernor.Priority.BACKGROUND));
+        assertEquals(1, governor.inFlight());
+    }
+
+    private static void startWaiter(OutboundGovernor governor, String key, OutboundGovernor.Priority priority,
+                                    List<String> order, List<Thread> threads) throws InterruptedException {
+        int queuedBefore = governor.queued(priority);
+        Thread thread = new Thread(() -> {
+            try {
+                OutboundGovernor.Permit permit = governor.acquire(key, priority, WAIT);
+                order.add(key);
+                permit.release(OutboundGovernor.Outcome.IGNORED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        threads.add(thread);
+        // queue the waiters one at a time so their arrival order is known
+        while (governor.queued(priority) == queuedBefore) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.spotify.dashboard.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SingleFlight Unit Tests")
+class SingleFlightTest {
+
+    private SingleFlight<String, String> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new SingleFlight<>();
+    }
+
+    @Test
+    @DisplayName("Should run loader once for concurrent callers with the same key")
+    void shouldRunLoaderOnceForConcurrentCallers() throws Exception {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("user1", () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                awaitQuietly(release);
+                return "token";
+            }));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> singleFlight.execute("user1", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (singleFlight.getSharedCalls() < 3) {
+                Thread.onSpinWait();
+            }
+
+            // when
+            release.countDown();
+
+            // then
+            assertEquals("token", leader.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("token", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(3, singleFlight.getSharedCalls());
+            assertEquals(0, singleFlight.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run loader again once the previous call has finished")
+    void shouldRunLoaderAgainAfterCompletion() {
+        // given
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        singleFlight.execute("user1", () -> "a" + loads.incrementAndGet());
+        String second = singleFlight.execute("user1", () -> "a" + loads.incrementAndGet());
+
+        // then
+        assertEquals("a2", second);
+        assertEquals(0, singleFlight.getSharedCalls());
+    }
+
+    @Test
+    @DisplayName("Should propagate loader exception and release the key")
+    void shouldPropagateLoaderException() {
+        // when & then
+        IllegalStateException exception = assertThrows(
+            IllegalStateException.class,
+            () -> singleFlight.execute("user1", () -> {
+                throw new IllegalStateException("refresh failed");
+            })
+        );
+        assertEquals("refresh failed", exception.getMessage());
+        assertEquals("ok", singleFlight.execute("user1", () -> "ok"));
+    }
+
+    @Test
+    @DisplayName("Should release waiting callers when the loader throws an Error")
+    void shouldReleaseWaitersOnError() throws Exception {
+        // given
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("user1", () -> {
+                loaderStarted.countDown();
+                awaitQuietly(release);
+                throw new AssertionError("loader broke");
+            }));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+            Future<String> follower = executor.submit(() -> singleFlight.execute("user1", () -> "other"));
+            while (singleFlight.getSharedCalls() < 1) {
+                Thread.onSpinWait();
+            }
+
+            // when
+            release.countDown();
+
+            // then
+            ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, leaderFailure.getCause());
+            assertInstanceOf(AssertionError.class, followerFailure.getCause());
+            assertEquals(0, singleFlight.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail the async call and release the key when the loader throws an Error")
+    void shouldFailAsyncCallOnError() {
+        // when
+        CompletableFuture<String> failed = singleFlight.executeAsync("user1", () -> {
+            throw new AssertionError("loader broke");
+        });
+
+        // then
+        CompletionException failure = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(AssertionError.class, failure.getCause());
+        assertEquals("ok", singleFlight.executeAsync("user1", () -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
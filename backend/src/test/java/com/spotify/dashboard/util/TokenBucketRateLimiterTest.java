@@ -0,0 +1,66 @@
+package com.spotify.dashboard.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TokenBucketRateLimiter Unit Tests")
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Should allow a full burst and then reject")
+    void shouldAllowBurstThenReject() {
+        // given
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 3, clock::get);
+
+        // when & then
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should refill tokens at the configured rate")
+    void shouldRefillAtConfiguredRate() {
+        // given
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, clock::get);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        // when
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // then
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should not accumulate more tokens than the burst size")
+    void shouldCapTokensAtBurst() {
+        // given
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 2, clock::get);
+
+        // when
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        // then
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should reject non-positive rate")
+    void shouldRejectNonPositiveRate() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1));
+    }
+}